@@ -2,7 +2,18 @@ package com.dao.cookbook.controller;
 
 import com.dao.cookbook.dto.request.AdminRecipeRequestDTO;
 import com.dao.cookbook.dto.response.RecipeResponseDTO;
+import com.dao.cookbook.event.RecipeChangeDispatcher;
+import com.dao.cookbook.search.RecipeIndexCoordinator;
+import com.dao.cookbook.search.TrendingKeywordTracker;
+import com.dao.cookbook.search.TrendingWindowCounter;
+import com.dao.cookbook.service.RecentSearchCache;
+import com.dao.cookbook.service.RecipeDetailCache;
 import com.dao.cookbook.service.RecipeService;
+import com.dao.cookbook.service.RecipeViewCounter;
+import com.dao.cookbook.service.RecipeViewHistoryCompactor;
+import com.dao.cookbook.service.RecipeViewWriteBuffer;
+import com.dao.cookbook.service.SearchHistoryCompactor;
+import com.dao.cookbook.service.SearchHistoryWriteBuffer;
 import com.dao.cookbook.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -23,10 +34,37 @@ public class AdminController {
 
     private final RecipeService recipeService;
     private final UserService userService;
+    private final RecipeDetailCache recipeDetailCache;
+    private final RecipeIndexCoordinator recipeIndexCoordinator;
+    private final RecipeChangeDispatcher recipeChangeDispatcher;
+    private final TrendingKeywordTracker trendingKeywordTracker;
+    private final TrendingWindowCounter trendingWindowCounter;
+    private final SearchHistoryWriteBuffer searchHistoryWriteBuffer;
+    private final RecentSearchCache recentSearchCache;
+    private final SearchHistoryCompactor searchHistoryCompactor;
+    private final RecipeViewWriteBuffer recipeViewWriteBuffer;
+    private final RecipeViewCounter recipeViewCounter;
+    private final RecipeViewHistoryCompactor recipeViewHistoryCompactor;
 
-    public AdminController(RecipeService recipeService, UserService userService) {
+    public AdminController(RecipeService recipeService, UserService userService, RecipeDetailCache recipeDetailCache,
+                           RecipeIndexCoordinator recipeIndexCoordinator, RecipeChangeDispatcher recipeChangeDispatcher,
+                           TrendingKeywordTracker trendingKeywordTracker, TrendingWindowCounter trendingWindowCounter,
+                           SearchHistoryWriteBuffer searchHistoryWriteBuffer, RecentSearchCache recentSearchCache,
+                           SearchHistoryCompactor searchHistoryCompactor, RecipeViewWriteBuffer recipeViewWriteBuffer,
+                           RecipeViewCounter recipeViewCounter, RecipeViewHistoryCompactor recipeViewHistoryCompactor) {
         this.recipeService = recipeService;
         this.userService = userService;
+        this.recipeDetailCache = recipeDetailCache;
+        this.recipeIndexCoordinator = recipeIndexCoordinator;
+        this.recipeChangeDispatcher = recipeChangeDispatcher;
+        this.trendingKeywordTracker = trendingKeywordTracker;
+        this.trendingWindowCounter = trendingWindowCounter;
+        this.searchHistoryWriteBuffer = searchHistoryWriteBuffer;
+        this.recentSearchCache = recentSearchCache;
+        this.searchHistoryCompactor = searchHistoryCompactor;
+        this.recipeViewWriteBuffer = recipeViewWriteBuffer;
+        this.recipeViewCounter = recipeViewCounter;
+        this.recipeViewHistoryCompactor = recipeViewHistoryCompactor;
     }
 
     /**
@@ -178,4 +216,149 @@ public class AdminController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
     }
+
+    @Operation(
+        summary = "Thống kê cache chi tiết công thức", 
+        description = "Trả về số lần hit/miss, tỉ lệ hit, số entry bị evict/invalidate và kích thước hiện tại của cache chi tiết công thức"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/cache/recipe-detail")
+    public ResponseEntity<java.util.Map<String, Object>> getRecipeDetailCacheStats() {
+        return ResponseEntity.ok(recipeDetailCache.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê cache lịch sử tìm kiếm gần đây",
+        description = "Trả về số user đang được cache, số query giữ cho mỗi user, số lần hit/miss và số entry bị evict của cache query tìm kiếm gần đây"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/cache/recent-searches")
+    public ResponseEntity<java.util.Map<String, Object>> getRecentSearchCacheStats() {
+        return ResponseEntity.ok(recentSearchCache.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê search index",
+        description = "Trả về trạng thái (đã build xong chưa), số tài liệu, số term và thời gian tìm kiếm trung bình của các index tìm kiếm trong bộ nhớ"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/search/indexes")
+    public ResponseEntity<java.util.Map<String, Object>> getSearchIndexStats() {
+        return ResponseEntity.ok(recipeIndexCoordinator.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê từ khóa thịnh hành",
+        description = "Trả về trạng thái, số từ khóa đang theo dõi, tổng số lượt tìm kiếm, sai số ước lượng và thời điểm checkpoint gần nhất của bộ đếm từ khóa trong bộ nhớ (allTime), cùng số bucket, số từ khóa và thời gian truy vấn của bộ đếm theo cửa sổ thời gian (windows)"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/search/trending")
+    public ResponseEntity<java.util.Map<String, Object>> getTrendingKeywordStats() {
+        java.util.Map<String, Object> stats = new java.util.LinkedHashMap<>();
+        stats.put("allTime", trendingKeywordTracker.getStats());
+        stats.put("windows", trendingWindowCounter.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    @Operation(
+        summary = "Thống kê buffer ghi lịch sử tìm kiếm",
+        description = "Trả về số dòng lịch sử tìm kiếm đang chờ ghi (queued), số lượt bị gộp (coalesced), bị bỏ do buffer đầy (dropped), đã ghi, ghi lỗi và thời gian flush gần nhất"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/search/history-buffer")
+    public ResponseEntity<java.util.Map<String, Object>> getSearchHistoryBufferStats() {
+        return ResponseEntity.ok(searchHistoryWriteBuffer.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê gom lịch sử tìm kiếm cũ",
+        description = "Trả về số ngày giữ lịch sử tìm kiếm chi tiết, mốc ngày của lần gom gần nhất, số dòng đã gom vào bảng thống kê theo ngày, số lô đã xử lý và số lần lỗi"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/search/history-compaction")
+    public ResponseEntity<java.util.Map<String, Object>> getSearchHistoryCompactionStats() {
+        return ResponseEntity.ok(searchHistoryCompactor.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê buffer ghi lịch sử xem công thức",
+        description = "Trả về số lượt xem đang chờ ghi (queued), số lượt bị gộp (coalesced), bị bỏ do buffer đầy (dropped), đã ghi, ghi lỗi và thời gian flush gần nhất"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/views/history-buffer")
+    public ResponseEntity<java.util.Map<String, Object>> getRecipeViewBufferStats() {
+        return ResponseEntity.ok(recipeViewWriteBuffer.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê bộ đếm lượt xem công thức",
+        description = "Trả về số công thức đang được đếm trong bộ nhớ, tổng lượt xem từ khi khởi động, số lượt xem chưa ghi xuống database, số lần ghi, ghi lỗi và thời gian ghi gần nhất"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/views/counters")
+    public ResponseEntity<java.util.Map<String, Object>> getRecipeViewCounterStats() {
+        return ResponseEntity.ok(recipeViewCounter.getStats());
+    }
+
+    @Operation(
+        summary = "Thống kê dọn lịch sử xem công thức",
+        description = "Trả về số lượt xem trùng và vượt giới hạn mỗi user đã chuyển sang bảng lưu trữ, số partition lưu trữ đã xóa, vị trí quét hiện tại và kết quả lần chạy gần nhất"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/views/history-compaction")
+    public ResponseEntity<java.util.Map<String, Object>> getRecipeViewHistoryCompactionStats() {
+        return ResponseEntity.ok(recipeViewHistoryCompactor.getStats());
+    }
+
+    @Operation(
+        summary = "Build lại search index",
+        description = "Build lại toàn bộ index tìm kiếm trong bộ nhớ từ database (chạy nền). Tìm kiếm vẫn dùng index cũ cho đến khi build xong. Chỉ chạy một lần build lại tại một thời điểm."
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "202", description = "Đã bắt đầu build lại"),
+        @ApiResponse(responseCode = "401", description = "Chưa đăng nhập"),
+        @ApiResponse(responseCode = "409", description = "Đang build lại, không tạo thêm lần build mới")
+    })
+    @PostMapping("/search/indexes/rebuild")
+    public ResponseEntity<?> rebuildSearchIndexes() {
+        try {
+            getCurrentUserId();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(e.getMessage());
+        }
+        if (!recipeIndexCoordinator.rebuildInBackground()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Index tìm kiếm đang được build lại");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+
+    @Operation(
+        summary = "Thống kê hàng đợi thay đổi công thức",
+        description = "Trả về số công thức đang chờ cập nhật index/cache (backlog), tuổi của thay đổi cũ nhất, số sự kiện đã nhận, đã gộp và đã xử lý theo lô"
+    )
+    @ApiResponses({
+        @ApiResponse(responseCode = "200", description = "Lấy thống kê thành công")
+    })
+    @GetMapping("/events/recipe-changes")
+    public ResponseEntity<java.util.Map<String, Object>> getRecipeChangeStats() {
+        return ResponseEntity.ok(recipeChangeDispatcher.getStats());
+    }
 }
@@ -1,20 +1,34 @@
 package com.dao.cookbook.controller;
 
 import com.dao.cookbook.dto.request.AdminRecipeRequestDTO;
+import com.dao.cookbook.dto.request.PantryRequestDTO;
+import com.dao.cookbook.dto.request.RecipeFacetSearchRequestDTO;
 import com.dao.cookbook.dto.request.RecipeRequestDTO;
+import com.dao.cookbook.dto.response.CursorPageResponseDTO;
+import com.dao.cookbook.dto.response.FacetedSearchResponseDTO;
+import com.dao.cookbook.dto.response.PantryRecipeDTO;
+import com.dao.cookbook.dto.response.RecipeCardDTO;
 import com.dao.cookbook.dto.response.RecipeResponseDTO;
+import com.dao.cookbook.dto.response.RecipeVersionDTO;
+import com.dao.cookbook.dto.response.SuggestionDTO;
 import com.dao.cookbook.dto.response.UserResponseDTO;
 import com.dao.cookbook.service.RecipeBookmarkService;
+import com.dao.cookbook.service.RecipeExportService;
 import com.dao.cookbook.service.RecipeLikeService;
 import com.dao.cookbook.service.RecipeService;
 import com.dao.cookbook.service.SearchHistoryService;
 import com.dao.cookbook.service.UserService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -33,14 +47,16 @@ public class RecipeController {
     private final RecipeBookmarkService recipeBookmarkService;
     private final SearchHistoryService searchHistoryService;
     private final com.dao.cookbook.service.RecipeViewHistoryService viewHistoryService;
+    private final RecipeExportService recipeExportService;
 
-    public RecipeController(RecipeService recipeService, UserService userService, RecipeLikeService recipeLikeService, RecipeBookmarkService recipeBookmarkService, SearchHistoryService searchHistoryService, com.dao.cookbook.service.RecipeViewHistoryService viewHistoryService) {
+    public RecipeController(RecipeService recipeService, UserService userService, RecipeLikeService recipeLikeService, RecipeBookmarkService recipeBookmarkService, SearchHistoryService searchHistoryService, com.dao.cookbook.service.RecipeViewHistoryService viewHistoryService, RecipeExportService recipeExportService) {
         this.recipeService = recipeService;
         this.userService = userService;
         this.recipeLikeService = recipeLikeService;
         this.recipeBookmarkService = recipeBookmarkService;
         this.searchHistoryService = searchHistoryService;
         this.viewHistoryService = viewHistoryService;
+        this.recipeExportService = recipeExportService;
     }
 
     /**
@@ -48,9 +64,9 @@ public class RecipeController {
      * GET /api/recipes/following-feed
      */
     @GetMapping("/following-feed")
-    public ResponseEntity<List<RecipeResponseDTO>> getFollowingFeed() {
+    public ResponseEntity<List<RecipeCardDTO>> getFollowingFeed() {
         Long currentUserId = getCurrentUserId();
-        List<RecipeResponseDTO> feed = recipeService.getFollowingFeed(currentUserId);
+        List<RecipeCardDTO> feed = recipeService.getFollowingFeed(currentUserId);
         return ResponseEntity.ok(feed);
     }
 
@@ -59,13 +75,29 @@ public class RecipeController {
      * GET /api/recipes/recently-viewed
      */
     @GetMapping("/recently-viewed")
-    public ResponseEntity<List<RecipeResponseDTO>> getRecentlyViewedRecipes(
+    public ResponseEntity<List<RecipeCardDTO>> getRecentlyViewedRecipes(
             @RequestParam(required = false) Integer limit) {
         Long currentUserId = getCurrentUserId();
-        List<RecipeResponseDTO> recipes = viewHistoryService.getRecentlyViewedRecipes(currentUserId, limit);
+        List<RecipeCardDTO> recipes = viewHistoryService.getRecentlyViewedRecipes(currentUserId, limit);
         return ResponseEntity.ok(recipes);
     }
 
+    /**
+     * Get recently viewed recipes by current user, one keyset page at a time
+     * GET /api/recipes/recently-viewed/paged?cursor={cursor}&size={size}
+     */
+    @GetMapping("/recently-viewed/paged")
+    public ResponseEntity<CursorPageResponseDTO<RecipeCardDTO>> getRecentlyViewedRecipesPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        Long currentUserId = getCurrentUserId();
+        try {
+            return ResponseEntity.ok(viewHistoryService.getRecentlyViewedRecipesPage(currentUserId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
     /**
      * Clear view history for current user
      * DELETE /api/recipes/recently-viewed
@@ -132,86 +164,201 @@ public class RecipeController {
      * GET /api/recipes
      */
     @GetMapping("/getRecipes")
-    public ResponseEntity<List<RecipeResponseDTO>> getAllRecipes() {
+    public ResponseEntity<List<RecipeCardDTO>> getAllRecipes() {
         Long currentUserId = getCurrentUserIdOrNull();
-        List<RecipeResponseDTO> recipes = recipeService.getAllRecipes(currentUserId);
+        List<RecipeCardDTO> recipes = recipeService.getAllRecipes(currentUserId);
         return ResponseEntity.ok(recipes);
     }
 
+    /**
+     * Export the full recipe catalog (ingredients and steps included) as NDJSON, one recipe per line.
+     * The response is streamed while the recipes are read, so it starts immediately and
+     * memory use does not grow with the size of the catalog.
+     * GET /api/recipes/export
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportRecipes() {
+        StreamingResponseBody body = out -> recipeExportService.exportCatalog(out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"recipes.ndjson\"")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Get all recipes, one keyset page at a time (newest first).
+     * GET /api/recipes/paged?cursor={cursor}&size={size}
+     */
+    @GetMapping("/paged")
+    public ResponseEntity<CursorPageResponseDTO<RecipeCardDTO>> getRecipesPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Long currentUserId = getCurrentUserIdOrNull();
+            return ResponseEntity.ok(recipeService.getRecipesPage(cursor, size, currentUserId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
     /**
      * Get recipe by ID.getRecipes
      * GET /api/recipes/{id}
+     * Supports conditional GET: If-None-Match / If-Modified-Since are answered with 304
+     * after a single-row version lookup, without loading the recipe body.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<RecipeResponseDTO> getRecipeById(@PathVariable Long id) {
+    public ResponseEntity<RecipeResponseDTO> getRecipeById(@PathVariable Long id, WebRequest webRequest) {
         try {
             Long currentUserId = getCurrentUserIdOrNull();
-            RecipeResponseDTO recipe = recipeService.getRecipeById(id, currentUserId);
             
-            // Save view history if user is authenticated
-            if (currentUserId != null) {
-                try {
-                    viewHistoryService.saveViewHistory(currentUserId, id);
-                } catch (Exception e) {
-                    // Don't fail the request if view history save fails
-                    System.err.println("Failed to save view history: " + e.getMessage());
+            // Cheap validator check first; a re-poll of an unchanged recipe is not a new view
+            RecipeVersionDTO version = recipeService.getRecipeVersion(id);
+            if (version != null) {
+                String etag = version.toETag(currentUserId);
+                if (webRequest.checkNotModified(etag, version.getLastModifiedMillis())) {
+                    return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version, currentUserId)
+                            .build();
                 }
             }
             
-            return ResponseEntity.ok(recipe);
+            RecipeResponseDTO recipe = recipeService.getRecipeById(id, currentUserId);
+            
+            // Count the view, and record view history if user is authenticated (written in the background)
+            viewHistoryService.recordView(currentUserId, id);
+            
+            // Validators come from the body actually returned, so they always describe it
+            return withValidators(ResponseEntity.ok(), RecipeVersionDTO.of(recipe), currentUserId)
+                    .body(recipe);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
     }
 
+    /**
+     * Add ETag, Last-Modified and caching headers for a recipe detail response.
+     * The response depends on the caller (per-user like/bookmark/rating state),
+     * so caches must key it on the Authorization header and revalidate every time.
+     */
+    private ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder,
+                                                      RecipeVersionDTO version, Long currentUserId) {
+        builder.eTag(version.toETag(currentUserId))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.AUTHORIZATION);
+        if (version.getLastModifiedMillis() >= 0) {
+            builder.lastModified(version.getLastModifiedMillis());
+        }
+        return builder;
+    }
+
     /**
      * Get recipes by user ID.
      * GET /api/recipes/user/{userId}
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<RecipeResponseDTO>> getRecipesByUserId(@PathVariable Long userId) {
+    public ResponseEntity<List<RecipeCardDTO>> getRecipesByUserId(@PathVariable Long userId) {
         Long currentUserId = getCurrentUserIdOrNull();
-        List<RecipeResponseDTO> recipes = recipeService.getRecipesByUserId(userId, currentUserId);
+        List<RecipeCardDTO> recipes = recipeService.getRecipesByUserId(userId, currentUserId);
         return ResponseEntity.ok(recipes);
     }
 
+    /**
+     * Get recipes by user ID, one keyset page at a time (newest first).
+     * GET /api/recipes/user/{userId}/paged?cursor={cursor}&size={size}
+     */
+    @GetMapping("/user/{userId}/paged")
+    public ResponseEntity<CursorPageResponseDTO<RecipeCardDTO>> getRecipesPageByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Long currentUserId = getCurrentUserIdOrNull();
+            return ResponseEntity.ok(recipeService.getRecipesPageByUserId(userId, cursor, size, currentUserId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
     /**
      * Get recipes of current authenticated user.
      * GET /api/recipes/my-recipes
      */
     @GetMapping("/my-recipes")
-    public ResponseEntity<List<RecipeResponseDTO>> getMyRecipes() {
+    public ResponseEntity<List<RecipeCardDTO>> getMyRecipes() {
         try {
             Long userId = getCurrentUserId();
-            List<RecipeResponseDTO> recipes = recipeService.getRecipesByUserId(userId, userId);
+            List<RecipeCardDTO> recipes = recipeService.getRecipesByUserId(userId, userId);
             return ResponseEntity.ok(recipes);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
         }
     }
 
+    /**
+     * Typeahead suggestions for the search box (recipe titles and ingredient names).
+     * Does not save search history: only submitted searches are recorded.
+     * GET /api/recipes/suggest?prefix={prefix}&limit={limit}
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(recipeService.getSuggestions(prefix, limit));
+    }
+
     /**
      * Search recipes by title.
-     * GET /api/recipes/search?title={title}
+     * Falls back to similar titles (typos, missing accents) when nothing matches;
+     * {@code fuzzy=true} searches similar titles only.
+     * GET /api/recipes/search?title={title}&fuzzy={fuzzy}
      */
     @GetMapping("/search")
-    public ResponseEntity<List<RecipeResponseDTO>> searchRecipes(@RequestParam String title) {
+    public ResponseEntity<List<RecipeCardDTO>> searchRecipes(
+            @RequestParam String title,
+            @RequestParam(defaultValue = "false") boolean fuzzy) {
         Long currentUserId = getCurrentUserIdOrNull();
         
         // Tự động lưu lịch sử tìm kiếm nếu user đã đăng nhập
         if (currentUserId != null && title != null && !title.trim().isEmpty()) {
             try {
-                searchHistoryService.saveSearchHistory(currentUserId, title);
+                searchHistoryService.recordSearch(currentUserId, title);
             } catch (Exception e) {
                 // Không throw exception nếu lưu lịch sử thất bại
                 System.err.println("Lỗi lưu lịch sử tìm kiếm: " + e.getMessage());
             }
         }
         
-        List<RecipeResponseDTO> recipes = recipeService.searchRecipesByTitle(title, currentUserId);
+        List<RecipeCardDTO> recipes = recipeService.searchRecipesByTitle(title, currentUserId, fuzzy);
         return ResponseEntity.ok(recipes);
     }
 
+    /**
+     * Search recipes by title, one keyset page at a time (newest first).
+     * GET /api/recipes/search/paged?title={title}&cursor={cursor}&size={size}
+     */
+    @GetMapping("/search/paged")
+    public ResponseEntity<CursorPageResponseDTO<RecipeCardDTO>> searchRecipesPage(
+            @RequestParam String title,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        Long currentUserId = getCurrentUserIdOrNull();
+        
+        // Chỉ lưu lịch sử tìm kiếm cho trang đầu tiên
+        if (currentUserId != null && cursor == null && !title.trim().isEmpty()) {
+            try {
+                searchHistoryService.recordSearch(currentUserId, title);
+            } catch (Exception e) {
+                System.err.println("Lỗi lưu lịch sử tìm kiếm: " + e.getMessage());
+            }
+        }
+        
+        try {
+            return ResponseEntity.ok(recipeService.searchRecipesPageByTitle(title, cursor, size, currentUserId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
     /**
      * Create a new recipe.
      * POST /api/recipes
@@ -548,12 +695,12 @@ public class RecipeController {
      * }
      */
     @PostMapping("/filter-by-ingredients")
-    public ResponseEntity<List<RecipeResponseDTO>> filterRecipesByIngredients(
+    public ResponseEntity<List<RecipeCardDTO>> filterRecipesByIngredients(
             @RequestBody com.dao.cookbook.dto.request.RecipeFilterRequestDTO filterRequest) {
         try {
             Long currentUserId = getCurrentUserIdOrNull();
             
-            List<RecipeResponseDTO> recipes = recipeService.filterRecipesByIngredients(
+            List<RecipeCardDTO> recipes = recipeService.filterRecipesByIngredients(
                     filterRequest.getIncludeIngredients(),
                     filterRequest.getExcludeIngredients(),
                     currentUserId
@@ -566,4 +713,80 @@ public class RecipeController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
     }
+
+    /**
+     * Filter recipes by ingredients (include/exclude), one keyset page at a time.
+     * POST /api/recipes/filter-by-ingredients/paged?cursor={cursor}&size={size}
+     */
+    @PostMapping("/filter-by-ingredients/paged")
+    public ResponseEntity<CursorPageResponseDTO<RecipeCardDTO>> filterRecipesPageByIngredients(
+            @RequestBody com.dao.cookbook.dto.request.RecipeFilterRequestDTO filterRequest,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Long currentUserId = getCurrentUserIdOrNull();
+            
+            CursorPageResponseDTO<RecipeCardDTO> page = recipeService.filterRecipesPageByIngredients(
+                    filterRequest.getIncludeIngredients(),
+                    filterRequest.getExcludeIngredients(),
+                    cursor,
+                    size,
+                    currentUserId
+            );
+            
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            System.err.println("Error filtering recipes: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    /**
+     * Faceted search: keyword, ingredients and cooking time / servings / rating ranges,
+     * one keyset page at a time, with the number of matching recipes per range.
+     * POST /api/recipes/facets/search?cursor={cursor}&size={size}
+     *
+     * Example request body:
+     * {
+     *   "query": "gà",
+     *   "cookingTime": ["15-30", "30-60"],
+     *   "rating": ["4.5+"]
+     * }
+     */
+    @PostMapping("/facets/search")
+    public ResponseEntity<FacetedSearchResponseDTO> searchRecipesWithFacets(
+            @RequestBody RecipeFacetSearchRequestDTO request,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            Long currentUserId = getCurrentUserIdOrNull();
+            return ResponseEntity.ok(recipeService.searchRecipesWithFacets(request, cursor, size, currentUserId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error searching recipes with facets: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    /**
+     * Recipes to cook from the ingredients the user has, best coverage first, with the
+     * ingredients still missing.
+     * POST /api/recipes/pantry
+     *
+     * Example request body:
+     * {
+     *   "ingredients": ["trứng", "cà chua", "hành lá"],
+     *   "limit": 20
+     * }
+     */
+    @PostMapping("/pantry")
+    public ResponseEntity<List<PantryRecipeDTO>> findRecipesForPantry(@RequestBody PantryRequestDTO request) {
+        try {
+            Long currentUserId = getCurrentUserIdOrNull();
+            return ResponseEntity.ok(recipeService.findRecipesForPantry(request, currentUserId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        }
+    }
 }
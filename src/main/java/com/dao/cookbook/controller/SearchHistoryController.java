@@ -198,7 +198,8 @@ public class SearchHistoryController {
     @Operation(
         summary = "Lấy từ khóa tìm kiếm thịnh hành", 
         description = "Lấy danh sách các từ khóa được tìm kiếm nhiều nhất trên toàn hệ thống. " +
-                     "Có thể lọc theo thời gian (30 ngày gần nhất mặc định) hoặc lấy tất cả."
+                     "Có thể lọc theo thời gian (30 ngày gần nhất mặc định, hoặc N giờ gần nhất), lấy tất cả, " +
+                     "hoặc xếp hạng theo độ 'nóng' (lượt tìm kiếm gần đây có trọng số cao hơn)."
     )
     @ApiResponses({
         @ApiResponse(responseCode = "200", description = "Lấy từ khóa thành công")
@@ -208,16 +209,31 @@ public class SearchHistoryController {
             @Parameter(description = "Số lượng kết quả tối đa", example = "10")
             @RequestParam(required = false, defaultValue = "10") Integer limit,
             @Parameter(description = "Lấy từ khóa trong N ngày gần nhất (0 = tất cả thời gian)", example = "30")
-            @RequestParam(required = false, defaultValue = "30") Integer days) {
+            @RequestParam(required = false, defaultValue = "30") Integer days,
+            @Parameter(description = "Lấy từ khóa trong N giờ gần nhất (ưu tiên hơn days)", example = "6")
+            @RequestParam(required = false) Integer hours,
+            @Parameter(description = "Xếp hạng theo độ nóng (giảm dần theo thời gian), bỏ qua days/hours", example = "false")
+            @RequestParam(required = false, defaultValue = "false") Boolean hot) {
         try {
             List<Object[]> trendingData;
+            String period;
             
-            if (days > 0) {
+            if (Boolean.TRUE.equals(hot)) {
+                // Lượt tìm kiếm gần đây có trọng số cao hơn
+                trendingData = searchHistoryService.getHotKeywords(limit);
+                period = "Đang hot";
+            } else if (hours != null && hours > 0) {
+                // Lấy trending trong N giờ gần nhất
+                trendingData = searchHistoryService.getTrendingKeywordsInHours(hours, limit);
+                period = hours + " giờ gần nhất";
+            } else if (days > 0) {
                 // Lấy trending trong khoảng thời gian
                 trendingData = searchHistoryService.getTrendingKeywordsInDays(days, limit);
+                period = days + " ngày gần nhất";
             } else {
                 // Lấy trending tất cả thời gian
                 trendingData = searchHistoryService.getTrendingKeywords(limit);
+                period = "Tất cả thời gian";
             }
             
             // Transform data to readable format
@@ -231,7 +247,7 @@ public class SearchHistoryController {
                     .toList();
             
             Map<String, Object> response = new HashMap<>();
-            response.put("period", days > 0 ? days + " ngày gần nhất" : "Tất cả thời gian");
+            response.put("period", period);
             response.put("total", trending.size());
             response.put("trending", trending);
             
@@ -0,0 +1,10 @@
+package com.dao.cookbook.dto.request;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class PantryRequestDTO {
+    private List<String> ingredients; // Danh sách nguyên liệu người dùng đang có
+    private Integer limit; // Số công thức tối đa (mặc định 20, tối đa 100)
+}
@@ -0,0 +1,14 @@
+package com.dao.cookbook.dto.request;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class RecipeFacetSearchRequestDTO {
+    private String query; // Từ khóa tìm trong tiêu đề/nguyên liệu (không bắt buộc)
+    private List<String> includeIngredients; // Danh sách nguyên liệu phải có
+    private List<String> excludeIngredients; // Danh sách nguyên liệu không được có
+    private List<String> cookingTime; // Khoảng thời gian nấu: "0-15", "15-30", "30-60", "60-120", "120+"
+    private List<String> servings; // Khoảng khẩu phần: "1-2", "3-4", "5-6", "7+"
+    private List<String> rating; // Khoảng đánh giá: "unrated", "1-3", "3-4", "4-4.5", "4.5+"
+}
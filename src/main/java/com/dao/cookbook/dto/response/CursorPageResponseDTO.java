@@ -0,0 +1,21 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for one page of a cursor-paginated listing.
+ * Pass {@code nextCursor} back as the {@code cursor} parameter to fetch the next page.
+ */
+@Data
+public class CursorPageResponseDTO<T> {
+    
+    private List<T> items = new ArrayList<>();
+    
+    private String nextCursor; // null when there are no more pages
+    
+    private boolean hasMore;
+    
+    private int size;
+}
@@ -0,0 +1,27 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the number of matching recipes in one facet value range.
+ */
+@Data
+@NoArgsConstructor
+public class FacetCountDTO {
+
+    /**
+     * Value range label, e.g. "15-30" or "4.5+"; pass it back to select the range.
+     */
+    private String value;
+
+    private long count;
+
+    private boolean selected;
+
+    public FacetCountDTO(String value, long count, boolean selected) {
+        this.value = value;
+        this.count = count;
+        this.selected = selected;
+    }
+}
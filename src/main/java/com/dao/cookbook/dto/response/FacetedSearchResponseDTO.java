@@ -0,0 +1,27 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for one page of a faceted recipe search with the facet counts of the whole result.
+ */
+@Data
+public class FacetedSearchResponseDTO {
+
+    private CursorPageResponseDTO<RecipeCardDTO> page = new CursorPageResponseDTO<>();
+
+    /**
+     * Number of matching recipes over all pages.
+     */
+    private long total;
+
+    /**
+     * Counts by facet name ("cookingTime", "servings", "rating"). The counts of a facet
+     * ignore that facet's own selection, so the other ranges show what selecting them adds.
+     */
+    private Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+}
@@ -0,0 +1,37 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for a recipe ranked by how much of it can be cooked from the user's pantry.
+ */
+@Data
+@NoArgsConstructor
+public class PantryRecipeDTO {
+
+    private RecipeCardDTO recipe;
+
+    private int matchedIngredients;
+
+    private int totalIngredients;
+
+    /**
+     * Fraction of the recipe's ingredients in the pantry, 0 to 1.
+     */
+    private double coverage;
+
+    private List<String> missingIngredients = new ArrayList<>();
+
+    public PantryRecipeDTO(RecipeCardDTO recipe, int matchedIngredients, int totalIngredients,
+                           double coverage, List<String> missingIngredients) {
+        this.recipe = recipe;
+        this.matchedIngredients = matchedIngredients;
+        this.totalIngredients = totalIngredients;
+        this.coverage = coverage;
+        this.missingIngredients = missingIngredients;
+    }
+}
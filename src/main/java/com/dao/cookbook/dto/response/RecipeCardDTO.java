@@ -0,0 +1,71 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.sql.Timestamp;
+
+/**
+ * Lightweight recipe summary ("card") for list and feed endpoints.
+ * Contains only what a feed item shows; ingredients and steps are served by
+ * the detail endpoint (see {@link RecipeResponseDTO}).
+ */
+@Data
+@NoArgsConstructor
+public class RecipeCardDTO {
+
+    private Long id;
+
+    private String title;
+
+    private String imageUrl;
+
+    private Integer servings;
+
+    private Integer cookingTime;
+
+    private Long userId;
+
+    private String userName;
+
+    private String userAvatar;
+
+    private Integer likesCount;
+
+    private Boolean isLikedByCurrentUser;
+
+    private Integer bookmarksCount;
+
+    private Boolean isBookmarkedByCurrentUser;
+
+    private Double averageRating;
+
+    private Integer ratingsCount;
+
+    private Integer commentsCount;
+
+    private Timestamp createdAt;
+
+    /**
+     * Constructor used by JPQL constructor expressions in RecipeRepository.
+     * Per-user flags are filled in afterwards by RecipeMapper.
+     */
+    public RecipeCardDTO(Long id, String title, String imageUrl, Integer servings, Integer cookingTime,
+                         Long userId, String userName, String userAvatar,
+                         Integer likesCount, Integer bookmarksCount, Double averageRating,
+                         Integer ratingsCount, Integer commentsCount, Timestamp createdAt) {
+        this.id = id;
+        this.title = title;
+        this.imageUrl = imageUrl;
+        this.servings = servings;
+        this.cookingTime = cookingTime;
+        this.userId = userId;
+        this.userName = userName;
+        this.userAvatar = userAvatar;
+        this.likesCount = likesCount != null ? likesCount : 0;
+        this.bookmarksCount = bookmarksCount != null ? bookmarksCount : 0;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.ratingsCount = ratingsCount != null ? ratingsCount : 0;
+        this.commentsCount = commentsCount != null ? commentsCount : 0;
+        this.createdAt = createdAt;
+    }
+}
@@ -49,6 +49,10 @@ public class RecipeResponseDTO {
     
     private Integer commentsCount;
     
+    private Long viewsCount;
+    
+    private Long uniqueViewersCount; // Estimated (±2-3%), signed-in viewers only
+    
     private Timestamp createdAt;
     
     private Timestamp updatedAt;
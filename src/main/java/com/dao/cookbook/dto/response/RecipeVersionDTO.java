@@ -0,0 +1,80 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+/**
+ * Version of a recipe used for conditional GET (ETag / Last-Modified).
+ * Holds only the columns that change when the recipe detail response changes,
+ * so it can be read without loading any collection. View counts are left out: they
+ * change on every view, including the one that produced the response.
+ */
+@Data
+@NoArgsConstructor
+public class RecipeVersionDTO {
+
+    private Long id;
+
+    private Timestamp updatedAt;
+
+    private Integer likesCount;
+
+    private Integer bookmarksCount;
+
+    private Double averageRating;
+
+    private Integer ratingsCount;
+
+    private Integer commentsCount;
+
+    /**
+     * Constructor used by JPQL constructor expressions in RecipeRepository.
+     */
+    public RecipeVersionDTO(Long id, Timestamp updatedAt, Integer likesCount, Integer bookmarksCount,
+                            Double averageRating, Integer ratingsCount, Integer commentsCount) {
+        this.id = id;
+        this.updatedAt = updatedAt;
+        this.likesCount = likesCount != null ? likesCount : 0;
+        this.bookmarksCount = bookmarksCount != null ? bookmarksCount : 0;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.ratingsCount = ratingsCount != null ? ratingsCount : 0;
+        this.commentsCount = commentsCount != null ? commentsCount : 0;
+    }
+
+    /**
+     * Take the version of an already built recipe detail response.
+     */
+    public static RecipeVersionDTO of(RecipeResponseDTO recipe) {
+        return new RecipeVersionDTO(recipe.getId(), recipe.getUpdatedAt(), recipe.getLikesCount(),
+                recipe.getBookmarksCount(), recipe.getAverageRating(), recipe.getRatingsCount(),
+                recipe.getCommentsCount());
+    }
+
+    /**
+     * Weak ETag for the detail response as seen by the given user.
+     * The user is part of the tag because the response carries per-user like,
+     * bookmark and rating state. The tag is weak because the view counts in the body
+     * are not part of it, so two responses with the same tag may differ in those.
+     *
+     * @param currentUserId current user ID (null for anonymous requests)
+     * @return weak ETag value ({@code W/"..."})
+     */
+    public String toETag(Long currentUserId) {
+        String version = id + ":" + (updatedAt != null ? updatedAt.getTime() : 0) + ":"
+                + likesCount + ":" + bookmarksCount + ":" + averageRating + ":"
+                + ratingsCount + ":" + commentsCount + ":"
+                + (currentUserId != null ? currentUserId : "anonymous");
+        return "W/\"" + DigestUtils.md5DigestAsHex(version.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Last-Modified value in epoch milliseconds, or -1 if unknown.
+     */
+    public long getLastModifiedMillis() {
+        return updatedAt != null ? updatedAt.getTime() : -1;
+    }
+}
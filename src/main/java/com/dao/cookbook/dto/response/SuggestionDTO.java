@@ -0,0 +1,30 @@
+package com.dao.cookbook.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one search box completion.
+ */
+@Data
+@NoArgsConstructor
+public class SuggestionDTO {
+
+    public static final String TYPE_RECIPE = "recipe";
+    public static final String TYPE_INGREDIENT = "ingredient";
+
+    /**
+     * Completion text as written in the recipe (with accents).
+     */
+    private String text;
+
+    /**
+     * Whether the text is a recipe title ("recipe") or an ingredient name ("ingredient").
+     */
+    private String type;
+
+    public SuggestionDTO(String text, String type) {
+        this.text = text;
+        this.type = type;
+    }
+}
@@ -0,0 +1,35 @@
+package com.dao.cookbook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Entity class representing one ingredient of the canonical ingredient catalog.
+ * <p>
+ * Maps to the "canonical_ingredients" table in the database. Ingredient rows with names
+ * that give the same key (case and plurals removed, accents kept, synonyms replaced) share
+ * one canonical ingredient.
+ * </p>
+ *
+ * <ul>
+ *   <li><b>id</b>: Unique identifier (primary key), stored in ingredients.canonical_id.</li>
+ *   <li><b>name</b>: Display name, as first written or as listed in the synonym dictionary.</li>
+ *   <li><b>normalizedName</b>: Key of the ingredient (unique, compared with accents).</li>
+ * </ul>
+ */
+@Data
+@Entity
+@Table(name = "canonical_ingredients")
+public class CanonicalIngredientEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", updatable = false, nullable = false)
+    private Integer id;
+
+    @Column(nullable = false, length = 255)
+    private String name;
+
+    @Column(name = "normalized_name", nullable = false, unique = true, length = 255)
+    private String normalizedName;
+}
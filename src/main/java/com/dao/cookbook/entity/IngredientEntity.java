@@ -13,14 +13,18 @@ import lombok.Data;
  *   <li><b>id</b>: Unique identifier for the ingredient (primary key).</li>
  *   <li><b>recipeId</b>: ID of the recipe this ingredient belongs to (foreign key).</li>
  *   <li><b>recipe</b>: The recipe this ingredient belongs to.</li>
- *   <li><b>name</b>: Name of the ingredient (not null).</li>
+ *   <li><b>name</b>: Name of the ingredient as written by the author (not null).</li>
+ *   <li><b>canonicalId</b>: ID of the matching {@link CanonicalIngredientEntity}, set on write;
+ *       ingredient filters match on this instead of the free-text name.</li>
  *   <li><b>quantity</b>: Quantity of the ingredient.</li>
  *   <li><b>unit</b>: Unit of measurement (e.g., kg, g, ml, cups, etc.).</li>
  * </ul>
  */
 @Data
 @Entity
-@Table(name = "ingredients")
+@Table(name = "ingredients", indexes = {
+    @Index(name = "idx_ingredients_canonical_recipe", columnList = "canonical_id, recipe_id")
+})
 public class IngredientEntity {
     
     @Id
@@ -38,6 +42,9 @@ public class IngredientEntity {
     @Column(nullable = false, length = 255)
     private String name;
 
+    @Column(name = "canonical_id")
+    private Integer canonicalId;
+
     @Column(length = 50)
     private String quantity;
 
@@ -22,13 +22,19 @@ import java.util.List;
  *   <li><b>user</b>: The user who owns this recipe.</li>
  *   <li><b>ingredients</b>: List of ingredients for this recipe.</li>
  *   <li><b>steps</b>: List of cooking steps for this recipe.</li>
+ *   <li><b>viewsCount</b>: Number of detail views, written only by the view counter.</li>
+ *   <li><b>uniqueViewersCount</b>: Estimated number of distinct signed-in viewers, written only by the view counter.</li>
  *   <li><b>createdAt</b>: Timestamp when the recipe was created.</li>
  *   <li><b>updatedAt</b>: Timestamp when the recipe was last updated.</li>
  * </ul>
  */
 @Data
 @Entity
-@Table(name = "recipes")
+@Table(name = "recipes", indexes = {
+    @Index(name = "idx_recipes_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_recipes_user_created_at_id", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_recipes_updated_at", columnList = "updated_at")
+})
 public class RecipeEntity {
     
     @Id
@@ -56,9 +62,11 @@ public class RecipeEntity {
     private UserEntity user;
 
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id ASC")
     private List<IngredientEntity> ingredients = new ArrayList<>();
 
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("stepNumber ASC")
     private List<RecipeStepEntity> steps = new ArrayList<>();
 
     @Column(name = "likes_count", nullable = false, columnDefinition = "INT DEFAULT 0")
@@ -85,6 +93,14 @@ public class RecipeEntity {
     @Column(name = "comments_count", nullable = false, columnDefinition = "INT DEFAULT 0")
     private Integer commentsCount = 0;
 
+    @Column(name = "views_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0")
+    private Long viewsCount;
+
+    @Column(name = "unique_viewers_count", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0")
+    private Long uniqueViewersCount;
+
     @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<RecipeCommentEntity> comments = new ArrayList<>();
 
@@ -44,5 +44,6 @@ public class RecipeStepEntity {
     private String title;
 
     @OneToMany(mappedBy = "recipeStep", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("orderNumber ASC")
     private List<StepImageEntity> images = new ArrayList<>();
 }
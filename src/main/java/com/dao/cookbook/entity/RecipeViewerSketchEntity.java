@@ -0,0 +1,30 @@
+package com.dao.cookbook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Entity class representing the HyperLogLog sketch of a recipe's distinct viewers.
+ * <p>
+ * Maps to the "recipe_viewer_sketches" table in the database. Kept out of the recipes
+ * table so that loading a recipe does not read the sketch. Written only by the view
+ * counter, which also deletes the sketch of a deleted recipe.
+ * </p>
+ *
+ * <ul>
+ *   <li><b>recipeId</b>: ID of the recipe (primary key).</li>
+ *   <li><b>viewersSketch</b>: Serialized sketch (precision byte followed by the registers).</li>
+ * </ul>
+ */
+@Data
+@Entity
+@Table(name = "recipe_viewer_sketches")
+public class RecipeViewerSketchEntity {
+
+    @Id
+    @Column(name = "recipe_id", updatable = false, nullable = false)
+    private Long recipeId;
+
+    @Column(name = "viewers_sketch", nullable = false, columnDefinition = "BLOB")
+    private byte[] viewersSketch;
+}
@@ -0,0 +1,41 @@
+package com.dao.cookbook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+
+/**
+ * Entity class representing the number of searches for one query on one day.
+ * <p>
+ * Maps to the "search_history_daily" table in the database. Rows of search_history older
+ * than the retention period are rolled up into this table and deleted.
+ * </p>
+ *
+ * <ul>
+ *   <li><b>id</b>: Unique identifier (primary key).</li>
+ *   <li><b>day</b>: Day of the searches (server time zone).</li>
+ *   <li><b>searchQuery</b>: The search query text; unique per day.</li>
+ *   <li><b>searchCount</b>: Number of searches of the query on that day.</li>
+ * </ul>
+ */
+@Data
+@Entity
+@Table(name = "search_history_daily",
+       uniqueConstraints = @UniqueConstraint(name = "uk_day_query", columnNames = {"day", "search_query"}),
+       indexes = @Index(name = "idx_search_query", columnList = "search_query"))
+public class SearchHistoryDailyEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", updatable = false, nullable = false)
+    private Long id;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "search_query", nullable = false, length = 255)
+    private String searchQuery;
+
+    @Column(name = "search_count", nullable = false)
+    private Long searchCount;
+}
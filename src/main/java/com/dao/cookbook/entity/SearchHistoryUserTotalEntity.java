@@ -0,0 +1,34 @@
+package com.dao.cookbook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Entity class representing the number of a user's searches that were rolled up out of
+ * search_history.
+ * <p>
+ * Maps to the "search_history_user_totals" table in the database. Added to the user's
+ * remaining search_history rows, it gives the user's total number of searches.
+ * </p>
+ *
+ * <ul>
+ *   <li><b>userId</b>: ID of the user (primary key, foreign key).</li>
+ *   <li><b>searchCount</b>: Number of the user's searches removed from search_history.</li>
+ * </ul>
+ */
+@Data
+@Entity
+@Table(name = "search_history_user_totals")
+public class SearchHistoryUserTotalEntity {
+
+    @Id
+    @Column(name = "user_id", updatable = false, nullable = false)
+    private Long userId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", insertable = false, updatable = false)
+    private UserEntity user;
+
+    @Column(name = "search_count", nullable = false)
+    private Long searchCount;
+}
@@ -0,0 +1,200 @@
+package com.dao.cookbook.event;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Hands committed {@link RecipeChangedEvent}s to every {@link RecipeChangeHandler}.
+ * <p>
+ * Events are queued once the publishing transaction commits (immediately when published
+ * outside a transaction) and dropped if it rolls back. Queued events are keyed by recipe,
+ * so a recipe changed many times before the next batch is handled once. Once the
+ * application is ready, a scheduled task waits {@code app.events.recipe-changed.interval-ms}
+ * after each run, then takes up to {@code app.events.recipe-changed.batch-size} recipes at
+ * a time until the queue is empty.
+ * </p>
+ * <p>
+ * The queue lives in memory and is drained at shutdown; changes lost if the process dies
+ * are tolerated by the handlers because they rebuild from the database at startup.
+ * </p>
+ */
+@Component
+public class RecipeChangeDispatcher {
+
+    private final List<RecipeChangeHandler> handlers;
+    private final int batchSize;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile int lastBatchSize = -1;
+    private volatile long lastBatchMillis = -1;
+    private volatile long lastBatchLagMillis = -1;
+    private volatile boolean started;
+
+    public RecipeChangeDispatcher(List<RecipeChangeHandler> handlers,
+                                  @Value("${app.events.recipe-changed.batch-size:500}") int batchSize) {
+        this.handlers = handlers;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queue a committed change, merging it with any change to the same recipe still queued.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRecipeChanged(RecipeChangedEvent event) {
+        if (event.getRecipeId() == null) {
+            return;
+        }
+        received.increment();
+        pending.merge(event.getRecipeId(), new Pending(event.getType(), System.currentTimeMillis()),
+                (queued, next) -> {
+                    coalesced.increment();
+                    return queued.merge(next);
+                });
+    }
+
+    /**
+     * Start dispatching once the application has started. Changes committed before then
+     * stay queued.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        started = true;
+    }
+
+    // Waiting between drains is what lets bursts of writes coalesce
+    @Scheduled(fixedDelayString = "${app.events.recipe-changed.interval-ms:200}",
+               initialDelayString = "${app.events.recipe-changed.interval-ms:200}")
+    public void onSchedule() {
+        if (started) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        flush();
+    }
+
+    /**
+     * Dispatch everything queued so far on the calling thread.
+     */
+    public void flush() {
+        while (!pending.isEmpty()) {
+            dispatchBatch();
+        }
+    }
+
+    /**
+     * Queue depth and throughput since startup.
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        long oldest = pending.values().stream().mapToLong(p -> p.since).min().orElse(now);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backlog", pending.size());
+        stats.put("oldestPendingMs", now - oldest);
+        stats.put("received", received.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("dispatched", dispatched.sum());
+        stats.put("batches", batches.sum());
+        stats.put("handlerFailures", failures.sum());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchMs", lastBatchMillis);
+        stats.put("lastBatchLagMs", lastBatchLagMillis);
+        stats.put("handlers", handlers.stream().map(RecipeChangeHandler::getName).collect(Collectors.toList()));
+        return stats;
+    }
+
+    private synchronized void dispatchBatch() {
+        List<RecipeChangedEvent> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        long oldest = Long.MAX_VALUE;
+        for (Long recipeId : pending.keySet()) {
+            // A change queued after this removal lands in a later batch
+            Pending change = pending.remove(recipeId);
+            if (change == null) {
+                continue;
+            }
+            batch.add(new RecipeChangedEvent(recipeId, change.type));
+            oldest = Math.min(oldest, change.since);
+            if (batch.size() >= batchSize) {
+                break;
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        List<RecipeChangedEvent> events = Collections.unmodifiableList(batch);
+        for (RecipeChangeHandler handler : handlers) {
+            try {
+                handler.onRecipesChanged(events);
+            } catch (RuntimeException e) {
+                // One failing handler must not hold back the others or the queue
+                failures.increment();
+                System.err.println("Recipe change handler " + handler.getName() + " failed on "
+                        + events.size() + " changes: " + e.getMessage());
+            }
+        }
+        dispatched.add(events.size());
+        batches.increment();
+        lastBatchSize = events.size();
+        lastBatchMillis = System.currentTimeMillis() - start;
+        lastBatchLagMillis = start - oldest;
+    }
+
+    private static final class Pending {
+
+        private final RecipeChangedEvent.Type type;
+        private final long since;
+
+        private Pending(RecipeChangedEvent.Type type, long since) {
+            this.type = type;
+            this.since = since;
+        }
+
+        /**
+         * A deletion is final, and a counter-only change (likes, rating) does not hide an
+         * edit queued with it; different changes otherwise become UPDATED. The age is the
+         * earlier one's.
+         */
+        private Pending merge(Pending next) {
+            RecipeChangedEvent.Type merged;
+            if (type == RecipeChangedEvent.Type.DELETED || next.type == RecipeChangedEvent.Type.DELETED) {
+                merged = RecipeChangedEvent.Type.DELETED;
+            } else if (type == next.type) {
+                merged = type;
+            } else if (isCounter(next.type) && !isCounter(type)) {
+                merged = type;
+            } else if (isCounter(type) && !isCounter(next.type)) {
+                merged = next.type;
+            } else {
+                merged = RecipeChangedEvent.Type.UPDATED;
+            }
+            return new Pending(merged, since);
+        }
+
+        private static boolean isCounter(RecipeChangedEvent.Type type) {
+            return type == RecipeChangedEvent.Type.LIKES || type == RecipeChangedEvent.Type.RATING;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.dao.cookbook.event;
+
+import java.util.List;
+
+/**
+ * Receives committed recipe changes from {@link RecipeChangeDispatcher} in batches.
+ * <p>
+ * Every Spring bean implementing this interface is notified. Calls come from a single
+ * background thread, outside any transaction, some time after the changes committed.
+ * </p>
+ */
+public interface RecipeChangeHandler {
+
+    /**
+     * Short name used in logs and statistics.
+     */
+    String getName();
+
+    /**
+     * Apply a batch of changes. The batch holds at most one event per recipe: several
+     * changes to a recipe before the batch is taken are merged into one. A deletion is
+     * never replaced, an edit is not replaced by a likes or rating change, and otherwise
+     * different changes are merged into UPDATED.
+     */
+    void onRecipesChanged(List<RecipeChangedEvent> events);
+}
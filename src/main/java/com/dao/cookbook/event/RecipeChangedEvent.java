@@ -0,0 +1,42 @@
+package com.dao.cookbook.event;
+
+/**
+ * Published when a write changes a recipe or one of the counters stored on its row.
+ * <p>
+ * Listeners are only notified after the publishing transaction commits, through
+ * {@link RecipeChangeDispatcher}; they re-read whatever they need from the database.
+ * </p>
+ */
+public class RecipeChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /** average_rating / ratings_count changed */
+        RATING,
+        /** likes_count changed */
+        LIKES
+    }
+
+    private final Long recipeId;
+    private final Type type;
+
+    public RecipeChangedEvent(Long recipeId, Type type) {
+        this.recipeId = recipeId;
+        this.type = type;
+    }
+
+    public Long getRecipeId() {
+        return recipeId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "RecipeChangedEvent{recipeId=" + recipeId + ", type=" + type + "}";
+    }
+}
@@ -4,17 +4,23 @@ import com.dao.cookbook.dto.request.IngredientDTO;
 import com.dao.cookbook.dto.request.RecipeRequestDTO;
 import com.dao.cookbook.dto.request.RecipeStepDTO;
 import com.dao.cookbook.dto.request.StepImageDTO;
+import com.dao.cookbook.dto.response.RecipeCardDTO;
 import com.dao.cookbook.dto.response.RecipeResponseDTO;
 import com.dao.cookbook.entity.IngredientEntity;
 import com.dao.cookbook.entity.RecipeEntity;
 import com.dao.cookbook.entity.RecipeStepEntity;
 import com.dao.cookbook.entity.StepImageEntity;
+import com.dao.cookbook.service.IngredientCatalog;
 import com.dao.cookbook.service.RecipeBookmarkService;
 import com.dao.cookbook.service.RecipeLikeService;
 import com.dao.cookbook.service.RecipeRatingService;
+import com.dao.cookbook.service.RecipeViewCounter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +38,12 @@ public class RecipeMapper {
     @Autowired
     private RecipeRatingService recipeRatingService;
     
+    @Autowired
+    private IngredientCatalog ingredientCatalog;
+    
+    @Autowired
+    private RecipeViewCounter recipeViewCounter;
+    
     /**
      * Convert RecipeRequestDTO to RecipeEntity.
      */
@@ -56,6 +68,140 @@ public class RecipeMapper {
      * Convert RecipeEntity to RecipeResponseDTO with like info for a specific user.
      */
     public RecipeResponseDTO toResponse(RecipeEntity entity, Long currentUserId) {
+        return toDetailResponse(entity, entity.getSteps(), currentUserId);
+    }
+    
+    /**
+     * Convert a recipe loaded by the detail fetch plan to RecipeResponseDTO.
+     * Steps are passed separately because they are fetched (with their images)
+     * by a dedicated query rather than through the recipe's lazy collection.
+     */
+    public RecipeResponseDTO toDetailResponse(RecipeEntity entity, List<RecipeStepEntity> steps, Long currentUserId) {
+        RecipeResponseDTO dto = toBaseResponse(entity, entity.getIngredients(), steps);
+        overlayUserState(dto, currentUserId);
+        return dto;
+    }
+    
+    /**
+     * Convert a recipe to RecipeResponseDTO for the catalog export, without any per-user state.
+     * Ingredients and steps are passed separately because the export loads them in bulk
+     * for a whole chunk of recipes.
+     */
+    public RecipeResponseDTO toExportResponse(RecipeEntity entity, List<IngredientEntity> ingredients,
+                                              List<RecipeStepEntity> steps) {
+        return toBaseResponse(entity, ingredients, steps);
+    }
+    
+    /**
+     * Copy a shared (e.g. cached) non-personalized response and overlay the current view
+     * counts and the current user's like, bookmark and rating state on the copy.
+     * The given response is not modified.
+     */
+    public RecipeResponseDTO personalize(RecipeResponseDTO base, Long currentUserId) {
+        RecipeResponseDTO dto = new RecipeResponseDTO();
+        dto.setId(base.getId());
+        dto.setTitle(base.getTitle());
+        dto.setImageUrl(base.getImageUrl());
+        dto.setServings(base.getServings());
+        dto.setCookingTime(base.getCookingTime());
+        dto.setUserId(base.getUserId());
+        dto.setUserName(base.getUserName());
+        dto.setUserAvatar(base.getUserAvatar());
+        dto.setIngredients(base.getIngredients());
+        dto.setSteps(base.getSteps());
+        dto.setLikesCount(base.getLikesCount());
+        dto.setBookmarksCount(base.getBookmarksCount());
+        dto.setAverageRating(base.getAverageRating());
+        dto.setRatingsCount(base.getRatingsCount());
+        dto.setCommentsCount(base.getCommentsCount());
+        dto.setViewsCount(base.getViewsCount());
+        dto.setUniqueViewersCount(base.getUniqueViewersCount());
+        dto.setCreatedAt(base.getCreatedAt());
+        dto.setUpdatedAt(base.getUpdatedAt());
+        overlayViewCounts(dto);
+        overlayUserState(dto, currentUserId);
+        return dto;
+    }
+    
+    /**
+     * Replace the stored view counts with the in-memory ones, which include views not
+     * written yet. No query.
+     */
+    private void overlayViewCounts(RecipeResponseDTO dto) {
+        dto.setViewsCount(recipeViewCounter.getViews(dto.getId(), dto.getViewsCount()));
+        dto.setUniqueViewersCount(recipeViewCounter.getUniqueViewers(dto.getId(), dto.getUniqueViewersCount()));
+    }
+    
+    /**
+     * Look up and set the current user's like, bookmark and rating state for a single recipe.
+     */
+    private void overlayUserState(RecipeResponseDTO dto, Long currentUserId) {
+        if (currentUserId != null) {
+            Integer userRating = recipeRatingService.getUserRating(currentUserId, dto.getId())
+                    .map(rating -> rating.getRating())
+                    .orElse(null);
+            applyUserState(dto,
+                    recipeLikeService.isLikedByUser(currentUserId, dto.getId()),
+                    recipeBookmarkService.isBookmarkedByUser(currentUserId, dto.getId()),
+                    userRating);
+        } else {
+            applyUserState(dto, false, false, null);
+        }
+    }
+    
+    /**
+     * Convert RecipeEntity to a lightweight RecipeCardDTO (no ingredients or steps).
+     * Per-user flags are left unset; see {@link #applyUserState(List, Long)}.
+     */
+    public RecipeCardDTO toCard(RecipeEntity entity) {
+        return new RecipeCardDTO(
+                entity.getId(),
+                entity.getTitle(),
+                entity.getImageUrl(),
+                entity.getServings(),
+                entity.getCookingTime(),
+                entity.getUserId(),
+                entity.getUser() != null ? entity.getUser().getFullName() : null,
+                entity.getUser() != null ? entity.getUser().getAvatarUrl() : null,
+                entity.getLikesCount(),
+                entity.getBookmarksCount(),
+                entity.getAverageRating(),
+                entity.getRatingsCount(),
+                entity.getCommentsCount(),
+                entity.getCreatedAt());
+    }
+    
+    /**
+     * Set the current user's like and bookmark state on a list of recipe cards.
+     * Resolved with one query each for the whole list.
+     */
+    public List<RecipeCardDTO> applyUserState(List<RecipeCardDTO> cards, Long currentUserId) {
+        if (cards == null || cards.isEmpty()) {
+            return cards;
+        }
+        
+        Set<Long> likedIds = Collections.emptySet();
+        Set<Long> bookmarkedIds = Collections.emptySet();
+        if (currentUserId != null) {
+            List<Long> recipeIds = cards.stream()
+                    .map(RecipeCardDTO::getId)
+                    .collect(Collectors.toList());
+            likedIds = recipeLikeService.getLikedRecipeIds(currentUserId, recipeIds);
+            bookmarkedIds = recipeBookmarkService.getBookmarkedRecipeIds(currentUserId, recipeIds);
+        }
+        
+        for (RecipeCardDTO card : cards) {
+            card.setIsLikedByCurrentUser(likedIds.contains(card.getId()));
+            card.setIsBookmarkedByCurrentUser(bookmarkedIds.contains(card.getId()));
+        }
+        return cards;
+    }
+    
+    /**
+     * Convert RecipeEntity to RecipeResponseDTO without any per-user state.
+     */
+    private RecipeResponseDTO toBaseResponse(RecipeEntity entity, List<IngredientEntity> ingredients,
+                                             List<RecipeStepEntity> steps) {
         RecipeResponseDTO dto = new RecipeResponseDTO();
         dto.setId(entity.getId());
         dto.setTitle(entity.getTitle());
@@ -71,45 +217,27 @@ public class RecipeMapper {
         }
         
         // Convert ingredients
-        if (entity.getIngredients() != null) {
-            dto.setIngredients(entity.getIngredients().stream()
+        if (ingredients != null) {
+            dto.setIngredients(ingredients.stream()
                 .map(this::ingredientToDTO)
                 .collect(Collectors.toList()));
         }
         
         // Convert steps
-        if (entity.getSteps() != null) {
-            dto.setSteps(entity.getSteps().stream()
+        if (steps != null) {
+            dto.setSteps(steps.stream()
                 .map(this::stepToDTO)
                 .collect(Collectors.toList()));
         }
         
-        // Set like info
+        // Set counters
         dto.setLikesCount(entity.getLikesCount() != null ? entity.getLikesCount() : 0);
-        if (currentUserId != null) {
-            dto.setIsLikedByCurrentUser(recipeLikeService.isLikedByUser(currentUserId, entity.getId()));
-        } else {
-            dto.setIsLikedByCurrentUser(false);
-        }
-        
-        // Set bookmark info
         dto.setBookmarksCount(entity.getBookmarksCount() != null ? entity.getBookmarksCount() : 0);
-        if (currentUserId != null) {
-            dto.setIsBookmarkedByCurrentUser(recipeBookmarkService.isBookmarkedByUser(currentUserId, entity.getId()));
-        } else {
-            dto.setIsBookmarkedByCurrentUser(false);
-        }
-        
-        // Set rating info
         dto.setAverageRating(entity.getAverageRating() != null ? entity.getAverageRating() : 0.0);
         dto.setRatingsCount(entity.getRatingsCount() != null ? entity.getRatingsCount() : 0);
-        if (currentUserId != null) {
-            recipeRatingService.getUserRating(currentUserId, entity.getId())
-                    .ifPresent(rating -> dto.setUserRating(rating.getRating()));
-        }
-        
-        // Set comments count
         dto.setCommentsCount(entity.getCommentsCount() != null ? entity.getCommentsCount() : 0);
+        dto.setViewsCount(entity.getViewsCount() != null ? entity.getViewsCount() : 0L);
+        dto.setUniqueViewersCount(entity.getUniqueViewersCount() != null ? entity.getUniqueViewersCount() : 0L);
         
         dto.setCreatedAt(entity.getCreatedAt());
         dto.setUpdatedAt(entity.getUpdatedAt());
@@ -118,13 +246,24 @@ public class RecipeMapper {
     }
     
     /**
-     * Convert IngredientDTO to IngredientEntity.
+     * Set the current user's like, bookmark and rating state on a response.
+     */
+    private void applyUserState(RecipeResponseDTO dto, boolean liked, boolean bookmarked, Integer userRating) {
+        dto.setIsLikedByCurrentUser(liked);
+        dto.setIsBookmarkedByCurrentUser(bookmarked);
+        dto.setUserRating(userRating);
+    }
+    
+    /**
+     * Convert IngredientDTO to IngredientEntity, tagged with the canonical ingredient ID
+     * of its name (new names are added to the catalog).
      */
     public IngredientEntity ingredientToEntity(IngredientDTO dto, Long recipeId) {
         IngredientEntity entity = new IngredientEntity();
         entity.setId(dto.getId());
         entity.setRecipeId(recipeId);
         entity.setName(dto.getName());
+        entity.setCanonicalId(ingredientCatalog.resolve(dto.getName()));
         entity.setQuantity(dto.getQuantity());
         entity.setUnit(dto.getUnit());
         return entity;
@@ -0,0 +1,19 @@
+package com.dao.cookbook.repository;
+
+import com.dao.cookbook.entity.CanonicalIngredientEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository interface for CanonicalIngredientEntity operations.
+ */
+@Repository
+public interface CanonicalIngredientRepository extends JpaRepository<CanonicalIngredientEntity, Integer> {
+
+    /**
+     * Find a canonical ingredient by its key.
+     */
+    Optional<CanonicalIngredientEntity> findByNormalizedName(String normalizedName);
+}
@@ -1,12 +1,46 @@
 package com.dao.cookbook.repository;
 
 import com.dao.cookbook.entity.IngredientEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository interface for IngredientEntity operations.
  */
 @Repository
 public interface IngredientRepository extends JpaRepository<IngredientEntity, Long> {
+    
+    /**
+     * Find the ingredients of several recipes, grouped by recipe and in insertion order.
+     * 
+     * @param recipeIds the IDs of the recipes
+     * @return list of ingredients
+     */
+    List<IngredientEntity> findByRecipeIdInOrderByRecipeIdAscIdAsc(Collection<Long> recipeIds);
+
+    /**
+     * Distinct names after the given one of ingredient rows without a canonical ID
+     * (written before the canonical catalog existed), in name order.
+     */
+    @Query("SELECT DISTINCT i.name FROM IngredientEntity i " +
+           "WHERE i.canonicalId IS NULL AND i.name > :after ORDER BY i.name")
+    List<String> findUntaggedNamesAfter(@Param("after") String after, Pageable pageable);
+
+    /**
+     * Tag every untagged ingredient row with the given name.
+     *
+     * @return number of rows tagged
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngredientEntity i SET i.canonicalId = :canonicalId WHERE i.name = :name AND i.canonicalId IS NULL")
+    int tagUntagged(@Param("name") String name, @Param("canonicalId") Integer canonicalId);
 }
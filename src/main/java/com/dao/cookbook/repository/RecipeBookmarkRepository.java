@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,4 +52,11 @@ public interface RecipeBookmarkRepository extends JpaRepository<RecipeBookmarkEn
      * Get all bookmarks by a user.
      */
     List<RecipeBookmarkEntity> findByUserId(Long userId);
+    
+    /**
+     * Get the subset of the given recipe IDs that a user has bookmarked.
+     */
+    @Query("SELECT rb.recipeId FROM RecipeBookmarkEntity rb WHERE rb.userId = :userId AND rb.recipeId IN :recipeIds")
+    List<Long> findRecipeIdsByUserIdAndRecipeIdIn(@Param("userId") Long userId,
+                                                  @Param("recipeIds") Collection<Long> recipeIds);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -73,4 +74,16 @@ public interface RecipeLikeRepository extends JpaRepository<RecipeLikeEntity, Lo
      */
     @Query("SELECT rl.recipeId FROM RecipeLikeEntity rl WHERE rl.userId = :userId")
     List<Long> findRecipeIdsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Get the subset of the given recipe IDs that a user has liked.
+     * Used to resolve like state for a whole page of recipes in one query.
+     * 
+     * @param userId the ID of the user
+     * @param recipeIds the IDs of the recipes to check
+     * @return list of liked recipe IDs
+     */
+    @Query("SELECT rl.recipeId FROM RecipeLikeEntity rl WHERE rl.userId = :userId AND rl.recipeId IN :recipeIds")
+    List<Long> findRecipeIdsByUserIdAndRecipeIdIn(@Param("userId") Long userId,
+                                                  @Param("recipeIds") Collection<Long> recipeIds);
 }
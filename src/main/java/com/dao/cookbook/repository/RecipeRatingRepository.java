@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,11 @@ public interface RecipeRatingRepository extends JpaRepository<RecipeRatingEntity
      */
     Optional<RecipeRatingEntity> findByUserIdAndRecipeId(Long userId, Long recipeId);
     
+    /**
+     * Find a user's ratings for a set of recipes.
+     */
+    List<RecipeRatingEntity> findByUserIdAndRecipeIdIn(Long userId, Collection<Long> recipeIds);
+    
     /**
      * Check if a user has rated a recipe.
      */
@@ -1,74 +1,275 @@
 package com.dao.cookbook.repository;
 
+import com.dao.cookbook.dto.response.RecipeCardDTO;
+import com.dao.cookbook.dto.response.RecipeVersionDTO;
 import com.dao.cookbook.entity.RecipeEntity;
+import com.dao.cookbook.search.RecipeDocument;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for RecipeEntity operations.
+ * <p>
+ * List queries return {@link RecipeCardDTO} projections straight from {@code recipes}
+ * joined to {@code users}, without loading any collection. They use keyset pagination in
+ * {@code (createdAt DESC, id DESC)} order: rows strictly after the given cursor position
+ * are returned, and the page size comes from the {@link Pageable} (page number is ignored).
+ * Pass {@link Pageable#unpaged()} to get every matching row.
+ * </p>
  */
 @Repository
 public interface RecipeRepository extends JpaRepository<RecipeEntity, Long> {
     
+    String CARD_SELECT =
+            "SELECT new com.dao.cookbook.dto.response.RecipeCardDTO(" +
+            "r.id, r.title, r.imageUrl, r.servings, r.cookingTime, r.userId, u.fullName, u.avatarUrl, " +
+            "r.likesCount, r.bookmarksCount, r.averageRating, r.ratingsCount, r.commentsCount, r.createdAt) " +
+            "FROM RecipeEntity r LEFT JOIN r.user u ";
+    
+    String AFTER_CURSOR = "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) ";
+    
+    String NEWEST_FIRST = "ORDER BY r.createdAt DESC, r.id DESC";
+    
+    /**
+     * Keyset on the ID alone, the order of the in-memory indexes; used by the queries that
+     * answer for an index until it is built, so both use the same cursors.
+     */
+    String BEFORE_ID = "r.id < :id ";
+    
+    String NEWEST_ID_FIRST = "ORDER BY r.id DESC";
+    
+    String DOCUMENT_SELECT =
+            "SELECT new com.dao.cookbook.search.RecipeDocument(" +
+            "r.id, r.title, r.createdAt, r.cookingTime, r.servings, r.averageRating, r.likesCount) " +
+            "FROM RecipeEntity r ";
+    
+    /**
+     * Load a recipe for the detail view together with its author and ingredients.
+     * Steps and their images are loaded by {@link RecipeStepRepository#findWithImagesByRecipeId},
+     * since fetching two bags in one query would raise MultipleBagFetchException.
+     * 
+     * @param id the ID of the recipe
+     * @return Optional containing the recipe if found
+     */
+    @EntityGraph(attributePaths = {"user", "ingredients"})
+    @Query("SELECT r FROM RecipeEntity r WHERE r.id = :id")
+    Optional<RecipeEntity> findDetailById(@Param("id") Long id);
+    
+    /**
+     * Read the version columns of a recipe (primary key lookup, no collections).
+     * 
+     * @param id the ID of the recipe
+     * @return Optional containing the version if the recipe exists
+     */
+    @Query("SELECT new com.dao.cookbook.dto.response.RecipeVersionDTO(" +
+           "r.id, r.updatedAt, r.likesCount, r.bookmarksCount, r.averageRating, r.ratingsCount, r.commentsCount) " +
+           "FROM RecipeEntity r WHERE r.id = :id")
+    Optional<RecipeVersionDTO> findVersionById(@Param("id") Long id);
+    
+    /**
+     * Bump updated_at of a recipe whose ingredients or steps changed without any change to
+     * the recipe row itself (the column is only refreshed by MySQL when the row changes).
+     * Pending changes are flushed first and the persistence context is cleared afterwards.
+     * 
+     * @param id the ID of the recipe
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE recipes SET updated_at = CURRENT_TIMESTAMP WHERE id = :id", nativeQuery = true)
+    void touchUpdatedAt(@Param("id") Long id);
+    
+    /**
+     * Stream every recipe with its author, in ID order, for the catalog export.
+     * <p>
+     * Rows are fetched from the driver in batches of the JDBC fetch size instead of being
+     * materialized up front. Must be consumed inside a transaction and closed afterwards;
+     * ingredients and steps are not initialized.
+     * </p>
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT r FROM RecipeEntity r LEFT JOIN FETCH r.user ORDER BY r.id ASC")
+    Stream<RecipeEntity> streamAllForExport();
+    
+    /**
+     * Next batch of search index documents in ID order (ingredient names not filled in).
+     * 
+     * @param afterId only recipes with a greater ID are returned
+     * @param pageable batch size (page number is ignored)
+     * @return list of documents
+     */
+    @Query(DOCUMENT_SELECT + "WHERE r.id > :afterId ORDER BY r.id ASC")
+    List<RecipeDocument> findDocumentsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Search index documents of several recipes, in no particular order (ingredient names
+     * not filled in).
+     * 
+     * @param ids the IDs of the recipes
+     * @return list of documents
+     */
+    @Query(DOCUMENT_SELECT + "WHERE r.id IN :ids")
+    List<RecipeDocument> findDocumentsByIdIn(@Param("ids") List<Long> ids);
+    
     /**
-     * Find all recipes by user ID.
+     * IDs of recipes updated at or after the given time, to catch the search indexes up
+     * after restoring them from a snapshot.
      * 
-     * @param userId the ID of the user
-     * @return list of recipes
+     * @param since the snapshot watermark
+     * @return list of recipe IDs
      */
-    List<RecipeEntity> findByUserId(Long userId);
+    @Query("SELECT r.id FROM RecipeEntity r WHERE r.updatedAt >= :since")
+    List<Long> findIdsUpdatedSince(@Param("since") Timestamp since);
     
     /**
-     * Find recipes by title containing keyword (case-insensitive).
+     * Next batch of recipe IDs in ID order.
      * 
-     * @param title the keyword to search
-     * @return list of recipes
+     * @param afterId only recipes with a greater ID are returned
+     * @param pageable batch size (page number is ignored)
+     * @return list of recipe IDs
      */
-    List<RecipeEntity> findByTitleContainingIgnoreCase(String title);
+    @Query("SELECT r.id FROM RecipeEntity r WHERE r.id > :afterId ORDER BY r.id ASC")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
     
     /**
-     * Find recipes from users that the current user is following.
-     * Ordered by creation date descending (newest first).
+     * Find recipe cards by ID (in no particular order).
      * 
-     * @param userIds list of user IDs that the current user is following
-     * @return list of recipes from followed users
+     * @param ids the IDs of the recipes
+     * @return list of recipe cards
      */
-    @Query("SELECT r FROM RecipeEntity r WHERE r.userId IN :userIds ORDER BY r.createdAt DESC")
-    List<RecipeEntity> findByUserIdInOrderByCreatedAtDesc(@Param("userIds") List<Long> userIds);
+    @Query(CARD_SELECT + "WHERE r.id IN :ids")
+    List<RecipeCardDTO> findCardsByIdIn(@Param("ids") List<Long> ids);
     
     /**
-     * Find recipes that contain specific ingredients.
+     * Keyset page of all recipe cards, newest first.
      * 
-     * @param ingredients list of ingredient names to search for
-     * @param count number of ingredients to match
-     * @return list of recipes containing the specified ingredients
-     */
-    @Query("SELECT DISTINCT r FROM RecipeEntity r " +
-           "JOIN r.ingredients i " +
-           "WHERE LOWER(i.name) IN :ingredients " +
-           "GROUP BY r.id " +
-           "HAVING COUNT(DISTINCT i.name) >= :count")
-    List<RecipeEntity> findByIngredientsContaining(
-        @Param("ingredients") List<String> ingredients,
-        @Param("count") long count
+     * @param createdAt creation time of the last recipe of the previous page
+     * @param id ID of the last recipe of the previous page
+     * @param pageable page size limit
+     * @return list of recipe cards
+     */
+    @Query(CARD_SELECT + "WHERE " + AFTER_CURSOR + NEWEST_FIRST)
+    List<RecipeCardDTO> findCardPageAfter(
+        @Param("createdAt") Timestamp createdAt,
+        @Param("id") Long id,
+        Pageable pageable
     );
     
     /**
-     * Find recipes that do not contain specific ingredients.
+     * Keyset page of all recipe cards, newest (highest ID) first.
      * 
-     * @param ingredients list of ingredient names to exclude
-     * @return list of recipes not containing the specified ingredients
+     * @param id ID of the last recipe of the previous page
+     * @param pageable page size limit
+     * @return list of recipe cards
+     */
+    @Query(CARD_SELECT + "WHERE " + BEFORE_ID + NEWEST_ID_FIRST)
+    List<RecipeCardDTO> findCardPageBefore(
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Keyset page of recipe cards by user ID, newest first.
+     */
+    @Query(CARD_SELECT + "WHERE r.userId = :userId AND " + AFTER_CURSOR + NEWEST_FIRST)
+    List<RecipeCardDTO> findCardPageByUserIdAfter(
+        @Param("userId") Long userId,
+        @Param("createdAt") Timestamp createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Keyset page of recipe cards from a set of users (e.g. the ones the current user follows),
+     * newest first.
+     */
+    @Query(CARD_SELECT + "WHERE r.userId IN :userIds AND " + AFTER_CURSOR + NEWEST_FIRST)
+    List<RecipeCardDTO> findCardPageByUserIdInAfter(
+        @Param("userIds") List<Long> userIds,
+        @Param("createdAt") Timestamp createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Keyset page of recipe cards whose title contains the keyword (case-insensitive), newest first.
+     */
+    @Query(CARD_SELECT +
+           "WHERE LOWER(r.title) LIKE LOWER(CONCAT('%', :title, '%')) AND " + AFTER_CURSOR + NEWEST_FIRST)
+    List<RecipeCardDTO> findCardPageByTitleAfter(
+        @Param("title") String title,
+        @Param("createdAt") Timestamp createdAt,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Keyset page of recipe cards containing all of the given canonical ingredient IDs,
+     * newest (highest ID) first.
+     */
+    @Query(CARD_SELECT +
+           "WHERE r.id IN (" +
+           "  SELECT i.recipeId FROM IngredientEntity i " +
+           "  WHERE i.canonicalId IN :ingredients " +
+           "  GROUP BY i.recipeId " +
+           "  HAVING COUNT(DISTINCT i.canonicalId) >= :count" +
+           ") AND " + BEFORE_ID + NEWEST_ID_FIRST)
+    List<RecipeCardDTO> findCardPageByIngredientsContainingBefore(
+        @Param("ingredients") List<Integer> ingredients,
+        @Param("count") long count,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Keyset page of recipe cards containing none of the given canonical ingredient IDs,
+     * newest (highest ID) first.
      */
-    @Query("SELECT r FROM RecipeEntity r " +
+    @Query(CARD_SELECT +
            "WHERE r.id NOT IN (" +
-           "  SELECT DISTINCT r2.id FROM RecipeEntity r2 " +
-           "  JOIN r2.ingredients i " +
-           "  WHERE LOWER(i.name) IN :ingredients" +
-           ")")
-    List<RecipeEntity> findByIngredientsNotContaining(
-        @Param("ingredients") List<String> ingredients
+           "  SELECT i.recipeId FROM IngredientEntity i " +
+           "  WHERE i.canonicalId IN :excluded" +
+           ") AND " + BEFORE_ID + NEWEST_ID_FIRST)
+    List<RecipeCardDTO> findCardPageByIngredientsNotContainingBefore(
+        @Param("excluded") List<Integer> excluded,
+        @Param("id") Long id,
+        Pageable pageable
+    );
+    
+    /**
+     * Keyset page of recipe cards containing all included and none of the excluded canonical
+     * ingredient IDs, newest (highest ID) first.
+     */
+    @Query(CARD_SELECT +
+           "WHERE r.id IN (" +
+           "  SELECT i.recipeId FROM IngredientEntity i " +
+           "  WHERE i.canonicalId IN :ingredients " +
+           "  GROUP BY i.recipeId " +
+           "  HAVING COUNT(DISTINCT i.canonicalId) >= :count" +
+           ") " +
+           "AND r.id NOT IN (" +
+           "  SELECT i2.recipeId FROM IngredientEntity i2 " +
+           "  WHERE i2.canonicalId IN :excluded" +
+           ") AND " + BEFORE_ID + NEWEST_ID_FIRST)
+    List<RecipeCardDTO> findCardPageByIngredientsFilterBefore(
+        @Param("ingredients") List<Integer> ingredients,
+        @Param("count") long count,
+        @Param("excluded") List<Integer> excluded,
+        @Param("id") Long id,
+        Pageable pageable
     );
 }
@@ -2,11 +2,42 @@ package com.dao.cookbook.repository;
 
 import com.dao.cookbook.entity.RecipeStepEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repository interface for RecipeStepEntity operations.
  */
 @Repository
 public interface RecipeStepRepository extends JpaRepository<RecipeStepEntity, Long> {
+    
+    /**
+     * Find all steps of a recipe with their images in a single query.
+     * Steps are ordered by step number; images follow the order declared on the entity.
+     * 
+     * @param recipeId the ID of the recipe
+     * @return list of steps with images initialized
+     */
+    @Query("SELECT DISTINCT s FROM RecipeStepEntity s " +
+           "LEFT JOIN FETCH s.images " +
+           "WHERE s.recipeId = :recipeId " +
+           "ORDER BY s.stepNumber ASC, s.id ASC")
+    List<RecipeStepEntity> findWithImagesByRecipeId(@Param("recipeId") Long recipeId);
+    
+    /**
+     * Find the steps of several recipes with their images in a single query,
+     * grouped by recipe and ordered by step number.
+     * 
+     * @param recipeIds the IDs of the recipes
+     * @return list of steps with images initialized
+     */
+    @Query("SELECT DISTINCT s FROM RecipeStepEntity s " +
+           "LEFT JOIN FETCH s.images " +
+           "WHERE s.recipeId IN :recipeIds " +
+           "ORDER BY s.recipeId ASC, s.stepNumber ASC, s.id ASC")
+    List<RecipeStepEntity> findWithImagesByRecipeIdIn(@Param("recipeIds") Collection<Long> recipeIds);
 }
@@ -8,38 +8,37 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface RecipeViewHistoryRepository extends JpaRepository<RecipeViewHistoryEntity, Long> {
     
     /**
-     * Find the most recent view history entry for a specific user and recipe.
-     * Used to update existing entry instead of creating duplicate.
-     */
-    Optional<RecipeViewHistoryEntity> findFirstByUserIdAndRecipeIdOrderByViewedAtDesc(Long userId, Long recipeId);
-    
-    /**
-     * Get recently viewed recipes by user, ordered by most recent first.
-     * Returns distinct recipes (most recent view of each recipe).
-     * 
-     * @param userId the ID of the user
-     * @return list of view history entries
+     * Get recently viewed recipes with limit using Pageable.
+     * Returns distinct recipes (most recent view of each recipe), most recent first.
      */
     @Query("SELECT vh FROM RecipeViewHistoryEntity vh WHERE vh.userId = :userId " +
            "AND vh.id IN (SELECT MAX(vh2.id) FROM RecipeViewHistoryEntity vh2 " +
            "WHERE vh2.userId = :userId GROUP BY vh2.recipeId) " +
            "ORDER BY vh.viewedAt DESC")
-    List<RecipeViewHistoryEntity> findRecentlyViewedByUserId(@Param("userId") Long userId);
+    List<RecipeViewHistoryEntity> findRecentlyViewedByUserIdWithLimit(@Param("userId") Long userId, org.springframework.data.domain.Pageable pageable);
     
     /**
-     * Get recently viewed recipes with limit using Pageable.
+     * Keyset page of recently viewed recipes (most recent view of each recipe), ordered
+     * by (viewedAt DESC, id DESC) and starting after the given view.
+     * 
+     * @param viewedAt viewedAt of the last view of the previous page
+     * @param id ID of the last view of the previous page
+     * @param pageable page size (page number is ignored)
      */
     @Query("SELECT vh FROM RecipeViewHistoryEntity vh WHERE vh.userId = :userId " +
+           "AND (vh.viewedAt < :viewedAt OR (vh.viewedAt = :viewedAt AND vh.id < :id)) " +
            "AND vh.id IN (SELECT MAX(vh2.id) FROM RecipeViewHistoryEntity vh2 " +
            "WHERE vh2.userId = :userId GROUP BY vh2.recipeId) " +
-           "ORDER BY vh.viewedAt DESC")
-    List<RecipeViewHistoryEntity> findRecentlyViewedByUserIdWithLimit(@Param("userId") Long userId, org.springframework.data.domain.Pageable pageable);
+           "ORDER BY vh.viewedAt DESC, vh.id DESC")
+    List<RecipeViewHistoryEntity> findRecentlyViewedPageAfter(@Param("userId") Long userId,
+                                                              @Param("viewedAt") java.sql.Timestamp viewedAt,
+                                                              @Param("id") Long id,
+                                                              org.springframework.data.domain.Pageable pageable);
     
     /**
      * Count total views for a recipe by a specific user.
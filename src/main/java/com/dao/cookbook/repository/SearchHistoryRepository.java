@@ -1,6 +1,7 @@
 package com.dao.cookbook.repository;
 
 import com.dao.cookbook.entity.SearchHistoryEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -30,6 +31,15 @@ public interface SearchHistoryRepository extends JpaRepository<SearchHistoryEnti
            "ORDER BY MAX(sh.searchedAt) DESC")
     List<String> findDistinctSearchQueriesByUserId(@Param("userId") Long userId);
     
+    /**
+     * Same as {@link #findDistinctSearchQueriesByUserId(Long)}, limited to one page.
+     */
+    @Query("SELECT sh.searchQuery FROM SearchHistoryEntity sh " +
+           "WHERE sh.userId = :userId " +
+           "GROUP BY sh.searchQuery " +
+           "ORDER BY MAX(sh.searchedAt) DESC")
+    List<String> findDistinctSearchQueriesByUserId(@Param("userId") Long userId, Pageable pageable);
+    
     /**
      * Check if a specific search query exists for a user.
      */
@@ -46,28 +56,79 @@ public interface SearchHistoryRepository extends JpaRepository<SearchHistoryEnti
     void deleteByUserIdAndSearchQuery(Long userId, String searchQuery);
     
     /**
-     * Count total searches by user.
+     * Count searches by user still in search_history (rolled-up searches are counted in
+     * search_history_user_totals).
      */
     long countByUserId(Long userId);
     
     /**
      * Get trending search keywords across all users.
-     * Returns the most frequently searched queries with their counts.
+     * Returns the most frequently searched queries with their counts, including the
+     * searches rolled up into search_history_daily.
      */
-    @Query("SELECT sh.searchQuery, COUNT(sh.searchQuery) as searchCount " +
-           "FROM SearchHistoryEntity sh " +
-           "GROUP BY sh.searchQuery " +
-           "ORDER BY searchCount DESC")
+    @Query(value = "SELECT search_query, SUM(search_count) AS total FROM (" +
+                   "SELECT search_query, COUNT(*) AS search_count FROM search_history GROUP BY search_query " +
+                   "UNION ALL " +
+                   "SELECT search_query, SUM(search_count) FROM search_history_daily GROUP BY search_query" +
+                   ") searches " +
+                   "GROUP BY search_query " +
+                   "ORDER BY total DESC", nativeQuery = true)
     List<Object[]> findTrendingSearchKeywords();
     
     /**
-     * Get trending search keywords within a time period (last N days).
-     * Using JPQL with CURRENT_TIMESTAMP to avoid MySQL syntax checker warnings.
+     * Get trending search keywords within a time period (last N days), including the
+     * searches rolled up into search_history_daily. A rolled-up day is counted whole
+     * when the cutoff falls within it.
      */
-    @Query("SELECT sh.searchQuery, COUNT(sh.searchQuery) as searchCount " +
-           "FROM SearchHistoryEntity sh " +
-           "WHERE sh.searchedAt >= :cutoffDate " +
-           "GROUP BY sh.searchQuery " +
-           "ORDER BY searchCount DESC")
+    @Query(value = "SELECT search_query, SUM(search_count) AS total FROM (" +
+                   "SELECT search_query, COUNT(*) AS search_count FROM search_history " +
+                   "WHERE searched_at >= :cutoffDate GROUP BY search_query " +
+                   "UNION ALL " +
+                   "SELECT search_query, SUM(search_count) FROM search_history_daily " +
+                   "WHERE day >= DATE(:cutoffDate) GROUP BY search_query" +
+                   ") searches " +
+                   "GROUP BY search_query " +
+                   "ORDER BY total DESC", nativeQuery = true)
     List<Object[]> findTrendingSearchKeywordsInDays(@Param("cutoffDate") java.time.LocalDateTime cutoffDate);
+    
+    /**
+     * Number of searches per query with from <= searched_at < to, in no particular order
+     * (a query may appear more than once). Rolled-up days are counted whole.
+     * Used to build and catch up the in-memory trending keyword counts.
+     */
+    @Query(value = "SELECT search_query, COUNT(*) FROM search_history " +
+                   "WHERE searched_at >= :from AND searched_at < :to " +
+                   "GROUP BY search_query " +
+                   "UNION ALL " +
+                   "SELECT search_query, SUM(search_count) FROM search_history_daily " +
+                   "WHERE day >= DATE(:from) AND day < DATE(:to) " +
+                   "GROUP BY search_query", nativeQuery = true)
+    List<Object[]> findSearchCountsBetween(@Param("from") java.sql.Timestamp from, @Param("to") java.sql.Timestamp to);
+    
+    /**
+     * Number of searches per query and hour (hours since the epoch) with
+     * from <= searched_at < to. Returns [searchQuery, hour, count] arrays.
+     * Only raw rows are read: the retention period always covers the hourly window.
+     */
+    @Query(value = "SELECT search_query, FLOOR(UNIX_TIMESTAMP(searched_at) / 3600) AS hour_id, COUNT(*) " +
+                   "FROM search_history " +
+                   "WHERE searched_at >= :from AND searched_at < :to " +
+                   "GROUP BY search_query, hour_id", nativeQuery = true)
+    List<Object[]> findSearchCountsByHourBetween(@Param("from") java.sql.Timestamp from, @Param("to") java.sql.Timestamp to);
+    
+    /**
+     * Number of searches per query and day (days since the epoch, shifted by
+     * offsetSeconds so that days start at local midnight) with from <= searched_at < to,
+     * including rolled-up days. Returns [searchQuery, day, count] arrays.
+     */
+    @Query(value = "SELECT search_query, FLOOR((UNIX_TIMESTAMP(searched_at) + :offsetSeconds) / 86400) AS day_id, COUNT(*) " +
+                   "FROM search_history " +
+                   "WHERE searched_at >= :from AND searched_at < :to " +
+                   "GROUP BY search_query, day_id " +
+                   "UNION ALL " +
+                   "SELECT search_query, DATEDIFF(day, '1970-01-01'), search_count " +
+                   "FROM search_history_daily " +
+                   "WHERE day >= DATE(:from) AND day < DATE(:to)", nativeQuery = true)
+    List<Object[]> findSearchCountsByDayBetween(@Param("from") java.sql.Timestamp from, @Param("to") java.sql.Timestamp to,
+                                                @Param("offsetSeconds") long offsetSeconds);
 }
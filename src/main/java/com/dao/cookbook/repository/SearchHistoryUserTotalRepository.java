@@ -0,0 +1,12 @@
+package com.dao.cookbook.repository;
+
+import com.dao.cookbook.entity.SearchHistoryUserTotalEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for SearchHistoryUserTotal entity.
+ */
+@Repository
+public interface SearchHistoryUserTotalRepository extends JpaRepository<SearchHistoryUserTotalEntity, Long> {
+}
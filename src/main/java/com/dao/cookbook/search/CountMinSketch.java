@@ -0,0 +1,134 @@
+package com.dao.cookbook.search;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Count-min sketch of string frequencies.
+ * <p>
+ * {@code depth} rows of {@code width} counters; a key increments one counter per row and
+ * its estimate is the smallest of those counters. Estimates never undercount and
+ * overcount by at most {@code e / width} of the total with probability
+ * {@code 1 - e^-depth}. Memory does not grow with the number of distinct keys.
+ * </p>
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public final class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long total;
+
+    /**
+     * @param width counters per row, a power of two
+     * @param depth number of rows
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || Integer.bitCount(width) != 1 || depth <= 0) {
+            throw new IllegalArgumentException("width must be a power of two and depth positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    /**
+     * Rebuild a sketch from {@link #getCounters()} and {@link #getTotal()}.
+     */
+    public CountMinSketch(int width, int depth, long[] counters, long total) {
+        this(width, depth);
+        if (counters.length != this.counters.length) {
+            throw new IllegalArgumentException("expected " + this.counters.length + " counters");
+        }
+        System.arraycopy(counters, 0, this.counters, 0, counters.length);
+        this.total = total;
+    }
+
+    /**
+     * Count {@code count} more occurrences of a key.
+     *
+     * @return the key's estimate after the update
+     */
+    public long add(String key, long count) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + ((h1 + row * h2) & (width - 1));
+            counters[index] += count;
+            estimate = Math.min(estimate, counters[index]);
+        }
+        total += count;
+        return estimate;
+    }
+
+    /**
+     * Estimated number of occurrences of a key (0 for keys never added, up to the error bound).
+     */
+    public long estimate(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + ((h1 + row * h2) & (width - 1))]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Add every counter of another sketch of the same dimensions to this one.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("sketch dimensions differ");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Sum of all counts added.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Copy of the counters, row by row.
+     */
+    public long[] getCounters() {
+        return counters.clone();
+    }
+
+    /**
+     * 64-bit FNV-1a of the key's UTF-8 bytes, finished with a murmur3 mix so that both
+     * halves are usable as independent hashes.
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,275 @@
+package com.dao.cookbook.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable prefix completion structure over weighted phrases.
+ * <p>
+ * Every word start of every phrase key is an entry ("pho bo ha noi" can be found by
+ * "pho", "bo", "ha" or "noi"). Entries are sorted by the key text from that word on, so
+ * the entries matching a prefix form one contiguous range, found by binary search. A
+ * segment tree of the highest weight per range then yields the top-k phrases of the
+ * range in O(k log n), independent of how many phrases match.
+ * </p>
+ */
+final class PrefixSuggester {
+
+    static final PrefixSuggester EMPTY = new PrefixSuggester(new ArrayList<>());
+
+    /**
+     * Only the first words of a phrase are entry points, to bound the index size.
+     */
+    private static final int MAX_WORD_STARTS = 8;
+
+    /**
+     * One phrase to complete to.
+     */
+    static final class Candidate {
+
+        private final String text;
+        private final String key;
+        private final String type;
+        private final long weight;
+
+        /**
+         * @param text display text
+         * @param key folded phrase the prefix is matched against (see {@link TextNormalizer#foldPhrase})
+         * @param type kind of phrase, returned with the text
+         * @param weight popularity; higher weights are suggested first
+         */
+        Candidate(String text, String key, String type, long weight) {
+            this.text = text;
+            this.key = key;
+            this.type = type;
+            this.weight = weight;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        String getType() {
+            return type;
+        }
+    }
+
+    private final List<Candidate> candidates;
+    private final int[] entryCandidates;
+    private final int[] entryOffsets;
+    private final int[] tree;
+    private final int leaves;
+
+    PrefixSuggester(List<Candidate> candidates) {
+        this.candidates = candidates;
+
+        // One entry (candidate, offset) per word start, packed into a long for sorting
+        long[] entries = new long[countEntries(candidates)];
+        int count = 0;
+        for (int c = 0; c < candidates.size(); c++) {
+            String key = candidates.get(c).key;
+            int starts = 0;
+            for (int offset = 0; offset < key.length() && starts < MAX_WORD_STARTS; offset++) {
+                if (offset == 0 || key.charAt(offset - 1) == ' ') {
+                    entries[count++] = ((long) c << 32) | offset;
+                    starts++;
+                }
+            }
+        }
+        sort(entries, new long[entries.length], 0, entries.length);
+
+        this.entryCandidates = new int[entries.length];
+        this.entryOffsets = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            entryCandidates[i] = (int) (entries[i] >>> 32);
+            entryOffsets[i] = (int) entries[i];
+        }
+
+        // Segment tree holding, for each node, the entry with the highest weight below it
+        int size = 1;
+        while (size < Math.max(1, entries.length)) {
+            size <<= 1;
+        }
+        this.leaves = size;
+        this.tree = new int[size * 2];
+        for (int i = 0; i < size; i++) {
+            tree[size + i] = i < entries.length ? i : -1;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = heavier(tree[node * 2], tree[node * 2 + 1]);
+        }
+    }
+
+    /**
+     * Number of distinct phrases.
+     */
+    int size() {
+        return candidates.size();
+    }
+
+    /**
+     * Number of word-start entries.
+     */
+    int entries() {
+        return entryCandidates.length;
+    }
+
+    /**
+     * Highest-weight phrases having a word that starts with the given folded prefix.
+     *
+     * @param prefix folded prefix (see {@link TextNormalizer#foldPhrase})
+     * @param limit maximum number of phrases
+     * @return matching phrases, highest weight first
+     */
+    List<Candidate> complete(String prefix, int limit) {
+        List<Candidate> result = new ArrayList<>();
+        if (prefix.isEmpty() || limit <= 0 || entryCandidates.length == 0) {
+            return result;
+        }
+        int from = lowerBound(prefix, false);
+        int to = lowerBound(prefix, true);
+        if (from >= to) {
+            return result;
+        }
+
+        // Best-first over sub-ranges: take the heaviest entry, then split its range around it
+        Set<Integer> seen = new LinkedHashSet<>();
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) ->
+                Long.compare(weight(b[2]), weight(a[2])));
+        ranges.add(new int[] { from, to, maxIn(from, to) });
+        while (!ranges.isEmpty() && seen.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            seen.add(entryCandidates[best]);
+            if (range[0] < best) {
+                ranges.add(new int[] { range[0], best, maxIn(range[0], best) });
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[] { best + 1, range[1], maxIn(best + 1, range[1]) });
+            }
+        }
+        for (int candidate : seen) {
+            result.add(candidates.get(candidate));
+        }
+        return result;
+    }
+
+    private static int countEntries(List<Candidate> candidates) {
+        int count = 0;
+        for (Candidate candidate : candidates) {
+            int starts = 0;
+            for (int offset = 0; offset < candidate.key.length() && starts < MAX_WORD_STARTS; offset++) {
+                if (offset == 0 || candidate.key.charAt(offset - 1) == ' ') {
+                    starts++;
+                }
+            }
+            count += starts;
+        }
+        return count;
+    }
+
+    /**
+     * First entry whose text is not before the prefix ({@code pastPrefix == false}), or first
+     * entry after all entries starting with the prefix ({@code pastPrefix == true}).
+     */
+    private int lowerBound(String prefix, boolean pastPrefix) {
+        int low = 0;
+        int high = entryCandidates.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int cmp = comparePrefix(middle, prefix);
+            if (cmp < 0 || (pastPrefix && cmp == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compare an entry's text with a prefix, looking at no more than the prefix length.
+     */
+    private int comparePrefix(int entry, String prefix) {
+        String key = candidates.get(entryCandidates[entry]).key;
+        int offset = entryOffsets[entry];
+        int length = Math.min(key.length() - offset, prefix.length());
+        for (int i = 0; i < length; i++) {
+            int diff = key.charAt(offset + i) - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length == prefix.length() ? 0 : -1;
+    }
+
+    private int maxIn(int from, int to) {
+        int best = -1;
+        for (int low = from + leaves, high = to + leaves; low < high; low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                best = heavier(best, tree[low++]);
+            }
+            if ((high & 1) == 1) {
+                best = heavier(best, tree[--high]);
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return weight(b) > weight(a) ? b : a;
+    }
+
+    private long weight(int entry) {
+        return candidates.get(entryCandidates[entry]).weight;
+    }
+
+    /**
+     * Merge sort of packed (candidate, offset) entries by the text from the offset on.
+     */
+    private void sort(long[] entries, long[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(entries, buffer, from, middle);
+        sort(entries, buffer, middle, to);
+        if (compareEntries(entries[middle - 1], entries[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(entries, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compareEntries(buffer[left], buffer[right]) <= 0)) {
+                entries[i] = buffer[left++];
+            } else {
+                entries[i] = buffer[right++];
+            }
+        }
+    }
+
+    private int compareEntries(long a, long b) {
+        String keyA = candidates.get((int) (a >>> 32)).key;
+        String keyB = candidates.get((int) (b >>> 32)).key;
+        int offsetA = (int) a;
+        int offsetB = (int) b;
+        int length = Math.min(keyA.length() - offsetA, keyB.length() - offsetB);
+        for (int i = 0; i < length; i++) {
+            int diff = keyA.charAt(offsetA + i) - keyB.charAt(offsetB + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (keyA.length() - offsetA) - (keyB.length() - offsetB);
+    }
+}
@@ -0,0 +1,50 @@
+package com.dao.cookbook.search;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of the recipe columns the in-memory indexes are built from.
+ * Loaded by {@link RecipeIndexCoordinator}; ingredient names and canonical ingredient IDs
+ * are filled in separately.
+ */
+@Data
+@NoArgsConstructor
+public class RecipeDocument {
+
+    private Long id;
+
+    private String title;
+
+    private List<String> ingredientNames = new ArrayList<>();
+
+    private List<Integer> ingredientIds = new ArrayList<>();
+
+    private Timestamp createdAt;
+
+    private Integer cookingTime;
+
+    private Integer servings;
+
+    private Double averageRating;
+
+    private Integer likesCount;
+
+    /**
+     * Constructor used by JPQL constructor expressions in RecipeRepository.
+     */
+    public RecipeDocument(Long id, String title, Timestamp createdAt, Integer cookingTime,
+                          Integer servings, Double averageRating, Integer likesCount) {
+        this.id = id;
+        this.title = title;
+        this.createdAt = createdAt;
+        this.cookingTime = cookingTime;
+        this.servings = servings;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.likesCount = likesCount != null ? likesCount : 0;
+    }
+}
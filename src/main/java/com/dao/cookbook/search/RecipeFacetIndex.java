@@ -0,0 +1,398 @@
+package com.dao.cookbook.search;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * In-memory facet index over cooking time, servings and average rating.
+ * <p>
+ * Each facet value range ("bucket") is a compressed bitmap of recipe IDs, so filtering
+ * is a union of the selected buckets per facet and an intersection across facets, and a
+ * facet count is the cardinality of an intersection. Counts follow the usual multi-select
+ * rule: the counts of a facet apply every selection except the facet's own, so the other
+ * values of that facet stay selectable.
+ * </p>
+ * <p>
+ * Like {@link RecipeIngredientIndex}, results are newest first by recipe ID and IDs must
+ * fit in an {@code int}.
+ * </p>
+ */
+@Component
+public class RecipeFacetIndex implements RecipeIndexer {
+
+    public static final String COOKING_TIME = "cookingTime";
+    public static final String SERVINGS = "servings";
+    public static final String RATING = "rating";
+
+    /**
+     * Facets in response order. Buckets are {@code [from, to)}; a null bound is open.
+     */
+    private static final List<Facet> FACETS = List.of(
+            new Facet(COOKING_TIME, RecipeDocument::getCookingTime, List.of(
+                    new Bucket("0-15", null, 15.0),
+                    new Bucket("15-30", 15.0, 30.0),
+                    new Bucket("30-60", 30.0, 60.0),
+                    new Bucket("60-120", 60.0, 120.0),
+                    new Bucket("120+", 120.0, null))),
+            new Facet(SERVINGS, RecipeDocument::getServings, List.of(
+                    new Bucket("1-2", null, 3.0),
+                    new Bucket("3-4", 3.0, 5.0),
+                    new Bucket("5-6", 5.0, 7.0),
+                    new Bucket("7+", 7.0, null))),
+            new Facet(RATING, RecipeDocument::getAverageRating, List.of(
+                    // Unrated recipes have an average of 0
+                    new Bucket("unrated", null, 0.5),
+                    new Bucket("1-3", 0.5, 3.0),
+                    new Bucket("3-4", 3.0, 4.0),
+                    new Bucket("4-4.5", 4.0, 4.5),
+                    new Bucket("4.5+", 4.5, null))));
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    private Index live = new Index();
+    private Index building;
+    private long rebuildStartedAt;
+    private volatile long lastRebuildMillis = -1;
+    private volatile boolean ready;
+
+    /**
+     * Filter by facet values and count every facet value.
+     *
+     * @param candidates recipes to facet (e.g. the matches of a text or ingredient filter),
+     *                   or null for every recipe
+     * @param selected selected bucket labels by facet name; values of one facet are OR-ed,
+     *                 facets are AND-ed (facets that are absent or empty do not filter)
+     * @param beforeId only recipes with a smaller ID are returned (keyset position)
+     * @param limit maximum number of IDs to return
+     * @return the page of matching IDs (newest first), their total and the facet counts
+     * @throws IllegalArgumentException for an unknown facet or bucket label
+     */
+    public FacetResult search(RoaringBitmap candidates, Map<String, ? extends Collection<String>> selected,
+                              long beforeId, int limit) {
+        long start = System.nanoTime();
+        if (selected != null) {
+            for (String name : selected.keySet()) {
+                if (FACETS.stream().noneMatch(facet -> facet.name.equals(name))) {
+                    throw new IllegalArgumentException("Bộ lọc không hợp lệ: " + name);
+                }
+            }
+        }
+        RoaringBitmap matches;
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            // Candidates may include recipes deleted since another index returned them
+            RoaringBitmap base = candidates != null ? RoaringBitmap.and(candidates, live.allRecipes) : live.allRecipes;
+
+            // Union of the selected buckets of each facet that has a selection
+            Map<String, RoaringBitmap> selections = new LinkedHashMap<>();
+            for (Facet facet : FACETS) {
+                Collection<String> values = selected != null ? selected.get(facet.name) : null;
+                if (values != null && !values.isEmpty()) {
+                    List<RoaringBitmap> buckets = new ArrayList<>(values.size());
+                    for (String value : values) {
+                        buckets.add(live.bucket(facet, value));
+                    }
+                    selections.put(facet.name, FastAggregation.or(buckets.iterator()));
+                }
+            }
+
+            for (Facet facet : FACETS) {
+                // Every selection but this facet's own
+                List<RoaringBitmap> others = new ArrayList<>();
+                others.add(base);
+                selections.forEach((name, union) -> {
+                    if (!name.equals(facet.name)) {
+                        others.add(union);
+                    }
+                });
+                RoaringBitmap scope = others.size() == 1 ? base : FastAggregation.and(others.iterator());
+                Map<String, Long> facetCounts = new LinkedHashMap<>();
+                for (int b = 0; b < facet.buckets.size(); b++) {
+                    facetCounts.put(facet.buckets.get(b).label,
+                            (long) RoaringBitmap.andCardinality(scope, live.buckets.get(facet.name)[b]));
+                }
+                counts.put(facet.name, facetCounts);
+            }
+
+            List<RoaringBitmap> all = new ArrayList<>();
+            all.add(base);
+            all.addAll(selections.values());
+            matches = all.size() == 1 ? base.clone() : FastAggregation.and(all.iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long total = matches.getLongCardinality();
+        matches.remove(Math.min(Math.max(beforeId, 0), 1L << 32), 1L << 32);
+        List<Long> ids = new ArrayList<>(Math.min(limit, matches.getCardinality()));
+        IntIterator iterator = matches.getReverseIntIterator();
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+
+        queries.increment();
+        queryNanos.add(System.nanoTime() - start);
+        return new FacetResult(ids, total, counts);
+    }
+
+    @Override
+    public String getName() {
+        return "facets";
+    }
+
+    @Override
+    public void beginRebuild() {
+        building = new Index();
+        rebuildStartedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void addToRebuild(List<RecipeDocument> documents) {
+        for (RecipeDocument document : documents) {
+            building.add(document);
+        }
+    }
+
+    @Override
+    public void finishRebuild() {
+        building.runOptimize();
+        lock.writeLock().lock();
+        try {
+            live = building;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        building = null;
+        lastRebuildMillis = System.currentTimeMillis() - rebuildStartedAt;
+        ready = true;
+    }
+
+    @Override
+    public void upsert(RecipeDocument document) {
+        lock.writeLock().lock();
+        try {
+            live.add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            live.remove(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean usesCounters() {
+        return true;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready && !live.idOverflow;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", live.allRecipes.getLongCardinality());
+            stats.put("sizeInBytes", live.sizeInBytes());
+            stats.put("idOverflow", live.idOverflow);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = queries.sum();
+        stats.put("ready", ready);
+        stats.put("lastRebuildMs", lastRebuildMillis);
+        stats.put("queryCount", count);
+        stats.put("averageQueryMicros", count > 0 ? queryNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    /**
+     * Result of {@link #search}.
+     */
+    public static final class FacetResult {
+
+        private final List<Long> ids;
+        private final long total;
+        private final Map<String, Map<String, Long>> counts;
+
+        FacetResult(List<Long> ids, long total, Map<String, Map<String, Long>> counts) {
+            this.ids = ids;
+            this.total = total;
+            this.counts = counts;
+        }
+
+        /**
+         * Matching recipe IDs of the requested page, newest first.
+         */
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        /**
+         * Number of matching recipes over all pages.
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * Count per bucket label per facet name, in display order.
+         */
+        public Map<String, Map<String, Long>> getCounts() {
+            return counts;
+        }
+    }
+
+    private static final class Facet {
+
+        private final String name;
+        private final Function<RecipeDocument, ? extends Number> value;
+        private final List<Bucket> buckets;
+
+        Facet(String name, Function<RecipeDocument, ? extends Number> value, List<Bucket> buckets) {
+            this.name = name;
+            this.value = value;
+            this.buckets = buckets;
+        }
+
+        /**
+         * Bucket position of the recipe's value, or -1 when the value is missing.
+         */
+        int bucketOf(RecipeDocument document) {
+            Number number = value.apply(document);
+            if (number == null) {
+                return -1;
+            }
+            double v = number.doubleValue();
+            for (int b = 0; b < buckets.size(); b++) {
+                Bucket bucket = buckets.get(b);
+                if ((bucket.from == null || v >= bucket.from) && (bucket.to == null || v < bucket.to)) {
+                    return b;
+                }
+            }
+            return -1;
+        }
+
+        int indexOf(String label) {
+            for (int b = 0; b < buckets.size(); b++) {
+                if (buckets.get(b).label.equals(label)) {
+                    return b;
+                }
+            }
+            throw new IllegalArgumentException("Giá trị lọc không hợp lệ cho " + name + ": " + label);
+        }
+    }
+
+    private static final class Bucket {
+
+        private final String label;
+        private final Double from;
+        private final Double to;
+
+        Bucket(String label, Double from, Double to) {
+            this.label = label;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * One generation of the index. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static final class Index {
+
+        private final Map<String, RoaringBitmap[]> buckets = new LinkedHashMap<>();
+        private final RoaringBitmap allRecipes = new RoaringBitmap();
+        private boolean idOverflow;
+
+        Index() {
+            for (Facet facet : FACETS) {
+                RoaringBitmap[] bitmaps = new RoaringBitmap[facet.buckets.size()];
+                for (int b = 0; b < bitmaps.length; b++) {
+                    bitmaps[b] = new RoaringBitmap();
+                }
+                buckets.put(facet.name, bitmaps);
+            }
+        }
+
+        void add(RecipeDocument document) {
+            if (document.getId() > Integer.MAX_VALUE) {
+                idOverflow = true;
+                return;
+            }
+            remove(document.getId());
+
+            int recipeId = document.getId().intValue();
+            for (Facet facet : FACETS) {
+                int b = facet.bucketOf(document);
+                if (b >= 0) {
+                    buckets.get(facet.name)[b].add(recipeId);
+                }
+            }
+            allRecipes.add(recipeId);
+        }
+
+        void remove(Long id) {
+            if (id > Integer.MAX_VALUE) {
+                return;
+            }
+            int recipeId = id.intValue();
+            if (!allRecipes.contains(recipeId)) {
+                return;
+            }
+            for (RoaringBitmap[] bitmaps : buckets.values()) {
+                for (RoaringBitmap bitmap : bitmaps) {
+                    bitmap.remove(recipeId);
+                }
+            }
+            allRecipes.remove(recipeId);
+        }
+
+        RoaringBitmap bucket(Facet facet, String label) {
+            return buckets.get(facet.name)[facet.indexOf(label)];
+        }
+
+        void runOptimize() {
+            allRecipes.runOptimize();
+            for (RoaringBitmap[] bitmaps : buckets.values()) {
+                for (RoaringBitmap bitmap : bitmaps) {
+                    bitmap.runOptimize();
+                }
+            }
+        }
+
+        long sizeInBytes() {
+            long size = allRecipes.getLongSizeInBytes();
+            for (RoaringBitmap[] bitmaps : buckets.values()) {
+                for (RoaringBitmap bitmap : bitmaps) {
+                    size += bitmap.getLongSizeInBytes();
+                }
+            }
+            return size;
+        }
+    }
+}
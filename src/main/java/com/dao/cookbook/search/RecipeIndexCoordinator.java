@@ -0,0 +1,538 @@
+package com.dao.cookbook.search;
+
+import com.dao.cookbook.entity.IngredientEntity;
+import com.dao.cookbook.event.RecipeChangeHandler;
+import com.dao.cookbook.event.RecipeChangedEvent;
+import com.dao.cookbook.repository.IngredientRepository;
+import com.dao.cookbook.repository.RecipeRepository;
+import com.dao.cookbook.service.IngredientCatalog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Builds and maintains every {@link RecipeIndexer}.
+ * <p>
+ * Once the application is ready, all indexes are built in a background thread, from the
+ * local {@link RecipeSnapshotStore snapshot} when there is one (then caught up from the
+ * recipes updated since), otherwise from {@code recipes} and {@code ingredients} read in
+ * ID-ordered batches. Until then each indexer reports not ready and callers use the
+ * database. Committed recipe writes reach {@link #onRecipesChanged(List)} in batches
+ * through {@link com.dao.cookbook.event.RecipeChangeDispatcher}; the changed recipes are
+ * re-read and every index is updated in place.
+ * </p>
+ * <p>
+ * A full rebuild writes a new snapshot as it reads the database. Between rebuilds, once
+ * {@code app.search.snapshot.min-changes} recipes have changed, the next
+ * {@code app.search.snapshot.interval-ms} tick writes a new snapshot by merging the current
+ * one with only the changed recipes, re-read from the database.
+ * </p>
+ */
+@Component
+public class RecipeIndexCoordinator implements RecipeChangeHandler {
+
+    /**
+     * How far before the start of a snapshot its watermark is set.
+     */
+    private static final long SNAPSHOT_WATERMARK_MARGIN_MILLIS = 5 * 60 * 1000L;
+
+    private final RecipeRepository recipeRepository;
+    private final IngredientRepository ingredientRepository;
+    private final IngredientCatalog ingredientCatalog;
+    private final RecipeSnapshotStore snapshotStore;
+    private final List<RecipeIndexer> indexers;
+    private final int batchSize;
+    private final int snapshotMinChanges;
+
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final Set<Long> changedSinceSnapshot = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+    private final AtomicBoolean backgroundRebuild = new AtomicBoolean();
+    private volatile long lastRebuildDocuments = -1;
+    private volatile String lastStartupSource;
+    private volatile long lastCatchUpDocuments = -1;
+    private volatile long lastSnapshotChanges = -1;
+
+    public RecipeIndexCoordinator(RecipeRepository recipeRepository,
+                                  IngredientRepository ingredientRepository,
+                                  IngredientCatalog ingredientCatalog,
+                                  RecipeSnapshotStore snapshotStore,
+                                  List<RecipeIndexer> indexers,
+                                  @Value("${app.search.index.batch-size:1000}") int batchSize,
+                                  @Value("${app.search.snapshot.min-changes:1000}") int snapshotMinChanges) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.ingredientCatalog = ingredientCatalog;
+        this.snapshotStore = snapshotStore;
+        this.indexers = indexers;
+        this.batchSize = batchSize;
+        this.snapshotMinChanges = snapshotMinChanges;
+    }
+
+    /**
+     * Build all indexes in the background once the application has started, from the
+     * snapshot if possible.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(() -> {
+            if (!restoreFromSnapshot()) {
+                lastStartupSource = "database";
+                rebuildAll();
+            }
+        }, "recipe-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start {@link #rebuildAll()} in a background thread and return immediately. Requests
+     * made while a background rebuild is pending or running are coalesced into it.
+     *
+     * @return false if a background rebuild is already pending or running
+     */
+    public boolean rebuildInBackground() {
+        if (!backgroundRebuild.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuildAll();
+            } finally {
+                backgroundRebuild.set(false);
+            }
+        }, "recipe-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Rebuild every index from the database, writing a new snapshot along the way.
+     * Searches keep using the previous generation of each index until its rebuild finishes.
+     */
+    public synchronized void rebuildAll() {
+        rebuilding = true;
+        List<Long> changedBefore = new ArrayList<>(changedSinceSnapshot);
+        RecipeSnapshotStore.Writer[] snapshot = {openSnapshotWriter()};
+        try {
+            indexers.forEach(RecipeIndexer::beginRebuild);
+
+            long total = forEachDatabaseBatch(batch -> {
+                for (RecipeIndexer indexer : indexers) {
+                    indexer.addToRebuild(batch);
+                }
+                if (snapshot[0] != null) {
+                    try {
+                        snapshot[0].append(batch);
+                    } catch (IOException e) {
+                        // Keep rebuilding the indexes without a snapshot
+                        System.err.println("Failed to write search snapshot: " + e.getMessage());
+                        closeQuietly(snapshot[0]);
+                        snapshot[0] = null;
+                    }
+                }
+            });
+
+            indexers.forEach(RecipeIndexer::finishRebuild);
+            lastRebuildDocuments = total;
+            if (snapshot[0] != null) {
+                snapshot[0].commit();
+                // Changes made during the rebuild stay pending: they may be missing from it
+                changedSinceSnapshot.removeAll(changedBefore);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write search snapshot: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Failed to build recipe indexes: " + e.getMessage());
+        } finally {
+            rebuilding = false;
+            closeQuietly(snapshot[0]);
+        }
+
+        replayChangedDuringRebuild();
+    }
+
+    /**
+     * Build every index from the local snapshot, then catch up from the database: recipes
+     * updated since the snapshot's watermark are re-read and recipes deleted since are
+     * removed.
+     *
+     * @return false if there is no usable snapshot or restoring failed (nothing was swapped in)
+     */
+    public synchronized boolean restoreFromSnapshot() {
+        Optional<RecipeSnapshotStore.Snapshot> snapshot = snapshotStore.open();
+        if (snapshot.isEmpty()) {
+            return false;
+        }
+        long[] snapshotIds = new long[snapshot.get().getCount()];
+        rebuilding = true;
+        try {
+            indexers.forEach(RecipeIndexer::beginRebuild);
+            int[] position = {0};
+            snapshot.get().forEachBatch(batchSize, batch -> {
+                for (RecipeIndexer indexer : indexers) {
+                    indexer.addToRebuild(batch);
+                }
+                for (RecipeDocument document : batch) {
+                    snapshotIds[position[0]++] = document.getId();
+                }
+            });
+            indexers.forEach(RecipeIndexer::finishRebuild);
+            lastRebuildDocuments = snapshotIds.length;
+            lastStartupSource = "snapshot";
+        } catch (RuntimeException e) {
+            System.err.println("Failed to restore recipe indexes from snapshot: " + e.getMessage());
+            return false;
+        } finally {
+            rebuilding = false;
+        }
+
+        try {
+            catchUp(snapshot.get().getWatermark(), snapshotIds);
+        } catch (RuntimeException e) {
+            // Serving a slightly stale index beats not serving; the next full rebuild fixes it
+            System.err.println("Failed to catch up recipe indexes after snapshot: " + e.getMessage());
+        }
+        replayChangedDuringRebuild();
+        return true;
+    }
+
+    /**
+     * Write a new snapshot if at least {@code app.search.snapshot.min-changes} recipes have
+     * changed since the last one: the current snapshot is copied in ID order, with the
+     * changed recipes re-read from the database and deleted ones left out. Recipes updated
+     * after the current snapshot's watermark are treated as changed too, so updates made
+     * outside the application are not lost.
+     */
+    @Scheduled(fixedDelayString = "${app.search.snapshot.interval-ms:600000}",
+               initialDelayString = "${app.search.snapshot.interval-ms:600000}")
+    public synchronized void writeSnapshot() {
+        if (rebuilding || changedSinceSnapshot.size() < snapshotMinChanges) {
+            return;
+        }
+        Optional<RecipeSnapshotStore.Snapshot> current = snapshotStore.open();
+        if (current.isEmpty()) {
+            // Nothing to merge with; the next full rebuild writes one
+            return;
+        }
+        List<Long> changed = new ArrayList<>(changedSinceSnapshot);
+        RecipeSnapshotStore.Writer snapshot = openSnapshotWriter();
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            Set<Long> ids = new HashSet<>(changed);
+            ids.addAll(recipeRepository.findIdsUpdatedSince(new Timestamp(current.get().getWatermark())));
+            ChangedDocuments changes = new ChangedDocuments(ids);
+            current.get().forEachBatch(batchSize, batch -> {
+                List<RecipeDocument> merged = new ArrayList<>(batch.size());
+                for (RecipeDocument document : batch) {
+                    merged.addAll(changes.takeBefore(document.getId()));
+                    if (!changes.contains(document.getId())) {
+                        merged.add(document);
+                    }
+                }
+                append(snapshot, merged);
+            });
+            append(snapshot, changes.takeBefore(Long.MAX_VALUE));
+            snapshot.commit();
+            changedSinceSnapshot.removeAll(changed);
+            lastSnapshotChanges = ids.size();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write search snapshot: " + e.getMessage());
+        } finally {
+            closeQuietly(snapshot);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "search";
+    }
+
+    /**
+     * Re-read the changed recipes. Recipes whose rating or likes count is all that changed
+     * only go to the indexes that use those counters.
+     */
+    @Override
+    public void onRecipesChanged(List<RecipeChangedEvent> events) {
+        List<Long> changed = new ArrayList<>();
+        List<Long> countersChanged = new ArrayList<>();
+        for (RecipeChangedEvent event : events) {
+            RecipeChangedEvent.Type type = event.getType();
+            if (type == RecipeChangedEvent.Type.LIKES || type == RecipeChangedEvent.Type.RATING) {
+                countersChanged.add(event.getRecipeId());
+            } else {
+                changed.add(event.getRecipeId());
+            }
+        }
+        reindex(changed);
+        reindex(countersChanged, indexers.stream().filter(RecipeIndexer::usesCounters).collect(Collectors.toList()));
+    }
+
+    /**
+     * Re-read recipes and upsert them into every index, removing the ones that no longer
+     * exist.
+     */
+    public void reindex(Collection<Long> recipeIds) {
+        reindex(recipeIds, indexers);
+    }
+
+    private void reindex(Collection<Long> recipeIds, List<RecipeIndexer> targets) {
+        if (recipeIds.isEmpty()) {
+            return;
+        }
+        if (rebuilding) {
+            changedDuringRebuild.addAll(recipeIds);
+        }
+        changedSinceSnapshot.addAll(recipeIds);
+        List<Long> ids = new ArrayList<>(recipeIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            try {
+                List<RecipeDocument> documents = recipeRepository.findDocumentsByIdIn(chunk);
+                attachIngredients(documents);
+                Set<Long> missing = new HashSet<>(chunk);
+                for (RecipeDocument document : documents) {
+                    missing.remove(document.getId());
+                    targets.forEach(indexer -> indexer.upsert(document));
+                }
+                missing.forEach(this::removeFromIndexes);
+            } catch (RuntimeException e) {
+                // The next rebuild will catch up
+                System.err.println("Failed to reindex " + chunk.size() + " recipes: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Statistics of every index, keyed by indexer name.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rebuilding", rebuilding);
+        stats.put("lastRebuildDocuments", lastRebuildDocuments);
+        stats.put("lastStartupSource", lastStartupSource);
+        stats.put("lastCatchUpDocuments", lastCatchUpDocuments);
+        stats.put("changedSinceSnapshot", changedSinceSnapshot.size());
+        stats.put("lastSnapshotChanges", lastSnapshotChanges);
+        stats.put("snapshot", snapshotStore.getStats());
+        for (RecipeIndexer indexer : indexers) {
+            stats.put(indexer.getName(), indexer.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Read every recipe from the database in ID-ordered batches.
+     *
+     * @return number of documents read
+     */
+    private long forEachDatabaseBatch(Consumer<List<RecipeDocument>> consumer) {
+        long afterId = 0;
+        long total = 0;
+        List<RecipeDocument> batch = loadBatch(afterId);
+        while (!batch.isEmpty()) {
+            consumer.accept(batch);
+            total += batch.size();
+            afterId = batch.get(batch.size() - 1).getId();
+            batch = loadBatch(afterId);
+        }
+        return total;
+    }
+
+    private List<RecipeDocument> loadBatch(long afterId) {
+        List<RecipeDocument> batch = recipeRepository.findDocumentsAfter(afterId, PageRequest.of(0, batchSize));
+        attachIngredients(batch);
+        return batch;
+    }
+
+    /**
+     * Bring indexes restored from a snapshot up to date: upsert recipes updated since the
+     * watermark and remove snapshot recipes that no longer exist.
+     *
+     * @param snapshotIds IDs in the snapshot, ascending
+     */
+    private void catchUp(long watermark, long[] snapshotIds) {
+        List<Long> updated = recipeRepository.findIdsUpdatedSince(new Timestamp(watermark));
+        for (int from = 0; from < updated.size(); from += batchSize) {
+            List<RecipeDocument> documents = recipeRepository.findDocumentsByIdIn(
+                    updated.subList(from, Math.min(from + batchSize, updated.size())));
+            attachIngredients(documents);
+            for (RecipeDocument document : documents) {
+                indexers.forEach(indexer -> indexer.upsert(document));
+            }
+        }
+        lastCatchUpDocuments = updated.size();
+        changedSinceSnapshot.addAll(updated);
+
+        // Deletions leave no row behind, so compare the snapshot's IDs with the current ones
+        int position = 0;
+        long afterId = 0;
+        List<Long> ids = recipeRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+        while (!ids.isEmpty()) {
+            for (Long id : ids) {
+                while (position < snapshotIds.length && snapshotIds[position] < id) {
+                    removeFromIndexes(snapshotIds[position++]);
+                }
+                if (position < snapshotIds.length && snapshotIds[position] == id) {
+                    position++;
+                }
+            }
+            afterId = ids.get(ids.size() - 1);
+            ids = recipeRepository.findIdsAfter(afterId, PageRequest.of(0, batchSize));
+        }
+        while (position < snapshotIds.length) {
+            removeFromIndexes(snapshotIds[position++]);
+        }
+    }
+
+    private void removeFromIndexes(long recipeId) {
+        indexers.forEach(indexer -> indexer.remove(recipeId));
+        changedSinceSnapshot.add(recipeId);
+    }
+
+    private void replayChangedDuringRebuild() {
+        // Changes committed during the rebuild may be missing from the new generation
+        List<Long> changed = new ArrayList<>(changedDuringRebuild);
+        changedDuringRebuild.removeAll(changed);
+        reindex(changed);
+    }
+
+    /**
+     * Snapshot writer whose watermark leaves a margin for clock skew between this server
+     * and the database and for transactions still in flight; null when snapshots are off
+     * or the file cannot be created.
+     */
+    private RecipeSnapshotStore.Writer openSnapshotWriter() {
+        if (!snapshotStore.isEnabled()) {
+            return null;
+        }
+        try {
+            return snapshotStore.newWriter(System.currentTimeMillis() - SNAPSHOT_WATERMARK_MARGIN_MILLIS);
+        } catch (IOException e) {
+            System.err.println("Failed to write search snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void append(RecipeSnapshotStore.Writer snapshot, List<RecipeDocument> documents) {
+        try {
+            snapshot.append(documents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void closeQuietly(RecipeSnapshotStore.Writer snapshot) {
+        if (snapshot != null) {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                System.err.println("Failed to discard search snapshot: " + e.getMessage());
+            }
+        }
+    }
+
+    private void attachIngredients(List<RecipeDocument> documents) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<Long> recipeIds = documents.stream()
+                .map(RecipeDocument::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<IngredientEntity>> ingredientsByRecipe = ingredientRepository
+                .findByRecipeIdInOrderByRecipeIdAscIdAsc(recipeIds).stream()
+                .collect(Collectors.groupingBy(IngredientEntity::getRecipeId));
+        for (RecipeDocument document : documents) {
+            List<String> names = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            for (IngredientEntity ingredient : ingredientsByRecipe.getOrDefault(document.getId(), List.of())) {
+                names.add(ingredient.getName());
+                // Rows not tagged yet by the catalog backfill
+                Integer id = ingredient.getCanonicalId() != null
+                        ? ingredient.getCanonicalId() : ingredientCatalog.resolve(ingredient.getName());
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            document.setIngredientNames(names);
+            document.setIngredientIds(ids);
+        }
+    }
+
+    /**
+     * Current documents of changed recipes, read from the database in ID order one batch
+     * at a time as the merge reaches them.
+     */
+    private final class ChangedDocuments {
+
+        private final long[] ids;
+        private final ArrayDeque<RecipeDocument> loaded = new ArrayDeque<>();
+        private int next;
+
+        ChangedDocuments(Collection<Long> ids) {
+            this.ids = ids.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        boolean contains(long recipeId) {
+            return Arrays.binarySearch(ids, recipeId) >= 0;
+        }
+
+        /**
+         * Documents of the changed recipes with IDs below {@code bound} not returned yet;
+         * recipes that no longer exist are skipped.
+         */
+        List<RecipeDocument> takeBefore(long bound) {
+            List<RecipeDocument> documents = new ArrayList<>();
+            while (true) {
+                if (loaded.isEmpty()) {
+                    if (next >= ids.length || ids[next] >= bound) {
+                        return documents;
+                    }
+                    loadNextBatch();
+                } else if (loaded.peekFirst().getId() < bound) {
+                    documents.add(loaded.pollFirst());
+                } else {
+                    return documents;
+                }
+            }
+        }
+
+        private void loadNextBatch() {
+            int to = Math.min(next + batchSize, ids.length);
+            List<Long> chunk = new ArrayList<>(to - next);
+            for (int i = next; i < to; i++) {
+                chunk.add(ids[i]);
+            }
+            next = to;
+            List<RecipeDocument> documents = recipeRepository.findDocumentsByIdIn(chunk);
+            attachIngredients(documents);
+            documents.sort(Comparator.comparing(RecipeDocument::getId));
+            loaded.addAll(documents);
+        }
+    }
+}
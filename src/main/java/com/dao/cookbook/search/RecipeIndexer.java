@@ -0,0 +1,68 @@
+package com.dao.cookbook.search;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory recipe index kept in sync by {@link RecipeIndexCoordinator}.
+ * <p>
+ * A rebuild fills a fresh index next to the live one ({@link #beginRebuild()},
+ * {@link #addToRebuild(List)}, {@link #finishRebuild()}) and swaps it in at the end, so
+ * searches keep being served during the rebuild. Changes made while a rebuild runs are
+ * applied to the live index and replayed by the coordinator after the swap.
+ * </p>
+ * <p>
+ * {@link #upsert} and {@link #remove} may be called from any request thread, concurrently
+ * with searches. The rebuild methods are only called from the coordinator's rebuild thread.
+ * </p>
+ */
+public interface RecipeIndexer {
+
+    /**
+     * Short name used in logs and statistics.
+     */
+    String getName();
+
+    /**
+     * Start building a fresh index. Any unfinished rebuild is discarded.
+     */
+    void beginRebuild();
+
+    /**
+     * Add a batch of documents to the index being built.
+     */
+    void addToRebuild(List<RecipeDocument> documents);
+
+    /**
+     * Replace the live index with the one being built and mark the index ready.
+     */
+    void finishRebuild();
+
+    /**
+     * Add a recipe to the live index, or replace it if already indexed.
+     */
+    void upsert(RecipeDocument document);
+
+    /**
+     * Remove a recipe from the live index. Unknown IDs are ignored.
+     */
+    void remove(Long recipeId);
+
+    /**
+     * Whether the index uses a recipe's average rating or likes count. Only such indexes
+     * are updated when nothing but those counters changed.
+     */
+    default boolean usesCounters() {
+        return false;
+    }
+
+    /**
+     * Whether the first rebuild has completed. Callers fall back to the database until then.
+     */
+    boolean isReady();
+
+    /**
+     * Size and usage statistics.
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,267 @@
+package com.dao.cookbook.search;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index from canonical ingredient ID to a compressed bitmap of recipe IDs.
+ * <p>
+ * Include/exclude filters become bitmap AND / ANDNOT operations. Callers resolve names
+ * to IDs with {@link com.dao.cookbook.service.IngredientCatalog}, so "Hành lá",
+ * "hanh  la" and "scallions" are the same ingredient.
+ * </p>
+ * <p>
+ * Results are returned newest first by recipe ID, which follows creation order since
+ * {@code created_at} is assigned on insert. Recipe IDs must fit in an {@code int}; if a
+ * larger ID is ever indexed the index reports not ready and callers use the database.
+ * </p>
+ */
+@Component
+public class RecipeIngredientIndex implements RecipeIndexer {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    private Index live = new Index();
+    private Index building;
+    private long rebuildStartedAt;
+    private volatile long lastRebuildMillis = -1;
+    private volatile boolean ready;
+
+    /**
+     * Find recipes containing every included and none of the excluded ingredients.
+     * With no include filter every recipe is a candidate.
+     *
+     * @param includeIngredients canonical ingredient IDs that must all be present (optional)
+     * @param excludeIngredients canonical ingredient IDs that must not be present (optional)
+     * @param beforeId only recipes with a smaller ID are returned (keyset position)
+     * @param limit maximum number of IDs to return
+     * @return recipe IDs, newest first
+     */
+    public List<Long> filter(Collection<Integer> includeIngredients, Collection<Integer> excludeIngredients,
+                             long beforeId, int limit) {
+        long start = System.nanoTime();
+        RoaringBitmap matches = match(includeIngredients, excludeIngredients);
+
+        // matches is a private copy, so it can be cut down to the requested page
+        matches.remove(Math.min(Math.max(beforeId, 0), 1L << 32), 1L << 32);
+        List<Long> ids = new ArrayList<>(Math.min(limit, matches.getCardinality()));
+        IntIterator iterator = matches.getReverseIntIterator();
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+
+        queries.increment();
+        queryNanos.add(System.nanoTime() - start);
+        return ids;
+    }
+
+    /**
+     * All recipes containing every included and none of the excluded ingredients.
+     *
+     * @return a new bitmap of recipe IDs owned by the caller
+     * @see #filter(Collection, Collection, long, int)
+     */
+    public RoaringBitmap match(Collection<Integer> includeIngredients, Collection<Integer> excludeIngredients) {
+        lock.readLock().lock();
+        try {
+            return live.match(distinct(includeIngredients), distinct(excludeIngredients));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "ingredients";
+    }
+
+    @Override
+    public void beginRebuild() {
+        building = new Index();
+        rebuildStartedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void addToRebuild(List<RecipeDocument> documents) {
+        for (RecipeDocument document : documents) {
+            building.add(document);
+        }
+    }
+
+    @Override
+    public void finishRebuild() {
+        building.runOptimize();
+        lock.writeLock().lock();
+        try {
+            live = building;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        building = null;
+        lastRebuildMillis = System.currentTimeMillis() - rebuildStartedAt;
+        ready = true;
+    }
+
+    @Override
+    public void upsert(RecipeDocument document) {
+        lock.writeLock().lock();
+        try {
+            live.add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            live.remove(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready && !live.idOverflow;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", live.allRecipes.getLongCardinality());
+            stats.put("ingredients", live.recipesByIngredient.size());
+            stats.put("sizeInBytes", live.sizeInBytes());
+            stats.put("idOverflow", live.idOverflow);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = queries.sum();
+        stats.put("ready", ready);
+        stats.put("lastRebuildMs", lastRebuildMillis);
+        stats.put("queryCount", count);
+        stats.put("averageQueryMicros", count > 0 ? queryNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    private static Set<Integer> distinct(Collection<Integer> ids) {
+        Set<Integer> distinct = new LinkedHashSet<>();
+        if (ids != null) {
+            for (Integer id : ids) {
+                if (id != null) {
+                    distinct.add(id);
+                }
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * One generation of the index. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static final class Index {
+
+        private final Map<Integer, RoaringBitmap> recipesByIngredient = new HashMap<>();
+        private final Map<Integer, Set<Integer>> ingredientsByRecipe = new HashMap<>();
+        private final RoaringBitmap allRecipes = new RoaringBitmap();
+        private boolean idOverflow;
+
+        void add(RecipeDocument document) {
+            if (document.getId() > Integer.MAX_VALUE) {
+                idOverflow = true;
+                return;
+            }
+            remove(document.getId());
+
+            int recipeId = document.getId().intValue();
+            Set<Integer> ingredients = distinct(document.getIngredientIds());
+            for (Integer ingredient : ingredients) {
+                recipesByIngredient.computeIfAbsent(ingredient, key -> new RoaringBitmap()).add(recipeId);
+            }
+            ingredientsByRecipe.put(recipeId, ingredients);
+            allRecipes.add(recipeId);
+        }
+
+        void remove(Long id) {
+            if (id > Integer.MAX_VALUE) {
+                return;
+            }
+            int recipeId = id.intValue();
+            Set<Integer> ingredients = ingredientsByRecipe.remove(recipeId);
+            if (ingredients != null) {
+                for (Integer ingredient : ingredients) {
+                    RoaringBitmap recipes = recipesByIngredient.get(ingredient);
+                    if (recipes != null) {
+                        recipes.remove(recipeId);
+                        if (recipes.isEmpty()) {
+                            recipesByIngredient.remove(ingredient);
+                        }
+                    }
+                }
+            }
+            allRecipes.remove(recipeId);
+        }
+
+        /**
+         * Evaluate the filter into a new bitmap owned by the caller.
+         */
+        RoaringBitmap match(Set<Integer> include, Set<Integer> exclude) {
+            RoaringBitmap result;
+            if (include.isEmpty()) {
+                result = allRecipes.clone();
+            } else {
+                // Intersect the rarest ingredients first so the intermediate result stays small
+                List<RoaringBitmap> required = new ArrayList<>(include.size());
+                for (Integer ingredient : include) {
+                    RoaringBitmap recipes = recipesByIngredient.get(ingredient);
+                    if (recipes == null) {
+                        return new RoaringBitmap();
+                    }
+                    required.add(recipes);
+                }
+                required.sort((a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+                result = required.get(0).clone();
+                for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+                    result.and(required.get(i));
+                }
+            }
+            for (Integer ingredient : exclude) {
+                RoaringBitmap recipes = recipesByIngredient.get(ingredient);
+                if (recipes != null) {
+                    result.andNot(recipes);
+                }
+            }
+            return result;
+        }
+
+        void runOptimize() {
+            allRecipes.runOptimize();
+            recipesByIngredient.values().forEach(RoaringBitmap::runOptimize);
+        }
+
+        long sizeInBytes() {
+            long size = allRecipes.getLongSizeInBytes();
+            for (RoaringBitmap recipes : recipesByIngredient.values()) {
+                size += recipes.getLongSizeInBytes();
+            }
+            return size;
+        }
+    }
+}
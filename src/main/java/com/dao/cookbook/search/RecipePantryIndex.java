@@ -0,0 +1,422 @@
+package com.dao.cookbook.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory recipe → ingredient matrix for "what can I cook with what I have" ranking.
+ * <p>
+ * Ingredients are canonical ingredient IDs (see {@link com.dao.cookbook.service.IngredientCatalog}),
+ * which are small and dense. Each recipe is one row of ingredient IDs in a flat
+ * {@code int[]} (compressed sparse rows), and each ingredient keeps the rows using it.
+ * Ranking a pantry counts matches by walking only the rows of the pantry's ingredients,
+ * then scores the touched rows against their row length, keeping the best recipes in a
+ * bounded heap.
+ * </p>
+ * <p>
+ * Re-indexed or removed recipes leave a deleted row behind; rows are compacted once
+ * deletions exceed a quarter of the live recipes.
+ * </p>
+ */
+@Component
+public class RecipePantryIndex implements RecipeIndexer {
+
+    /**
+     * Best match first: highest coverage, then highest rating, then newest recipe.
+     */
+    private static final Comparator<PantryMatch> BEST_FIRST = Comparator
+            .comparingDouble(PantryMatch::getCoverage)
+            .thenComparingDouble(PantryMatch::getAverageRating)
+            .thenComparingLong(PantryMatch::getRecipeId)
+            .reversed();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    private Index live = new Index();
+    private Index building;
+    private long rebuildStartedAt;
+    private volatile long lastRebuildMillis = -1;
+    private volatile boolean ready;
+
+    /**
+     * Rank recipes by the fraction of their ingredients found in the pantry, then by
+     * rating. Recipes sharing no ingredient with the pantry are not returned.
+     *
+     * @param pantry canonical IDs of the ingredients the user has (unknown IDs are ignored)
+     * @param limit maximum number of recipes
+     * @return best matches first, with the ingredients still missing
+     */
+    public List<PantryMatch> match(Collection<Integer> pantry, int limit) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return live.match(pantry, limit);
+        } finally {
+            lock.readLock().unlock();
+            queries.increment();
+            queryNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "pantry";
+    }
+
+    @Override
+    public void beginRebuild() {
+        building = new Index();
+        rebuildStartedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void addToRebuild(List<RecipeDocument> documents) {
+        for (RecipeDocument document : documents) {
+            building.add(document);
+        }
+    }
+
+    @Override
+    public void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            live = building;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        building = null;
+        lastRebuildMillis = System.currentTimeMillis() - rebuildStartedAt;
+        ready = true;
+    }
+
+    @Override
+    public void upsert(RecipeDocument document) {
+        lock.writeLock().lock();
+        try {
+            live.add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            live.remove(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean usesCounters() {
+        return true;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", live.rowsById.size());
+            stats.put("ingredients", live.ingredientCount);
+            stats.put("cells", live.cellCount);
+            stats.put("rows", live.rowCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = queries.sum();
+        stats.put("ready", ready);
+        stats.put("lastRebuildMs", lastRebuildMillis);
+        stats.put("queryCount", count);
+        stats.put("averageQueryMicros", count > 0 ? queryNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    /**
+     * One ranked recipe.
+     */
+    public static final class PantryMatch {
+
+        private final long recipeId;
+        private final int matchedIngredients;
+        private final int totalIngredients;
+        private final float averageRating;
+        private final List<Integer> missingIngredientIds = new ArrayList<>();
+
+        PantryMatch(long recipeId, int matchedIngredients, int totalIngredients, float averageRating) {
+            this.recipeId = recipeId;
+            this.matchedIngredients = matchedIngredients;
+            this.totalIngredients = totalIngredients;
+            this.averageRating = averageRating;
+        }
+
+        public long getRecipeId() {
+            return recipeId;
+        }
+
+        public int getMatchedIngredients() {
+            return matchedIngredients;
+        }
+
+        public int getTotalIngredients() {
+            return totalIngredients;
+        }
+
+        /**
+         * Fraction of the recipe's ingredients found in the pantry, 0 to 1.
+         */
+        public double getCoverage() {
+            return (double) matchedIngredients / totalIngredients;
+        }
+
+        public double getAverageRating() {
+            return averageRating;
+        }
+
+        /**
+         * Canonical IDs of the recipe ingredients not in the pantry.
+         */
+        public List<Integer> getMissingIngredientIds() {
+            return missingIngredientIds;
+        }
+    }
+
+    /**
+     * One generation of the index. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static final class Index {
+
+        // Rows using each ingredient, ascending; postings[id] has postingSizes[id] valid entries
+        private int[][] postings = new int[256][];
+        private int[] postingSizes = new int[256];
+        private int ingredientCount;
+        private final Map<Long, Integer> rowsById = new HashMap<>();
+        private BitSet deleted = new BitSet();
+        private long[] recipeIds = new long[1024];
+        private float[] ratings = new float[1024];
+        // Row r holds cells[offsets[r]] .. cells[offsets[r + 1] - 1], distinct ingredient IDs
+        private int[] offsets = new int[1025];
+        private int[] cells = new int[8192];
+        private int rowCount;
+        private int cellCount;
+        private int deletedRows;
+
+        void add(RecipeDocument document) {
+            int[] row = distinctIds(document.getIngredientIds());
+            float rating = document.getAverageRating() != null ? document.getAverageRating().floatValue() : 0f;
+            Integer current = rowsById.get(document.getId());
+            if (current != null && Arrays.equals(cells, offsets[current], offsets[current + 1], row, 0, row.length)) {
+                // Same ingredients (typically a new rating): update the row in place
+                ratings[current] = rating;
+                return;
+            }
+            remove(document.getId());
+
+            if (row.length == 0) {
+                return;
+            }
+            if (rowCount + 1 == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, recipeIds.length * 2);
+                ratings = Arrays.copyOf(ratings, ratings.length * 2);
+                offsets = Arrays.copyOf(offsets, recipeIds.length + 1);
+            }
+            if (cellCount + row.length > cells.length) {
+                cells = Arrays.copyOf(cells, Math.max(cells.length * 2, cellCount + row.length));
+            }
+            System.arraycopy(row, 0, cells, cellCount, row.length);
+            cellCount += row.length;
+            for (int ingredient : row) {
+                addPosting(ingredient, rowCount);
+            }
+            recipeIds[rowCount] = document.getId();
+            ratings[rowCount] = rating;
+            rowsById.put(document.getId(), rowCount);
+            rowCount++;
+            offsets[rowCount] = cellCount;
+        }
+
+        void remove(Long recipeId) {
+            Integer row = rowsById.remove(recipeId);
+            if (row == null) {
+                return;
+            }
+            deleted.set(row);
+            deletedRows++;
+            if (deletedRows > 1024 && deletedRows > rowsById.size() / 4) {
+                compact();
+            }
+        }
+
+        List<PantryMatch> match(Collection<Integer> pantry, int limit) {
+            boolean[] inPantry = new boolean[postings.length];
+            int known = 0;
+            if (pantry != null) {
+                for (Integer id : pantry) {
+                    if (id != null && id >= 0 && id < inPantry.length && postings[id] != null && !inPantry[id]) {
+                        inPantry[id] = true;
+                        known++;
+                    }
+                }
+            }
+            if (known == 0 || limit <= 0) {
+                return new ArrayList<>();
+            }
+
+            // Matched ingredient count per row, for the rows sharing at least one ingredient
+            short[] counts = new short[rowCount];
+            int[] touched = new int[1024];
+            int touchedCount = 0;
+            for (int ingredient = 0; ingredient < inPantry.length; ingredient++) {
+                if (!inPantry[ingredient]) {
+                    continue;
+                }
+                int[] rows = postings[ingredient];
+                for (int i = 0, n = postingSizes[ingredient]; i < n; i++) {
+                    int row = rows[i];
+                    if (counts[row]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touched.length * 2);
+                        }
+                        touched[touchedCount++] = row;
+                    }
+                }
+            }
+
+            PriorityQueue<PantryMatch> top = new PriorityQueue<>(Math.min(limit, 1024) + 1, BEST_FIRST.reversed());
+            PantryMatch weakest = null;
+            for (int i = 0; i < touchedCount; i++) {
+                int row = touched[i];
+                if (deleted.get(row)) {
+                    continue;
+                }
+                int matched = counts[row];
+                int total = offsets[row + 1] - offsets[row];
+                // Cheap reject before allocating: coverage, then rating, then recipe ID
+                if (weakest != null) {
+                    long lhs = (long) matched * weakest.totalIngredients;
+                    long rhs = (long) weakest.matchedIngredients * total;
+                    if (lhs < rhs || (lhs == rhs && (ratings[row] < weakest.averageRating
+                            || (ratings[row] == weakest.averageRating && recipeIds[row] < weakest.recipeId)))) {
+                        continue;
+                    }
+                }
+                top.add(new PantryMatch(recipeIds[row], matched, total, ratings[row]));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+                if (top.size() == limit) {
+                    weakest = top.peek();
+                }
+            }
+
+            List<PantryMatch> ranked = new ArrayList<>(top);
+            ranked.sort(BEST_FIRST);
+            for (PantryMatch match : ranked) {
+                int row = rowsById.get(match.recipeId);
+                for (int cell = offsets[row]; cell < offsets[row + 1]; cell++) {
+                    if (!inPantry[cells[cell]]) {
+                        match.missingIngredientIds.add(cells[cell]);
+                    }
+                }
+            }
+            return ranked;
+        }
+
+        /**
+         * Sorted distinct non-negative IDs.
+         */
+        private static int[] distinctIds(List<Integer> ingredientIds) {
+            if (ingredientIds == null || ingredientIds.isEmpty()) {
+                return new int[0];
+            }
+            int[] ids = new int[ingredientIds.size()];
+            int count = 0;
+            for (Integer id : ingredientIds) {
+                if (id != null && id >= 0) {
+                    ids[count++] = id;
+                }
+            }
+            Arrays.sort(ids, 0, count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (distinct == 0 || ids[i] != ids[distinct - 1]) {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, distinct);
+        }
+
+        private void addPosting(int ingredient, int row) {
+            if (ingredient >= postings.length) {
+                int length = Math.max(postings.length * 2, ingredient + 1);
+                postings = Arrays.copyOf(postings, length);
+                postingSizes = Arrays.copyOf(postingSizes, length);
+            }
+            int[] rows = postings[ingredient];
+            if (rows == null) {
+                rows = new int[8];
+                postings[ingredient] = rows;
+                ingredientCount++;
+            }
+            int size = postingSizes[ingredient];
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                postings[ingredient] = rows;
+            }
+            rows[size] = row;
+            postingSizes[ingredient] = size + 1;
+        }
+
+        /**
+         * Rewrite the matrix and the postings without the deleted rows.
+         */
+        private void compact() {
+            Arrays.fill(postingSizes, 0);
+            int kept = 0;
+            int keptCells = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (deleted.get(row)) {
+                    continue;
+                }
+                int from = offsets[row];
+                int to = offsets[row + 1];
+                System.arraycopy(cells, from, cells, keptCells, to - from);
+                for (int cell = keptCells; cell < keptCells + to - from; cell++) {
+                    addPosting(cells[cell], kept);
+                }
+                recipeIds[kept] = recipeIds[row];
+                ratings[kept] = ratings[row];
+                rowsById.put(recipeIds[kept], kept);
+                offsets[kept] = keptCells;
+                keptCells += to - from;
+                kept++;
+            }
+            offsets[kept] = keptCells;
+            rowCount = kept;
+            cellCount = keptCells;
+            deleted = new BitSet();
+            deletedRows = 0;
+        }
+    }
+}
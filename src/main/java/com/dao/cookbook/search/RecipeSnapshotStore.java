@@ -0,0 +1,297 @@
+package com.dao.cookbook.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Local-disk snapshot of the {@link RecipeDocument}s the search indexes are built from.
+ * <p>
+ * Restoring the indexes from a snapshot replaces the full read of {@code recipes} and
+ * {@code ingredients} at startup; {@link RecipeIndexCoordinator} then catches up from the
+ * recipes updated after the snapshot's watermark. The file is read through a read-only
+ * memory map, so it is paged in by the OS as the documents are decoded instead of being
+ * copied onto the heap first.
+ * </p>
+ * <p>
+ * Format (big-endian): magic, version, watermark (epoch millis), then one record per
+ * document in ID order, then the document count and a CRC32 of everything before it.
+ * A new snapshot is written to a temporary file and moved over the previous one, so a
+ * crash while writing leaves the previous snapshot intact. Snapshots of 2 GB or more are
+ * not supported.
+ * </p>
+ */
+@Component
+public class RecipeSnapshotStore {
+
+    private static final int MAGIC = 0x52534e50; // "RSNP"
+    private static final int VERSION = 1;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final String FILE_NAME = "recipes.snapshot";
+
+    private final boolean enabled;
+    private final Path file;
+
+    private volatile long lastWriteMillis = -1;
+    private volatile long lastWatermark = -1;
+    private volatile long lastDocuments = -1;
+
+    public RecipeSnapshotStore(@Value("${app.search.snapshot.enabled:true}") boolean enabled,
+                               @Value("${app.search.snapshot.dir:search-snapshot}") String dir) {
+        this.enabled = enabled;
+        this.file = Paths.get(dir).toAbsolutePath().normalize().resolve(FILE_NAME);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start writing a new snapshot. Nothing replaces the current snapshot until
+     * {@link Writer#commit()}.
+     *
+     * @param watermark every recipe updated at or after this time (epoch millis) may be
+     *                  missing from or stale in the snapshot
+     */
+    public Writer newWriter(long watermark) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+        return new Writer(temp, watermark);
+    }
+
+    /**
+     * Map the current snapshot and verify its checksum.
+     *
+     * @return the snapshot, or empty when disabled, missing, unreadable or corrupt
+     */
+    public Optional<Snapshot> open() {
+        if (!enabled || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < 28) {
+                System.err.println("Ignoring search snapshot " + file + ": unexpected size " + size);
+                return Optional.empty();
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - 8));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getLong((int) size - 8) != crc.getValue()) {
+                System.err.println("Ignoring search snapshot " + file + ": wrong version or checksum");
+                return Optional.empty();
+            }
+            return Optional.of(new Snapshot(buffer, buffer.getLong(8), buffer.getInt((int) size - 12)));
+        } catch (IOException e) {
+            System.err.println("Failed to read search snapshot " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("file", file.toString());
+        stats.put("lastWriteMs", lastWriteMillis);
+        stats.put("lastWatermark", lastWatermark > 0 ? new Timestamp(lastWatermark).toString() : null);
+        stats.put("lastDocuments", lastDocuments);
+        return stats;
+    }
+
+    /**
+     * Appends documents to a new snapshot. Not thread-safe.
+     */
+    public final class Writer implements Closeable {
+
+        private final Path temp;
+        private final long watermark;
+        private final long startedAt = System.currentTimeMillis();
+        private final FileOutputStream stream;
+        private final CRC32 crc = new CRC32();
+        private final DataOutputStream out;
+        private int count;
+        private boolean committed;
+
+        private Writer(Path temp, long watermark) throws IOException {
+            this.temp = temp;
+            this.watermark = watermark;
+            this.stream = new FileOutputStream(temp.toFile());
+            this.out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(stream, 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(watermark);
+        }
+
+        public void append(List<RecipeDocument> documents) throws IOException {
+            for (RecipeDocument document : documents) {
+                out.writeLong(document.getId());
+                writeString(document.getTitle());
+                out.writeLong(document.getCreatedAt() != null ? document.getCreatedAt().getTime() : Long.MIN_VALUE);
+                out.writeInt(document.getCookingTime() != null ? document.getCookingTime() : NULL_INT);
+                out.writeInt(document.getServings() != null ? document.getServings() : NULL_INT);
+                out.writeDouble(document.getAverageRating() != null ? document.getAverageRating() : 0.0);
+                out.writeInt(document.getLikesCount() != null ? document.getLikesCount() : 0);
+                List<String> names = document.getIngredientNames();
+                out.writeInt(names.size());
+                for (String name : names) {
+                    writeString(name);
+                }
+                List<Integer> ids = document.getIngredientIds();
+                out.writeInt(ids.size());
+                for (Integer id : ids) {
+                    out.writeInt(id);
+                }
+                count++;
+            }
+        }
+
+        /**
+         * Finish the file and make it the current snapshot.
+         */
+        public void commit() throws IOException {
+            out.writeInt(count);
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            stream.getChannel().force(true);
+            out.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            lastWriteMillis = System.currentTimeMillis() - startedAt;
+            lastWatermark = watermark;
+            lastDocuments = count;
+        }
+
+        /**
+         * Discard the file unless it was committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * A mapped, verified snapshot.
+     */
+    public static final class Snapshot {
+
+        private final ByteBuffer buffer;
+        private final long watermark;
+        private final int count;
+
+        private Snapshot(ByteBuffer buffer, long watermark, int count) {
+            this.buffer = buffer;
+            this.watermark = watermark;
+            this.count = count;
+        }
+
+        /**
+         * Recipes updated at or after this time (epoch millis) may be missing or stale.
+         */
+        public long getWatermark() {
+            return watermark;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Decode the documents in ID order, handing them over in batches.
+         */
+        public void forEachBatch(int batchSize, Consumer<List<RecipeDocument>> consumer) {
+            ByteBuffer in = buffer.duplicate().position(16);
+            List<RecipeDocument> batch = new ArrayList<>(batchSize);
+            for (int i = 0; i < count; i++) {
+                batch.add(readDocument(in));
+                if (batch.size() == batchSize) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                consumer.accept(batch);
+            }
+        }
+
+        private static RecipeDocument readDocument(ByteBuffer in) {
+            RecipeDocument document = new RecipeDocument();
+            document.setId(in.getLong());
+            document.setTitle(readString(in));
+            long createdAt = in.getLong();
+            document.setCreatedAt(createdAt != Long.MIN_VALUE ? new Timestamp(createdAt) : null);
+            document.setCookingTime(readInteger(in));
+            document.setServings(readInteger(in));
+            document.setAverageRating(in.getDouble());
+            document.setLikesCount(in.getInt());
+            int names = in.getInt();
+            List<String> ingredientNames = new ArrayList<>(names);
+            for (int i = 0; i < names; i++) {
+                ingredientNames.add(readString(in));
+            }
+            document.setIngredientNames(ingredientNames);
+            int ids = in.getInt();
+            List<Integer> ingredientIds = new ArrayList<>(ids);
+            for (int i = 0; i < ids; i++) {
+                ingredientIds.add(in.getInt());
+            }
+            document.setIngredientIds(ingredientIds);
+            return document;
+        }
+
+        private static Integer readInteger(ByteBuffer in) {
+            int value = in.getInt();
+            return value != NULL_INT ? value : null;
+        }
+
+        private static String readString(ByteBuffer in) {
+            int length = in.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.dao.cookbook.search;
+
+import com.dao.cookbook.dto.response.SuggestionDTO;
+import com.dao.cookbook.repository.SearchHistoryRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Typeahead completions over recipe titles and ingredient names.
+ * <p>
+ * A phrase's weight is the number of recipes using it plus their likes, plus
+ * {@value #SEARCH_WEIGHT} per past search for exactly that phrase (folded). Completions
+ * are served from an immutable {@link PrefixSuggester} snapshot that is rebuilt in the
+ * background every {@code app.search.suggest.refresh-ms}, together with the search counts
+ * (estimates from {@link TrendingKeywordTracker} once it is loaded, a GROUP BY over
+ * {@code search_history} before that).
+ * Recipe writes are therefore visible in suggestions after the next refresh, and likes
+ * given since the last full index rebuild are not counted.
+ * </p>
+ */
+@Component
+public class RecipeSuggestIndex implements RecipeIndexer {
+
+    /**
+     * Weight of one past search for a phrase, relative to one like or one recipe.
+     */
+    static final int SEARCH_WEIGHT = 5;
+
+    private final SearchHistoryRepository searchHistoryRepository;
+    private final TrendingKeywordTracker trendingKeywordTracker;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    private Phrases live = new Phrases();
+    private Phrases building;
+    private ToLongFunction<String> searchCounts = key -> 0L;
+    private volatile PrefixSuggester suggester = PrefixSuggester.EMPTY;
+    private volatile long lastRefreshMillis = -1;
+    private volatile boolean ready;
+
+    public RecipeSuggestIndex(SearchHistoryRepository searchHistoryRepository,
+                              TrendingKeywordTracker trendingKeywordTracker) {
+        this.searchHistoryRepository = searchHistoryRepository;
+        this.trendingKeywordTracker = trendingKeywordTracker;
+    }
+
+    /**
+     * Completions for a search box prefix.
+     *
+     * @param prefix text typed so far, accents optional
+     * @param limit maximum number of completions
+     * @return completions, most popular first (empty until the index is built)
+     */
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        for (PrefixSuggester.Candidate candidate : suggester.complete(TextNormalizer.foldPhrase(prefix), limit)) {
+            suggestions.add(new SuggestionDTO(candidate.getText(), candidate.getType()));
+        }
+        queries.increment();
+        queryNanos.add(System.nanoTime() - start);
+        return suggestions;
+    }
+
+    /**
+     * Reload search counts and rebuild the completion snapshot.
+     */
+    @Scheduled(fixedDelayString = "${app.search.suggest.refresh-ms:300000}",
+               initialDelayString = "${app.search.suggest.refresh-ms:300000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        try {
+            ToLongFunction<String> counts = loadSearchCounts();
+            synchronized (this) {
+                searchCounts = counts;
+            }
+            rebuildSuggester();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to refresh search suggestions: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "suggest";
+    }
+
+    @Override
+    public void beginRebuild() {
+        building = new Phrases();
+    }
+
+    @Override
+    public void addToRebuild(List<RecipeDocument> documents) {
+        for (RecipeDocument document : documents) {
+            building.add(document);
+        }
+    }
+
+    @Override
+    public void finishRebuild() {
+        ToLongFunction<String> counts = loadSearchCounts();
+        synchronized (this) {
+            live = building;
+            searchCounts = counts;
+        }
+        building = null;
+        rebuildSuggester();
+        ready = true;
+    }
+
+    @Override
+    public synchronized void upsert(RecipeDocument document) {
+        live.add(document);
+    }
+
+    @Override
+    public synchronized void remove(Long recipeId) {
+        live.remove(recipeId);
+    }
+
+    @Override
+    public boolean usesCounters() {
+        return true;
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        PrefixSuggester current = suggester;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("phrases", current.size());
+        stats.put("entries", current.entries());
+        stats.put("ready", ready);
+        stats.put("lastRefreshMs", lastRefreshMillis);
+        long count = queries.sum();
+        stats.put("queryCount", count);
+        stats.put("averageQueryMicros", count > 0 ? queryNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    private ToLongFunction<String> loadSearchCounts() {
+        if (trendingKeywordTracker.isReady()) {
+            return trendingKeywordTracker::estimate;
+        }
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : searchHistoryRepository.findTrendingSearchKeywords()) {
+            String key = TextNormalizer.foldPhrase((String) row[0]);
+            if (!key.isEmpty()) {
+                counts.merge(key, ((Number) row[1]).longValue(), Long::sum);
+            }
+        }
+        return key -> counts.getOrDefault(key, 0L);
+    }
+
+    /**
+     * Take the current phrases and weights (under the lock) and build a new snapshot from
+     * them (outside the lock, so writes are not blocked by the sort).
+     */
+    private void rebuildSuggester() {
+        long start = System.currentTimeMillis();
+        List<PrefixSuggester.Candidate> candidates;
+        synchronized (this) {
+            candidates = live.toCandidates(searchCounts);
+        }
+        suggester = new PrefixSuggester(candidates);
+        lastRefreshMillis = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Phrases of all indexed recipes. Not thread-safe; guarded by the enclosing instance.
+     */
+    private static final class Phrases {
+
+        private final Map<String, Phrase> phrases = new HashMap<>();
+        private final Map<Long, RecipePhrases> byRecipe = new HashMap<>();
+
+        void add(RecipeDocument document) {
+            remove(document.getId());
+
+            RecipePhrases entry = new RecipePhrases();
+            entry.likes = document.getLikesCount() != null ? document.getLikesCount() : 0;
+            entry.titleKey = TextNormalizer.foldPhrase(document.getTitle());
+            if (!entry.titleKey.isEmpty()) {
+                Phrase phrase = phrases.computeIfAbsent(entry.titleKey, key -> new Phrase(document.getTitle().trim()));
+                phrase.titleRecipes++;
+                phrase.likes += entry.likes;
+            }
+            if (document.getIngredientNames() != null) {
+                for (String name : document.getIngredientNames()) {
+                    String key = TextNormalizer.foldPhrase(name);
+                    if (!key.isEmpty() && entry.ingredientKeys.add(key)) {
+                        phrases.computeIfAbsent(key, k -> new Phrase(name.trim())).ingredientRecipes++;
+                    }
+                }
+            }
+            byRecipe.put(document.getId(), entry);
+        }
+
+        void remove(Long recipeId) {
+            RecipePhrases entry = byRecipe.remove(recipeId);
+            if (entry == null) {
+                return;
+            }
+            Phrase title = phrases.get(entry.titleKey);
+            if (title != null) {
+                title.titleRecipes--;
+                title.likes -= entry.likes;
+                removeIfUnused(entry.titleKey, title);
+            }
+            for (String key : entry.ingredientKeys) {
+                Phrase ingredient = phrases.get(key);
+                if (ingredient != null) {
+                    ingredient.ingredientRecipes--;
+                    removeIfUnused(key, ingredient);
+                }
+            }
+        }
+
+        List<PrefixSuggester.Candidate> toCandidates(ToLongFunction<String> searchCounts) {
+            List<PrefixSuggester.Candidate> candidates = new ArrayList<>(phrases.size());
+            for (Map.Entry<String, Phrase> entry : phrases.entrySet()) {
+                Phrase phrase = entry.getValue();
+                long weight = phrase.titleRecipes + phrase.ingredientRecipes + Math.max(0, phrase.likes)
+                        + SEARCH_WEIGHT * searchCounts.applyAsLong(entry.getKey());
+                String type = phrase.titleRecipes > 0 ? SuggestionDTO.TYPE_RECIPE : SuggestionDTO.TYPE_INGREDIENT;
+                candidates.add(new PrefixSuggester.Candidate(phrase.text, entry.getKey(), type, weight));
+            }
+            return candidates;
+        }
+
+        private void removeIfUnused(String key, Phrase phrase) {
+            if (phrase.titleRecipes <= 0 && phrase.ingredientRecipes <= 0) {
+                phrases.remove(key);
+            }
+        }
+    }
+
+    private static final class Phrase {
+
+        private final String text;
+        private int titleRecipes;
+        private int ingredientRecipes;
+        private long likes;
+
+        Phrase(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class RecipePhrases {
+
+        private String titleKey = "";
+        private int likes;
+        private final Set<String> ingredientKeys = new LinkedHashSet<>();
+    }
+}
@@ -0,0 +1,536 @@
+package com.dao.cookbook.search;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory inverted index over recipe titles and ingredient names, ranked with BM25.
+ * <p>
+ * Text is folded with {@link TextNormalizer}, so "pho bo" matches "Phở Bò". Title tokens
+ * count {@value #TITLE_WEIGHT} times as much as ingredient tokens. A search returns recipe
+ * IDs only; callers hydrate them from the database.
+ * </p>
+ * <p>
+ * Each recipe gets an internal ordinal when it is indexed, and postings lists are kept in
+ * ordinal order so a query is answered by merging the lists of its terms. Removing or
+ * re-indexing a recipe marks its old ordinal as deleted. Deleted entries are dropped from
+ * the postings lists, and the remaining ordinals renumbered, once they exceed a quarter
+ * of the live documents; until then document frequencies (and so IDF) are slightly
+ * overestimated.
+ * </p>
+ */
+@Component
+public class RecipeTextIndex implements RecipeIndexer {
+
+    /**
+     * BM25 term frequency saturation.
+     */
+    private static final float K1 = 1.2f;
+
+    /**
+     * BM25 document length normalization.
+     */
+    private static final float B = 0.75f;
+
+    /**
+     * Weight of a title token; ingredient tokens count once.
+     */
+    static final int TITLE_WEIGHT = 2;
+
+    /**
+     * Lowest score first, then lowest recipe ID, i.e. the head is the first to be dropped.
+     */
+    private static final Comparator<ScoredDocument> WORST_FIRST = Comparator
+            .comparingDouble((ScoredDocument d) -> d.score)
+            .thenComparingLong(d -> d.recipeId);
+
+    private final int defaultLimit;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    private Index live = new Index();
+    private Index building;
+    private long rebuildStartedAt;
+    private volatile long lastRebuildMillis = -1;
+    private volatile boolean ready;
+
+    public RecipeTextIndex(@Value("${app.search.max-results:100}") int defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    /**
+     * Search with the configured maximum number of results.
+     *
+     * @see #search(String, int)
+     */
+    public List<Long> search(String query) {
+        return search(query, defaultLimit);
+    }
+
+    /**
+     * Find the best matching recipes for a free-text query.
+     * A recipe matches if it contains at least one query token; recipes matching more
+     * (and rarer) tokens rank higher. Ties are broken by newest recipe ID.
+     *
+     * @param query free-text query, accents optional
+     * @param limit maximum number of results
+     * @return recipe IDs, best match first
+     */
+    public List<Long> search(String query, int limit) {
+        long start = System.nanoTime();
+        List<String> terms = TextNormalizer.tokenize(query).stream()
+                .distinct()
+                .collect(Collectors.toList());
+        if (terms.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            return live.search(terms, limit);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * All recipes containing at least one token of the query, unranked: the union of the
+     * query tokens' postings lists, without scoring.
+     *
+     * @param query free-text query, accents optional
+     * @return a new bitmap of recipe IDs owned by the caller; IDs beyond the int range are
+     * left out, as in {@link RecipeFacetIndex}
+     */
+    public RoaringBitmap matchBitmap(String query) {
+        long start = System.nanoTime();
+        List<String> terms = TextNormalizer.tokenize(query).stream()
+                .distinct()
+                .collect(Collectors.toList());
+        if (terms.isEmpty()) {
+            return new RoaringBitmap();
+        }
+
+        lock.readLock().lock();
+        try {
+            return live.match(terms);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "text";
+    }
+
+    @Override
+    public void beginRebuild() {
+        building = new Index();
+        rebuildStartedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void addToRebuild(List<RecipeDocument> documents) {
+        for (RecipeDocument document : documents) {
+            building.add(document);
+        }
+    }
+
+    @Override
+    public void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            live = building;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        building = null;
+        lastRebuildMillis = System.currentTimeMillis() - rebuildStartedAt;
+        ready = true;
+    }
+
+    @Override
+    public void upsert(RecipeDocument document) {
+        lock.writeLock().lock();
+        try {
+            live.add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            live.remove(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", live.liveDocuments);
+            stats.put("terms", live.postings.size());
+            stats.put("ordinals", live.nextOrdinal);
+            stats.put("pendingDeletes", live.deletedSinceCompaction);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = searches.sum();
+        stats.put("ready", ready);
+        stats.put("lastRebuildMs", lastRebuildMillis);
+        stats.put("searchCount", count);
+        stats.put("averageSearchMicros", count > 0 ? searchNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    /**
+     * One generation of the index. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static final class Index {
+
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final Map<Long, Integer> ordinalsById = new HashMap<>();
+        private final BitSet deleted = new BitSet();
+        private long[] recipeIds = new long[1024];
+        private int[] lengths = new int[1024];
+        private int nextOrdinal;
+        private int liveDocuments;
+        private long liveLength;
+        private int deletedSinceCompaction;
+
+        void add(RecipeDocument document) {
+            remove(document.getId());
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = 0;
+            for (String token : TextNormalizer.tokenize(document.getTitle())) {
+                frequencies.merge(token, TITLE_WEIGHT, Integer::sum);
+                length += TITLE_WEIGHT;
+            }
+            if (document.getIngredientNames() != null) {
+                for (String name : document.getIngredientNames()) {
+                    for (String token : TextNormalizer.tokenize(name)) {
+                        frequencies.merge(token, 1, Integer::sum);
+                        length++;
+                    }
+                }
+            }
+
+            int ordinal = nextOrdinal++;
+            if (ordinal == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, ordinal * 2);
+                lengths = Arrays.copyOf(lengths, ordinal * 2);
+            }
+            recipeIds[ordinal] = document.getId();
+            lengths[ordinal] = length;
+            ordinalsById.put(document.getId(), ordinal);
+            liveDocuments++;
+            liveLength += length;
+
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), key -> new Postings())
+                        .add(ordinal, entry.getValue());
+            }
+        }
+
+        void remove(Long recipeId) {
+            Integer ordinal = ordinalsById.remove(recipeId);
+            if (ordinal == null) {
+                return;
+            }
+            deleted.set(ordinal);
+            liveDocuments--;
+            liveLength -= lengths[ordinal];
+            deletedSinceCompaction++;
+            if (deletedSinceCompaction > 1024 && deletedSinceCompaction > liveDocuments / 4) {
+                compact();
+            }
+        }
+
+        /**
+         * Drop deleted ordinals from every postings list and renumber the live ones
+         * consecutively, in the same order, so their slots are reused.
+         */
+        private void compact() {
+            int[] ordinalMap = new int[nextOrdinal];
+            int kept = 0;
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (deleted.get(ordinal)) {
+                    ordinalMap[ordinal] = -1;
+                    continue;
+                }
+                ordinalMap[ordinal] = kept;
+                recipeIds[kept] = recipeIds[ordinal];
+                lengths[kept] = lengths[ordinal];
+                kept++;
+            }
+            ordinalsById.replaceAll((recipeId, ordinal) -> ordinalMap[ordinal]);
+            Iterator<Postings> iterator = postings.values().iterator();
+            while (iterator.hasNext()) {
+                Postings list = iterator.next();
+                list.renumber(ordinalMap);
+                if (list.size == 0) {
+                    iterator.remove();
+                }
+            }
+            nextOrdinal = kept;
+            deleted.clear();
+            deletedSinceCompaction = 0;
+        }
+
+        RoaringBitmap match(List<String> terms) {
+            RoaringBitmap ordinals = new RoaringBitmap();
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    ordinals.addN(list.ordinals, 0, list.size);
+                }
+            }
+            int[] ids = new int[ordinals.getCardinality()];
+            int count = 0;
+            IntIterator iterator = ordinals.getIntIterator();
+            while (iterator.hasNext()) {
+                int ordinal = iterator.next();
+                long recipeId = recipeIds[ordinal];
+                if (!deleted.get(ordinal) && recipeId <= Integer.MAX_VALUE) {
+                    ids[count++] = (int) recipeId;
+                }
+            }
+            // Ordinals follow indexing order, not ID order
+            return RoaringBitmap.bitmapOfUnordered(Arrays.copyOf(ids, count));
+        }
+
+        /**
+         * Top-k BM25 search using MaxScore pruning: once {@code limit} candidates are held,
+         * lists whose combined upper bound cannot beat the weakest of them are no longer
+         * scanned, only probed for documents found through the other lists.
+         */
+        List<Long> search(List<String> terms, int limit) {
+            List<Postings> found = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    found.add(list);
+                }
+            }
+            if (found.isEmpty() || liveDocuments == 0) {
+                return new ArrayList<>();
+            }
+
+            // Per-term IDF and score upper bound, lists sorted by ascending upper bound
+            int count = found.size();
+            Postings[] lists = new Postings[count];
+            float[] idfs = new float[count];
+            float[] upperBounds = new float[count];
+            Integer[] order = new Integer[count];
+            float[] unsortedIdfs = new float[count];
+            float[] unsortedBounds = new float[count];
+            for (int i = 0; i < count; i++) {
+                Postings list = found.get(i);
+                int df = Math.min(list.size, liveDocuments);
+                unsortedIdfs[i] = (float) Math.log(1 + (liveDocuments - df + 0.5) / (df + 0.5));
+                unsortedBounds[i] = unsortedIdfs[i] * list.maxFrequency * (K1 + 1)
+                        / (list.maxFrequency + K1 * (1 - B));
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> unsortedBounds[i]));
+            float[] cumulativeBounds = new float[count];
+            for (int i = 0; i < count; i++) {
+                lists[i] = found.get(order[i]);
+                idfs[i] = unsortedIdfs[order[i]];
+                upperBounds[i] = unsortedBounds[order[i]];
+                cumulativeBounds[i] = upperBounds[i] + (i > 0 ? cumulativeBounds[i - 1] : 0);
+            }
+
+            float averageLength = Math.max(1f, (float) liveLength / liveDocuments);
+            int[] positions = new int[count];
+            PriorityQueue<ScoredDocument> top = new PriorityQueue<>(Math.min(limit, 1024), WORST_FIRST);
+            float threshold = Float.NEGATIVE_INFINITY;
+            // Lists below this index are "non-essential": a document found only in them cannot make the top
+            int firstEssential = 0;
+
+            while (true) {
+                int ordinal = Integer.MAX_VALUE;
+                for (int i = firstEssential; i < count; i++) {
+                    if (positions[i] < lists[i].size) {
+                        ordinal = Math.min(ordinal, lists[i].ordinals[positions[i]]);
+                    }
+                }
+                if (ordinal == Integer.MAX_VALUE) {
+                    break;
+                }
+
+                float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                float score = 0;
+                for (int i = firstEssential; i < count; i++) {
+                    Postings list = lists[i];
+                    if (positions[i] < list.size && list.ordinals[positions[i]] == ordinal) {
+                        int tf = list.frequencies[positions[i]];
+                        score += idfs[i] * tf * (K1 + 1) / (tf + norm);
+                        positions[i]++;
+                    }
+                }
+                if (deleted.get(ordinal)) {
+                    continue;
+                }
+
+                // Probe the non-essential lists, strongest first, while the document can still qualify
+                boolean pruned = false;
+                for (int i = firstEssential - 1; i >= 0; i--) {
+                    if (score + cumulativeBounds[i] < threshold) {
+                        pruned = true;
+                        break;
+                    }
+                    Postings list = lists[i];
+                    positions[i] = list.advance(positions[i], ordinal);
+                    if (positions[i] < list.size && list.ordinals[positions[i]] == ordinal) {
+                        int tf = list.frequencies[positions[i]];
+                        score += idfs[i] * tf * (K1 + 1) / (tf + norm);
+                        positions[i]++;
+                    }
+                }
+                if (pruned || score < threshold) {
+                    continue;
+                }
+
+                long recipeId = recipeIds[ordinal];
+                if (top.size() < limit) {
+                    top.add(new ScoredDocument(recipeId, score));
+                } else {
+                    ScoredDocument weakest = top.peek();
+                    if (score < weakest.score || (score == weakest.score && recipeId < weakest.recipeId)) {
+                        continue;
+                    }
+                    top.poll();
+                    top.add(new ScoredDocument(recipeId, score));
+                }
+                if (top.size() == limit) {
+                    threshold = top.peek().score;
+                    while (firstEssential < count && cumulativeBounds[firstEssential] < threshold) {
+                        firstEssential++;
+                    }
+                }
+            }
+
+            List<ScoredDocument> ranked = new ArrayList<>(top);
+            ranked.sort(WORST_FIRST.reversed());
+            List<Long> result = new ArrayList<>(ranked.size());
+            for (ScoredDocument document : ranked) {
+                result.add(document.recipeId);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Ordinals and term frequencies of the documents containing one term, in ordinal order.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int maxFrequency;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+            maxFrequency = Math.max(maxFrequency, frequency);
+        }
+
+        /**
+         * Position of the first entry at or after {@code from} whose ordinal is at least
+         * {@code target} (galloping, then binary search), or {@code size} if there is none.
+         */
+        int advance(int from, int target) {
+            if (from >= size || ordinals[from] >= target) {
+                return from;
+            }
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < size && ordinals[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            high = Math.min(high, size);
+            // ordinals[low] < target, and ordinals[high] >= target or high == size
+            while (low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if (ordinals[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            return high;
+        }
+
+        /**
+         * Drop the entries of removed ordinals and renumber the others.
+         *
+         * @param ordinalMap new ordinal of each old one, increasing, or -1 if removed
+         */
+        void renumber(int[] ordinalMap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int ordinal = ordinalMap[ordinals[i]];
+                if (ordinal >= 0) {
+                    ordinals[kept] = ordinal;
+                    frequencies[kept] = frequencies[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    private static final class ScoredDocument {
+
+        private final long recipeId;
+        private final float score;
+
+        ScoredDocument(long recipeId, float score) {
+            this.recipeId = recipeId;
+            this.score = score;
+        }
+    }
+}
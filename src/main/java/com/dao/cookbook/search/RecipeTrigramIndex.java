@@ -0,0 +1,722 @@
+package com.dao.cookbook.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory trigram index over recipe titles, for typo-tolerant ("fuzzy") title search.
+ * <p>
+ * Titles are folded with {@link TextNormalizer} and each token is padded like
+ * PostgreSQL's pg_trgm ({@code "  banh "}), so "banh mi" still shares most of its
+ * trigrams with "Bánh mỳ" and "bun bo heu" with "Bún bò Huế". A title matches when the
+ * similarity |Q ∩ T| / |Q ∪ T| of the query and title trigram sets reaches
+ * {@code app.search.fuzzy.min-similarity}.
+ * </p>
+ * <p>
+ * Each distinct folded title is indexed once, with the IDs of the recipes using it, so
+ * popular titles ("Phở bò") do not multiply the work. Postings lists are kept per title
+ * length (number of trigrams). For a given length a match must share a known minimum
+ * number of trigrams with the query, so candidates are only collected from the rarest
+ * query trigrams; the most common ones (such as a leading {@code "  b"}) are only probed
+ * for those candidates. Lengths are searched from the closest to the query's outwards,
+ * stopping once no title of the remaining lengths can beat the current top results.
+ * </p>
+ * <p>
+ * A full rebuild collects the titles first and then folds them and builds the postings
+ * lists in parallel, one shard per core, before merging the shards.
+ * </p>
+ */
+@Component
+public class RecipeTrigramIndex implements RecipeIndexer {
+
+    /**
+     * Highest similarity first, then newest recipe.
+     */
+    private static final Comparator<ScoredDocument> BEST_FIRST = Comparator
+            .comparingDouble((ScoredDocument d) -> d.score)
+            .thenComparingLong(d -> d.recipeId)
+            .reversed();
+
+    /**
+     * Trigrams kept per title (and query); the count is part of the postings key.
+     */
+    private static final int MAX_TITLE_TRIGRAMS = 0xFFFF;
+
+    /**
+     * Minimum number of titles per shard in a parallel build.
+     */
+    private static final int MIN_SHARD_SIZE = 10_000;
+
+    private final int defaultLimit;
+    private final float minSimilarity;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+
+    private Index live = new Index();
+    private List<Long> buildingIds;
+    private List<String> buildingTitles;
+    private long rebuildStartedAt;
+    private volatile long lastRebuildMillis = -1;
+    private volatile boolean ready;
+
+    public RecipeTrigramIndex(@Value("${app.search.max-results:100}") int defaultLimit,
+                              @Value("${app.search.fuzzy.min-similarity:0.3}") float minSimilarity) {
+        this.defaultLimit = defaultLimit;
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * Search with the configured maximum number of results.
+     *
+     * @see #search(String, int)
+     */
+    public List<Long> search(String query) {
+        return search(query, defaultLimit);
+    }
+
+    /**
+     * Find the recipes whose titles are most similar to the query.
+     *
+     * @param query title as typed, possibly misspelled, accents optional
+     * @param limit maximum number of results
+     * @return recipe IDs, most similar first (ties: newest recipe ID first)
+     */
+    public List<Long> search(String query, int limit) {
+        long start = System.nanoTime();
+        long[] trigrams = trigrams(titleKey(query));
+        if (trigrams.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            return live.search(trigrams, limit, minSimilarity);
+        } finally {
+            lock.readLock().unlock();
+            searches.increment();
+            searchNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "trigram";
+    }
+
+    @Override
+    public void beginRebuild() {
+        buildingIds = new ArrayList<>();
+        buildingTitles = new ArrayList<>();
+        rebuildStartedAt = System.currentTimeMillis();
+    }
+
+    @Override
+    public void addToRebuild(List<RecipeDocument> documents) {
+        for (RecipeDocument document : documents) {
+            buildingIds.add(document.getId());
+            buildingTitles.add(document.getTitle());
+        }
+    }
+
+    @Override
+    public void finishRebuild() {
+        Index built = Index.build(buildingIds, buildingTitles);
+        lock.writeLock().lock();
+        try {
+            live = built;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buildingIds = null;
+        buildingTitles = null;
+        lastRebuildMillis = System.currentTimeMillis() - rebuildStartedAt;
+        ready = true;
+    }
+
+    @Override
+    public void upsert(RecipeDocument document) {
+        String key = titleKey(document.getTitle());
+        long[] trigrams = trigrams(key);
+        lock.writeLock().lock();
+        try {
+            live.add(document.getId(), key, trigrams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long recipeId) {
+        lock.writeLock().lock();
+        try {
+            live.remove(recipeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("documents", live.titlesByRecipe.size());
+            stats.put("titles", live.ordinalsByKey.size());
+            stats.put("postingsLists", live.postings.size());
+            stats.put("ordinals", live.nextOrdinal);
+            stats.put("pendingDeletes", live.deletedSinceCompaction);
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = searches.sum();
+        stats.put("ready", ready);
+        stats.put("lastRebuildMs", lastRebuildMillis);
+        stats.put("searchCount", count);
+        stats.put("averageSearchMicros", count > 0 ? searchNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    /**
+     * Folded tokens of a title joined by single spaces; titles with the same key are indexed once.
+     */
+    static String titleKey(String title) {
+        return String.join(" ", TextNormalizer.tokenize(title));
+    }
+
+    /**
+     * Distinct padded trigrams of a title key, each packed into a long, sorted.
+     */
+    static long[] trigrams(String key) {
+        if (key.isEmpty()) {
+            return new long[0];
+        }
+        long[] trigrams = new long[key.length() * 3 + 3];
+        int count = 0;
+        for (String token : key.split(" ")) {
+            String padded = "  " + token + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams[count++] = ((long) padded.charAt(i) << 32)
+                        | ((long) padded.charAt(i + 1) << 16)
+                        | padded.charAt(i + 2);
+            }
+        }
+        Arrays.sort(trigrams, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (trigrams[i] != trigrams[distinct - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, Math.min(distinct, MAX_TITLE_TRIGRAMS));
+    }
+
+    /**
+     * Postings key of a trigram within the titles having the given number of trigrams.
+     */
+    private static long key(int titleTrigrams, long trigram) {
+        return ((long) titleTrigrams << 48) | trigram;
+    }
+
+    /**
+     * Highest similarity a title with the given number of trigrams can have with the query.
+     */
+    private static float maxSimilarity(int queryTrigrams, int titleTrigrams) {
+        return (float) Math.min(queryTrigrams, titleTrigrams) / Math.max(queryTrigrams, titleTrigrams);
+    }
+
+    /**
+     * Smallest number of shared trigrams giving the minimum similarity for the given set sizes.
+     */
+    private static int requiredShared(int queryTrigrams, int titleTrigrams, float minSimilarity) {
+        return (int) Math.ceil(minSimilarity * (queryTrigrams + titleTrigrams) / (1 + minSimilarity) - 1e-6);
+    }
+
+    /**
+     * One generation of the index. Not thread-safe; guarded by the enclosing lock.
+     */
+    private static final class Index {
+
+        /**
+         * Postings of title ordinals by {@link #key(int, long)}: titles are partitioned by
+         * their number of trigrams.
+         */
+        private final Map<Long, Postings> postings;
+        private final Map<String, Integer> ordinalsByKey;
+        private final Map<Long, Integer> titlesByRecipe;
+        private final BitSet deleted = new BitSet();
+        private Title[] titles;
+        private int nextOrdinal;
+        private int deletedSinceCompaction;
+
+        Index() {
+            this(new HashMap<>(), new HashMap<>(), new HashMap<>(), new Title[1024], 0);
+        }
+
+        private Index(Map<Long, Postings> postings, Map<String, Integer> ordinalsByKey,
+                      Map<Long, Integer> titlesByRecipe, Title[] titles, int nextOrdinal) {
+            this.postings = postings;
+            this.ordinalsByKey = ordinalsByKey;
+            this.titlesByRecipe = titlesByRecipe;
+            this.titles = titles;
+            this.nextOrdinal = nextOrdinal;
+        }
+
+        /**
+         * Build an index over the given recipes, folding the titles and building the
+         * postings lists on all cores.
+         */
+        static Index build(List<Long> ids, List<String> rawTitles) {
+            int documents = ids.size();
+            String[] keys = new String[documents];
+            IntStream.range(0, documents).parallel()
+                    .forEach(i -> keys[i] = titleKey(rawTitles.get(i)));
+
+            // Distinct titles, ordinals in order of first use
+            Map<String, Integer> ordinalsByKey = new HashMap<>();
+            Map<Long, Integer> titlesByRecipe = new HashMap<>(documents * 2);
+            List<Title> distinct = new ArrayList<>();
+            for (int i = 0; i < documents; i++) {
+                if (keys[i].isEmpty()) {
+                    continue;
+                }
+                Integer ordinal = ordinalsByKey.get(keys[i]);
+                if (ordinal == null) {
+                    ordinal = distinct.size();
+                    ordinalsByKey.put(keys[i], ordinal);
+                    distinct.add(new Title(keys[i]));
+                }
+                distinct.get(ordinal).addRecipe(ids.get(i));
+                titlesByRecipe.put(ids.get(i), ordinal);
+            }
+
+            int count = distinct.size();
+            Title[] titles = distinct.toArray(new Title[Math.max(1024, count)]);
+            int shards = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), count / MIN_SHARD_SIZE));
+            int shardSize = (count + shards - 1) / shards;
+            List<Map<Long, Postings>> shardPostings = IntStream.range(0, shards)
+                    .parallel()
+                    .mapToObj(shard -> {
+                        Map<Long, Postings> local = new HashMap<>();
+                        int end = Math.min(count, (shard + 1) * shardSize);
+                        for (int ordinal = shard * shardSize; ordinal < end; ordinal++) {
+                            long[] trigrams = trigrams(titles[ordinal].key);
+                            for (long trigram : trigrams) {
+                                local.computeIfAbsent(key(trigrams.length, trigram), k -> new Postings()).add(ordinal);
+                            }
+                        }
+                        return local;
+                    })
+                    .toList();
+
+            // Shards cover increasing ordinal ranges, so appending them in order keeps each list sorted
+            Map<Long, Postings> postings = new HashMap<>();
+            for (Map<Long, Postings> local : shardPostings) {
+                for (Map.Entry<Long, Postings> entry : local.entrySet()) {
+                    Postings merged = postings.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (merged != null) {
+                        merged.addAll(entry.getValue());
+                    }
+                }
+            }
+            return new Index(postings, ordinalsByKey, titlesByRecipe, titles, count);
+        }
+
+        void add(Long recipeId, String key, long[] trigrams) {
+            Integer current = titlesByRecipe.get(recipeId);
+            if (current != null && titles[current].key.equals(key)) {
+                // Title unchanged: keep the recipe where it is
+                return;
+            }
+            remove(recipeId);
+            if (key.isEmpty()) {
+                return;
+            }
+
+            Integer ordinal = ordinalsByKey.get(key);
+            if (ordinal == null) {
+                ordinal = nextOrdinal++;
+                if (ordinal == titles.length) {
+                    titles = Arrays.copyOf(titles, ordinal * 2);
+                }
+                titles[ordinal] = new Title(key);
+                ordinalsByKey.put(key, ordinal);
+                for (long trigram : trigrams) {
+                    postings.computeIfAbsent(key(trigrams.length, trigram), k -> new Postings()).add(ordinal);
+                }
+            }
+            titles[ordinal].addRecipe(recipeId);
+            titlesByRecipe.put(recipeId, ordinal);
+        }
+
+        void remove(Long recipeId) {
+            Integer ordinal = titlesByRecipe.remove(recipeId);
+            if (ordinal == null) {
+                return;
+            }
+            Title title = titles[ordinal];
+            title.removeRecipe(recipeId);
+            if (title.recipeCount > 0) {
+                return;
+            }
+
+            // Last recipe with this title: drop the title
+            ordinalsByKey.remove(title.key);
+            titles[ordinal] = null;
+            deleted.set(ordinal);
+            deletedSinceCompaction++;
+            if (deletedSinceCompaction > 1024 && deletedSinceCompaction > ordinalsByKey.size() / 4) {
+                compact();
+            }
+        }
+
+        /**
+         * Drop deleted ordinals from every postings list and renumber the live titles
+         * consecutively, in the same order, so their slots are reused.
+         */
+        private void compact() {
+            int[] ordinalMap = new int[nextOrdinal];
+            int kept = 0;
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (deleted.get(ordinal)) {
+                    ordinalMap[ordinal] = -1;
+                    continue;
+                }
+                ordinalMap[ordinal] = kept;
+                titles[kept++] = titles[ordinal];
+            }
+            Arrays.fill(titles, kept, nextOrdinal, null);
+            ordinalsByKey.replaceAll((key, ordinal) -> ordinalMap[ordinal]);
+            titlesByRecipe.replaceAll((recipeId, ordinal) -> ordinalMap[ordinal]);
+            Iterator<Postings> iterator = postings.values().iterator();
+            while (iterator.hasNext()) {
+                Postings list = iterator.next();
+                list.renumber(ordinalMap);
+                if (list.size == 0) {
+                    iterator.remove();
+                }
+            }
+            nextOrdinal = kept;
+            deleted.clear();
+            deletedSinceCompaction = 0;
+        }
+
+        /**
+         * Top-k recipes by title similarity. Title lengths are visited from the highest
+         * possible similarity down, and the search stops once that bound falls below the
+         * similarity of the k-th recipe found so far; the rising threshold also raises the
+         * number of shared trigrams required, so fewer lists are scanned for each length.
+         */
+        List<Long> search(long[] trigrams, int limit, float minSimilarity) {
+            int queryTrigrams = trigrams.length;
+            int minLength = Math.max(1, (int) Math.ceil(minSimilarity * queryTrigrams - 1e-6));
+            int maxLength = (int) Math.min(MAX_TITLE_TRIGRAMS, Math.floor(queryTrigrams / minSimilarity + 1e-6));
+            List<Integer> lengths = new ArrayList<>();
+            for (int length = minLength; length <= maxLength; length++) {
+                lengths.add(length);
+            }
+            lengths.sort(Comparator.comparingDouble(length -> -maxSimilarity(queryTrigrams, length)));
+
+            SharedCounts shared = new SharedCounts();
+            int[] touched = new int[64];
+            List<Postings> found = new ArrayList<>(queryTrigrams);
+            // Matching titles, worst first, holding just enough recipes to fill the limit
+            PriorityQueue<ScoredDocument> top = new PriorityQueue<>(BEST_FIRST.reversed());
+            int topRecipes = 0;
+
+            for (int length : lengths) {
+                float threshold = topRecipes >= limit ? Math.max(minSimilarity, top.peek().score) : minSimilarity;
+                if (maxSimilarity(queryTrigrams, length) < threshold) {
+                    break;
+                }
+                int required = requiredShared(queryTrigrams, length, threshold);
+
+                // Query trigrams missing from titles of this length can never be shared
+                found.clear();
+                for (long trigram : trigrams) {
+                    Postings list = postings.get(key(length, trigram));
+                    if (list != null) {
+                        found.add(list);
+                    }
+                }
+                if (found.size() < required) {
+                    continue;
+                }
+                found.sort(Comparator.comparingInt(list -> list.size));
+
+                // A title absent from the rarest (found - required + 1) lists shares too few trigrams
+                int candidateLists = found.size() - required + 1;
+                int candidates = 0;
+                for (int i = 0; i < candidateLists; i++) {
+                    candidates += found.get(i).size;
+                }
+                shared.reset(candidates);
+                int count = 0;
+                for (int i = 0; i < candidateLists; i++) {
+                    Postings list = found.get(i);
+                    for (int p = 0; p < list.size; p++) {
+                        int ordinal = list.ordinals[p];
+                        if (shared.increment(ordinal) == 1) {
+                            if (count == touched.length) {
+                                touched = Arrays.copyOf(touched, count * 2);
+                            }
+                            touched[count++] = ordinal;
+                        }
+                    }
+                }
+                Arrays.sort(touched, 0, count);
+
+                // Probe the common lists, only for candidates that can still reach the threshold
+                for (int i = candidateLists; i < found.size(); i++) {
+                    Postings list = found.get(i);
+                    int remaining = found.size() - i;
+                    int position = 0;
+                    for (int c = 0; c < count && position < list.size; c++) {
+                        int ordinal = touched[c];
+                        if (shared.get(ordinal) + remaining < required) {
+                            continue;
+                        }
+                        position = list.advance(position, ordinal);
+                        if (position < list.size && list.ordinals[position] == ordinal) {
+                            shared.increment(ordinal);
+                        }
+                    }
+                }
+
+                for (int c = 0; c < count; c++) {
+                    int ordinal = touched[c];
+                    int common = shared.get(ordinal);
+                    float similarity = (float) common / (queryTrigrams + length - common);
+                    if (similarity < minSimilarity || deleted.get(ordinal)
+                            || (topRecipes >= limit && similarity < top.peek().score)) {
+                        continue;
+                    }
+                    Title title = titles[ordinal];
+                    top.add(new ScoredDocument(ordinal, title.newestRecipe(), similarity));
+                    topRecipes += title.recipeCount;
+                    while (topRecipes - titles[top.peek().ordinal].recipeCount >= limit) {
+                        topRecipes -= titles[top.poll().ordinal].recipeCount;
+                    }
+                }
+            }
+
+            // Expand the titles into recipes, newest first among equally similar ones
+            List<ScoredDocument> ranked = new ArrayList<>(topRecipes);
+            for (ScoredDocument match : top) {
+                Title title = titles[match.ordinal];
+                for (int i = 0; i < title.recipeCount; i++) {
+                    ranked.add(new ScoredDocument(match.ordinal, title.recipeIds[i], match.score));
+                }
+            }
+            ranked.sort(BEST_FIRST);
+            List<Long> result = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                result.add(ranked.get(i).recipeId);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Number of query trigrams shared by each candidate title of one title length, by
+     * ordinal. An open-addressing table sized to the candidates, so a search does not
+     * allocate per indexed title. Not thread-safe; one per search.
+     */
+    private static final class SharedCounts {
+
+        /** Ordinal + 1 of each slot, 0 for a free slot */
+        private int[] keys = new int[64];
+        private short[] counts = new short[64];
+        private int[] usedSlots = new int[32];
+        private int size;
+        private int shift = 32 - 6;
+
+        /**
+         * Forget every count and make room for up to {@code expected} ordinals.
+         */
+        void reset(int expected) {
+            for (int i = 0; i < size; i++) {
+                keys[usedSlots[i]] = 0;
+            }
+            size = 0;
+            if (expected * 2 > keys.length) {
+                int capacity = Integer.highestOneBit(expected * 2 - 1) << 1;
+                keys = new int[capacity];
+                counts = new short[capacity];
+                usedSlots = new int[capacity / 2];
+                shift = 32 - Integer.numberOfTrailingZeros(capacity);
+            }
+        }
+
+        /**
+         * @return the ordinal's count after adding one
+         */
+        int increment(int ordinal) {
+            int slot = slot(ordinal);
+            if (keys[slot] == 0) {
+                keys[slot] = ordinal + 1;
+                counts[slot] = 0;
+                usedSlots[size++] = slot;
+            }
+            return ++counts[slot];
+        }
+
+        int get(int ordinal) {
+            int slot = slot(ordinal);
+            return keys[slot] != 0 ? counts[slot] : 0;
+        }
+
+        /**
+         * Slot holding the ordinal, or the free slot where it belongs (linear probing).
+         */
+        private int slot(int ordinal) {
+            int mask = keys.length - 1;
+            int slot = (ordinal * 0x9e3779b9) >>> shift;
+            while (keys[slot] != 0 && keys[slot] != ordinal + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * A distinct title and the recipes using it.
+     */
+    private static final class Title {
+
+        private final String key;
+        private long[] recipeIds = new long[1];
+        private int recipeCount;
+
+        Title(String key) {
+            this.key = key;
+        }
+
+        void addRecipe(long recipeId) {
+            if (recipeCount == recipeIds.length) {
+                recipeIds = Arrays.copyOf(recipeIds, recipeCount * 2);
+            }
+            recipeIds[recipeCount++] = recipeId;
+        }
+
+        void removeRecipe(long recipeId) {
+            for (int i = 0; i < recipeCount; i++) {
+                if (recipeIds[i] == recipeId) {
+                    recipeIds[i] = recipeIds[--recipeCount];
+                    return;
+                }
+            }
+        }
+
+        long newestRecipe() {
+            long newest = Long.MIN_VALUE;
+            for (int i = 0; i < recipeCount; i++) {
+                newest = Math.max(newest, recipeIds[i]);
+            }
+            return newest;
+        }
+    }
+
+    /**
+     * Title ordinals containing one trigram, in ordinal order.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+
+        void addAll(Postings other) {
+            if (size + other.size > ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size + other.size);
+            }
+            System.arraycopy(other.ordinals, 0, ordinals, size, other.size);
+            size += other.size;
+        }
+
+        /**
+         * Position of the first entry at or after {@code from} whose ordinal is at least
+         * {@code target} (galloping, then binary search), or {@code size} if there is none.
+         */
+        int advance(int from, int target) {
+            if (from >= size || ordinals[from] >= target) {
+                return from;
+            }
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < size && ordinals[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            high = Math.min(high, size);
+            while (low + 1 < high) {
+                int middle = (low + high) >>> 1;
+                if (ordinals[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            return high;
+        }
+
+        /**
+         * Drop the entries of removed ordinals and renumber the others.
+         *
+         * @param ordinalMap new ordinal of each old one, increasing, or -1 if removed
+         */
+        void renumber(int[] ordinalMap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int ordinal = ordinalMap[ordinals[i]];
+                if (ordinal >= 0) {
+                    ordinals[kept++] = ordinal;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    /**
+     * A matching title (or one of its recipes) with its similarity to the query.
+     */
+    private static final class ScoredDocument {
+
+        private final int ordinal;
+        private final long recipeId;
+        private final float score;
+
+        ScoredDocument(int ordinal, long recipeId, float score) {
+            this.ordinal = ordinal;
+            this.recipeId = recipeId;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.dao.cookbook.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Text normalization shared by the in-memory search indexes.
+ * <p>
+ * Folding lower-cases the text and strips Vietnamese diacritics ("Phở Bò" becomes
+ * "pho bo", "đậu" becomes "dau"), so queries typed without accents match accented titles.
+ * Tokens are maximal runs of letters and digits of the folded text.
+ * </p>
+ */
+public final class TextNormalizer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Lower-case the text and remove diacritics.
+     *
+     * @param text the text to fold (null is treated as empty)
+     * @return folded text
+     */
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        // "đ" is a separate letter, not "d" plus a combining mark, so NFD does not split it
+        String lower = text.toLowerCase(Locale.ROOT).replace('đ', 'd');
+        String decomposed = Normalizer.normalize(lower, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Fold the text, trim it and collapse runs of whitespace into a single space.
+     * Used for whole-phrase keys such as ingredient names.
+     *
+     * @param text the text to fold (null is treated as empty)
+     * @return folded phrase
+     */
+    public static String foldPhrase(String text) {
+        return WHITESPACE.matcher(fold(text).trim()).replaceAll(" ");
+    }
+
+    /**
+     * Fold the text and split it into tokens.
+     *
+     * @param text the text to tokenize (null is treated as empty)
+     * @return tokens in text order, duplicates included
+     */
+    public static List<String> tokenize(String text) {
+        return split(fold(text));
+    }
+
+    /**
+     * Lower-case the text and split it into tokens, keeping diacritics ("Cá" and "cà" stay
+     * different). Used where two words differ only by their accents, such as ingredient names.
+     *
+     * @param text the text to tokenize (null is treated as empty)
+     * @return tokens in text order, in composed (NFC) form
+     */
+    public static List<String> tokenizeKeepingAccents(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return split(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFC));
+    }
+
+    /**
+     * Maximal runs of letters, digits and combining marks.
+     */
+    private static List<String> split(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(text.substring(start));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,404 @@
+package com.dao.cookbook.search;
+
+import com.dao.cookbook.repository.SearchHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * All-time search keyword counts, kept in memory as searches are recorded.
+ * <p>
+ * Every search is counted in a {@link CountMinSketch} under its folded text (see
+ * {@link TextNormalizer#foldPhrase}), and the {@code app.search.trending.capacity}
+ * keywords with the highest estimates are kept in a sorted set, so the top K are read
+ * in O(K) without touching {@code search_history}. A keyword shows the spelling it was
+ * first seen with. Counts are estimates: they never undercount, and deleting rows from
+ * a user's search history does not lower them.
+ * </p>
+ * <p>
+ * The sketch and top keywords are checkpointed to {@code app.search.trending.dir} every
+ * {@code app.search.trending.checkpoint-interval-ms} and at shutdown. At startup they are
+ * restored from the checkpoint and caught up with the searches made since it was written
+ * (one GROUP BY over the rows after the checkpoint); without a checkpoint they are built
+ * from a GROUP BY over the whole table. Until then {@link #isReady()} is false and
+ * callers use the database.
+ * </p>
+ */
+@Component
+public class TrendingKeywordTracker {
+
+    private static final int MAGIC = 0x54524e44; // "TRND"
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "trending.checkpoint";
+    private static final int SKETCH_WIDTH = 1 << 16;
+    private static final int SKETCH_DEPTH = 4;
+
+    private final SearchHistoryRepository searchHistoryRepository;
+    private final int capacity;
+    private final boolean checkpointEnabled;
+    private final Path file;
+    // Searches recorded in this process have searched_at at or after this time
+    private final long startedAt = System.currentTimeMillis();
+
+    private State live;
+    private volatile boolean ready;
+    private final LongAdder recorded = new LongAdder();
+    private volatile String lastStartupSource;
+    private volatile long lastLoadMillis = -1;
+    private volatile long lastCheckpointMillis = -1;
+    private volatile long lastCheckpointAt = -1;
+
+    public TrendingKeywordTracker(SearchHistoryRepository searchHistoryRepository,
+                                  @Value("${app.search.trending.capacity:200}") int capacity,
+                                  @Value("${app.search.trending.checkpoint-enabled:true}") boolean checkpointEnabled,
+                                  @Value("${app.search.trending.dir:search-snapshot}") String dir) {
+        this.searchHistoryRepository = searchHistoryRepository;
+        this.capacity = capacity;
+        this.checkpointEnabled = checkpointEnabled;
+        this.file = Paths.get(dir).toAbsolutePath().normalize().resolve(FILE_NAME);
+        this.live = new State(capacity);
+    }
+
+    /**
+     * Count one search. Blank queries are ignored.
+     */
+    public void record(String query) {
+        String display = query != null ? query.trim() : "";
+        String key = TextNormalizer.foldPhrase(display);
+        if (key.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            live.add(key, display, 1);
+        }
+        recorded.increment();
+    }
+
+    /**
+     * The most searched keywords, highest count first.
+     *
+     * @param limit maximum number of keywords; at most {@code app.search.trending.capacity}
+     *              are tracked
+     */
+    public synchronized List<Trend> top(int limit) {
+        List<Trend> trends = new ArrayList<>(Math.min(limit, live.ranked.size()));
+        for (Entry entry : live.ranked) {
+            if (trends.size() >= limit) {
+                break;
+            }
+            trends.add(new Trend(entry.display, entry.count));
+        }
+        return trends;
+    }
+
+    /**
+     * Estimated number of searches for a folded phrase, whether or not it is in the top.
+     */
+    public synchronized long estimate(String foldedPhrase) {
+        return live.sketch.estimate(foldedPhrase);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Load the counts in the background once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(this::load, "trending-keywords-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Write the counts to the checkpoint file.
+     */
+    @Scheduled(fixedDelayString = "${app.search.trending.checkpoint-interval-ms:60000}",
+               initialDelayString = "${app.search.trending.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        if (!checkpointEnabled || !ready) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long watermark;
+        long total;
+        long[] counters;
+        List<Entry> entries;
+        synchronized (this) {
+            watermark = System.currentTimeMillis();
+            total = live.sketch.getTotal();
+            counters = live.sketch.getCounters();
+            entries = new ArrayList<>(live.ranked);
+        }
+        try {
+            writeCheckpoint(watermark, total, counters, entries);
+            lastCheckpointAt = watermark;
+            lastCheckpointMillis = System.currentTimeMillis() - start;
+        } catch (IOException e) {
+            System.err.println("Failed to write trending keyword checkpoint " + file + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        checkpoint();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("lastStartupSource", lastStartupSource);
+        stats.put("lastLoadMs", lastLoadMillis);
+        synchronized (this) {
+            stats.put("keywords", live.entries.size());
+            stats.put("totalSearches", live.sketch.getTotal());
+            // Overcount bound that holds with probability 1 - e^-depth
+            stats.put("errorBound", (long) Math.ceil(Math.E / SKETCH_WIDTH * live.sketch.getTotal()));
+        }
+        stats.put("capacity", capacity);
+        stats.put("recordedSinceStartup", recorded.sum());
+        stats.put("checkpointFile", checkpointEnabled ? file.toString() : null);
+        stats.put("lastCheckpointMs", lastCheckpointMillis);
+        stats.put("lastCheckpointAt", lastCheckpointAt > 0 ? new Timestamp(lastCheckpointAt).toString() : null);
+        return stats;
+    }
+
+    /**
+     * Build the counts from the checkpoint plus the searches since, or from the whole
+     * table, then add the searches recorded meanwhile.
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            State loaded = new State(capacity);
+            OptionalLong watermark = readCheckpoint(loaded);
+            Timestamp from = new Timestamp(watermark.orElse(0L));
+            for (Object[] row : searchHistoryRepository.findSearchCountsBetween(from, new Timestamp(startedAt))) {
+                String display = ((String) row[0]).trim();
+                String key = TextNormalizer.foldPhrase(display);
+                if (!key.isEmpty()) {
+                    loaded.add(key, display, ((Number) row[1]).longValue());
+                }
+            }
+            synchronized (this) {
+                loaded.merge(live);
+                live = loaded;
+            }
+            lastStartupSource = watermark.isPresent() ? "checkpoint" : "database";
+            lastLoadMillis = System.currentTimeMillis() - start;
+            ready = true;
+        } catch (RuntimeException e) {
+            System.err.println("Failed to load trending keywords: " + e.getMessage());
+        }
+    }
+
+    private void writeCheckpoint(long watermark, long total, long[] counters, List<Entry> entries) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), FILE_NAME, ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(
+                         new CheckedOutputStream(new BufferedOutputStream(stream, 1 << 16), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(watermark);
+                out.writeInt(SKETCH_WIDTH);
+                out.writeInt(SKETCH_DEPTH);
+                out.writeLong(total);
+                for (long counter : counters) {
+                    out.writeLong(counter);
+                }
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.key);
+                    out.writeUTF(entry.display);
+                }
+                out.flush();
+                out.writeLong(crc.getValue());
+                out.flush();
+                stream.getChannel().force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Restore the sketch and top keywords from the checkpoint into {@code state}.
+     *
+     * @return the checkpoint's watermark, or empty when disabled, missing or unreadable
+     *         (then {@code state} is untouched)
+     */
+    private OptionalLong readCheckpoint(State state) {
+        if (!checkpointEnabled || !Files.isRegularFile(file)) {
+            return OptionalLong.empty();
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring trending keyword checkpoint " + file + ": wrong version");
+                return OptionalLong.empty();
+            }
+            long watermark = in.readLong();
+            if (in.readInt() != SKETCH_WIDTH || in.readInt() != SKETCH_DEPTH) {
+                System.err.println("Ignoring trending keyword checkpoint " + file + ": different sketch size");
+                return OptionalLong.empty();
+            }
+            long total = in.readLong();
+            long[] counters = new long[SKETCH_WIDTH * SKETCH_DEPTH];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = in.readLong();
+            }
+            int count = in.readInt();
+            Map<String, String> displays = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                displays.put(in.readUTF(), in.readUTF());
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                System.err.println("Ignoring trending keyword checkpoint " + file + ": wrong checksum");
+                return OptionalLong.empty();
+            }
+            state.restore(new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH, counters, total), displays);
+            return OptionalLong.of(watermark);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read trending keyword checkpoint " + file + ": " + e.getMessage());
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * A keyword and its estimated search count.
+     */
+    public static final class Trend {
+
+        private final String keyword;
+        private final long count;
+
+        public Trend(String keyword, long count) {
+            this.keyword = keyword;
+            this.count = count;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final String display;
+        private long count;
+
+        private Entry(String key, String display, long count) {
+            this.key = key;
+            this.display = display;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Sketch plus the keywords with the highest estimates. Not thread-safe; guarded by
+     * the enclosing instance.
+     */
+    private static final class State {
+
+        private static final Comparator<Entry> BY_COUNT_DESC = Comparator
+                .comparingLong((Entry entry) -> entry.count).reversed()
+                .thenComparing(entry -> entry.key);
+
+        private final int capacity;
+        private CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final TreeSet<Entry> ranked = new TreeSet<>(BY_COUNT_DESC);
+
+        private State(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void add(String key, String display, long count) {
+            offer(key, display, sketch.add(key, count));
+        }
+
+        /**
+         * Add the other state's counts to this one and re-rank the keywords of both.
+         */
+        void merge(State other) {
+            sketch.merge(other.sketch);
+            Map<String, String> displays = new LinkedHashMap<>();
+            other.ranked.forEach(entry -> displays.put(entry.key, entry.display));
+            ranked.forEach(entry -> displays.put(entry.key, entry.display));
+            rerank(displays);
+        }
+
+        void restore(CountMinSketch restored, Map<String, String> displays) {
+            sketch = restored;
+            rerank(displays);
+        }
+
+        private void rerank(Map<String, String> displays) {
+            entries.clear();
+            ranked.clear();
+            displays.forEach((key, display) -> offer(key, display, sketch.estimate(key)));
+        }
+
+        private void offer(String key, String display, long estimate) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // Re-insert so the set stays sorted
+                ranked.remove(entry);
+                entry.count = estimate;
+                ranked.add(entry);
+                return;
+            }
+            if (entries.size() >= capacity) {
+                Entry lowest = ranked.last();
+                if (estimate <= lowest.count) {
+                    return;
+                }
+                ranked.pollLast();
+                entries.remove(lowest.key);
+            }
+            entry = new Entry(key, display, estimate);
+            entries.put(key, entry);
+            ranked.add(entry);
+        }
+    }
+}
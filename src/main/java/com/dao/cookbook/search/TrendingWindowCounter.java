@@ -0,0 +1,376 @@
+package com.dao.cookbook.search;
+
+import com.dao.cookbook.repository.SearchHistoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Search keyword counts over recent time windows, pre-aggregated in ring buffers.
+ * <p>
+ * Each search is counted under its folded text (see {@link TextNormalizer#foldPhrase}) in
+ * the bucket of its hour and the bucket of its day (server time zone). The last
+ * {@value #HOUR_BUCKETS} hourly buckets answer windows of up to that many hours exactly;
+ * the last {@code app.search.trending.window-days} daily buckets answer "last N days" as
+ * today plus the N - 1 previous days. A window is answered by merging its buckets, never
+ * by scanning {@code search_history}; the hot ranking weighs each hourly bucket by
+ * {@code 0.5^(age / app.search.trending.half-life-hours)}.
+ * </p>
+ * <p>
+ * A bucket keeps at most {@code app.search.trending.bucket-capacity} keywords; when it is
+ * full the keywords with the lowest count in it are dropped (found through the bucket's
+ * count order, without a scan), so rare keywords may be undercounted while trending ones
+ * are not. Buckets are rebuilt at startup with one
+ * GROUP BY per granularity over the retained range; until then {@link #isReady()} is
+ * false and callers use the database.
+ * </p>
+ */
+@Component
+public class TrendingWindowCounter {
+
+    static final int HOUR_BUCKETS = 48;
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private final SearchHistoryRepository searchHistoryRepository;
+    private final int windowDays;
+    private final int bucketCapacity;
+    private final double halfLifeHours;
+    // Fixed at startup; days start at local midnight as long as the offset does not change
+    private final long zoneOffsetMillis;
+    private final long startedAt = System.currentTimeMillis();
+
+    private Bucket[] hours = new Bucket[HOUR_BUCKETS];
+    private Bucket[] days;
+    private volatile boolean ready;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private volatile long lastLoadMillis = -1;
+
+    public TrendingWindowCounter(SearchHistoryRepository searchHistoryRepository,
+                                 @Value("${app.search.trending.window-days:30}") int windowDays,
+                                 @Value("${app.search.trending.bucket-capacity:5000}") int bucketCapacity,
+                                 @Value("${app.search.trending.half-life-hours:6}") double halfLifeHours) {
+        this.searchHistoryRepository = searchHistoryRepository;
+        this.windowDays = windowDays;
+        this.bucketCapacity = bucketCapacity;
+        this.halfLifeHours = halfLifeHours;
+        this.zoneOffsetMillis = ZoneId.systemDefault().getRules()
+                .getOffset(Instant.ofEpochMilli(startedAt)).getTotalSeconds() * 1000L;
+        this.days = new Bucket[windowDays];
+    }
+
+    /**
+     * Count one search now. Blank queries are ignored.
+     */
+    public void record(String query) {
+        String display = query != null ? query.trim() : "";
+        String key = TextNormalizer.foldPhrase(display);
+        if (key.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            add(hours, hourOf(now), key, display, 1);
+            add(days, dayOf(now), key, display, 1);
+        }
+        recorded.increment();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Largest window, in hours, answered by {@link #topInHours}.
+     */
+    public int getMaxHours() {
+        return HOUR_BUCKETS;
+    }
+
+    /**
+     * Largest window, in days, answered by {@link #topInDays}.
+     */
+    public int getMaxDays() {
+        return windowDays;
+    }
+
+    /**
+     * Most searched keywords in the last {@code windowHours} hours (the current hour
+     * included), highest count first.
+     */
+    public List<TrendingKeywordTracker.Trend> topInHours(int windowHours, int limit) {
+        long start = System.nanoTime();
+        long current = hourOf(System.currentTimeMillis());
+        Map<String, Counter> merged = new HashMap<>();
+        synchronized (this) {
+            for (long hour = current - Math.min(windowHours, HOUR_BUCKETS) + 1; hour <= current; hour++) {
+                mergeInto(merged, hours, hour, 1.0);
+            }
+        }
+        return top(merged, limit, start);
+    }
+
+    /**
+     * Most searched keywords today and in the previous {@code windowDays - 1} days,
+     * highest count first.
+     */
+    public List<TrendingKeywordTracker.Trend> topInDays(int windowDays, int limit) {
+        long start = System.nanoTime();
+        long current = dayOf(System.currentTimeMillis());
+        Map<String, Counter> merged = new HashMap<>();
+        synchronized (this) {
+            for (long day = current - Math.min(windowDays, this.windowDays) + 1; day <= current; day++) {
+                mergeInto(merged, days, day, 1.0);
+            }
+        }
+        return top(merged, limit, start);
+    }
+
+    /**
+     * Keywords ranked by exponentially decayed count over the hourly buckets ("hot right
+     * now"). The returned counts are the decayed scores, rounded.
+     */
+    public List<TrendingKeywordTracker.Trend> hot(int limit) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        long current = hourOf(now);
+        Map<String, Counter> merged = new HashMap<>();
+        synchronized (this) {
+            for (long hour = current - HOUR_BUCKETS + 1; hour <= current; hour++) {
+                // Age measured from the middle of the bucket (of its elapsed part for the current hour)
+                double ageHours = (now - (hour * HOUR_MILLIS + Math.min(now, (hour + 1) * HOUR_MILLIS)) / 2.0)
+                        / HOUR_MILLIS;
+                mergeInto(merged, hours, hour, Math.pow(0.5, ageHours / halfLifeHours));
+            }
+        }
+        return top(merged, limit, start);
+    }
+
+    /**
+     * Rebuild the buckets in the background once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(this::load, "trending-windows-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("lastLoadMs", lastLoadMillis);
+        stats.put("hourBuckets", HOUR_BUCKETS);
+        stats.put("dayBuckets", windowDays);
+        stats.put("bucketCapacity", bucketCapacity);
+        stats.put("halfLifeHours", halfLifeHours);
+        synchronized (this) {
+            stats.put("hourKeywords", countKeywords(hours));
+            stats.put("dayKeywords", countKeywords(days));
+        }
+        stats.put("recordedSinceStartup", recorded.sum());
+        stats.put("droppedCounts", dropped.sum());
+        long count = queries.sum();
+        stats.put("queryCount", count);
+        stats.put("averageQueryMicros", count > 0 ? queryNanos.sum() / 1000.0 / count : 0.0);
+        return stats;
+    }
+
+    /**
+     * Fill fresh buckets from the searches made before startup, add the ones recorded
+     * since, and swap them in.
+     */
+    private void load() {
+        long start = System.currentTimeMillis();
+        try {
+            Bucket[] loadedHours = new Bucket[HOUR_BUCKETS];
+            Bucket[] loadedDays = new Bucket[windowDays];
+            Timestamp to = new Timestamp(startedAt);
+            long firstHour = hourOf(startedAt) - HOUR_BUCKETS + 1;
+            for (Object[] row : searchHistoryRepository.findSearchCountsByHourBetween(
+                    new Timestamp(firstHour * HOUR_MILLIS), to)) {
+                addRow(loadedHours, row);
+            }
+            long firstDay = dayOf(startedAt) - windowDays + 1;
+            for (Object[] row : searchHistoryRepository.findSearchCountsByDayBetween(
+                    new Timestamp(firstDay * DAY_MILLIS - zoneOffsetMillis), to, zoneOffsetMillis / 1000)) {
+                addRow(loadedDays, row);
+            }
+            synchronized (this) {
+                mergeRing(loadedHours, hours);
+                mergeRing(loadedDays, days);
+                hours = loadedHours;
+                days = loadedDays;
+            }
+            lastLoadMillis = System.currentTimeMillis() - start;
+            ready = true;
+        } catch (RuntimeException e) {
+            System.err.println("Failed to load trending keyword windows: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add a [searchQuery, bucket id, count] row.
+     */
+    private void addRow(Bucket[] ring, Object[] row) {
+        String display = ((String) row[0]).trim();
+        String key = TextNormalizer.foldPhrase(display);
+        if (!key.isEmpty()) {
+            add(ring, ((Number) row[1]).longValue(), key, display, ((Number) row[2]).longValue());
+        }
+    }
+
+    private void mergeRing(Bucket[] target, Bucket[] source) {
+        for (Bucket bucket : source) {
+            if (bucket != null) {
+                bucket.counters.forEach((key, counter) -> add(target, bucket.id, key, counter.display, counter.count));
+            }
+        }
+    }
+
+    private void add(Bucket[] ring, long id, String key, String display, long count) {
+        int slot = (int) Math.floorMod(id, (long) ring.length);
+        Bucket bucket = ring[slot];
+        if (bucket == null || bucket.id < id) {
+            bucket = new Bucket(id);
+            ring[slot] = bucket;
+        } else if (bucket.id > id) {
+            // Older than the ring holds
+            return;
+        }
+        Counter counter = bucket.counters.get(key);
+        if (counter == null) {
+            if (bucket.counters.size() >= bucketCapacity) {
+                dropped.add(bucket.evictLowest());
+            }
+            counter = new Counter(key, display);
+            bucket.counters.put(key, counter);
+        }
+        bucket.increment(counter, count);
+    }
+
+    private static void mergeInto(Map<String, Counter> merged, Bucket[] ring, long id, double weight) {
+        Bucket bucket = ring[(int) Math.floorMod(id, (long) ring.length)];
+        if (bucket == null || bucket.id != id) {
+            return;
+        }
+        bucket.counters.forEach((key, counter) -> merged
+                .computeIfAbsent(key, k -> new Counter(k, counter.display))
+                .score += counter.count * weight);
+    }
+
+    private List<TrendingKeywordTracker.Trend> top(Map<String, Counter> merged, int limit, long startNanos) {
+        Comparator<Counter> byScore = Comparator.comparingDouble(counter -> counter.score);
+        PriorityQueue<Counter> heap = new PriorityQueue<>(byScore);
+        for (Counter counter : merged.values()) {
+            if (heap.size() < limit) {
+                heap.add(counter);
+            } else if (limit > 0 && counter.score > heap.peek().score) {
+                heap.poll();
+                heap.add(counter);
+            }
+        }
+        List<Counter> ranked = new ArrayList<>(heap);
+        ranked.sort(byScore.reversed());
+        List<TrendingKeywordTracker.Trend> trends = new ArrayList<>(ranked.size());
+        for (Counter counter : ranked) {
+            trends.add(new TrendingKeywordTracker.Trend(counter.display, Math.round(counter.score)));
+        }
+        queries.increment();
+        queryNanos.add(System.nanoTime() - startNanos);
+        return trends;
+    }
+
+    private static int countKeywords(Bucket[] ring) {
+        int count = 0;
+        for (Bucket bucket : ring) {
+            if (bucket != null) {
+                count += bucket.counters.size();
+            }
+        }
+        return count;
+    }
+
+    private static long hourOf(long millis) {
+        return Math.floorDiv(millis, HOUR_MILLIS);
+    }
+
+    private long dayOf(long millis) {
+        return Math.floorDiv(millis + zoneOffsetMillis, DAY_MILLIS);
+    }
+
+    private static final class Counter {
+
+        private final String key;
+        private final String display;
+        private long count;
+        private double score;
+
+        private Counter(String key, String display) {
+            this.key = key;
+            this.display = display;
+        }
+    }
+
+    /**
+     * Counts of one hour or day, keyed by folded keyword.
+     */
+    private static final class Bucket {
+
+        private final long id;
+        private final Map<String, Counter> counters = new HashMap<>();
+        /** The same counters, lowest count first */
+        private final TreeSet<Counter> byCount = new TreeSet<>(Comparator
+                .comparingLong((Counter counter) -> counter.count)
+                .thenComparing(counter -> counter.key));
+
+        private Bucket(long id) {
+            this.id = id;
+        }
+
+        /**
+         * Add to a counter of this bucket, keeping the count order.
+         */
+        void increment(Counter counter, long count) {
+            byCount.remove(counter);
+            counter.count += count;
+            byCount.add(counter);
+        }
+
+        /**
+         * Remove every keyword with the lowest count.
+         *
+         * @return the sum of the removed counts
+         */
+        long evictLowest() {
+            if (byCount.isEmpty()) {
+                return 0;
+            }
+            long lowest = byCount.first().count;
+            long removed = 0;
+            while (!byCount.isEmpty() && byCount.first().count == lowest) {
+                Counter counter = byCount.pollFirst();
+                counters.remove(counter.key);
+                removed += counter.count;
+            }
+            return removed;
+        }
+    }
+}
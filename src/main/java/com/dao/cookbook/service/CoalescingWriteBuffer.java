@@ -0,0 +1,165 @@
+package com.dao.cookbook.service;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind buffer of rows inserted with one INSERT statement, keyed so that repeated
+ * events coalesce.
+ * <p>
+ * Each key is queued in memory with the time it was last offered, and {@link #flush}
+ * inserts the queued rows in JDBC batches of {@code batchSize}; owners call it on a
+ * schedule. A key offered again before its row is written updates the queued time
+ * instead of adding a row. At most {@code capacity} keys are queued; keys offered while
+ * the buffer is full are dropped (counted in the statistics). Rows still queued when the
+ * process dies are lost, so owners flush at shutdown.
+ * </p>
+ *
+ * @param <K> key of a row; must implement {@code equals} and {@code hashCode}
+ */
+public class CoalescingWriteBuffer<K> {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String name;
+    private final String insertSql;
+    private final BiFunction<K, Timestamp, Object[]> rowMapper;
+    private final int capacity;
+    private final int batchSize;
+
+    private final Map<K, Timestamp> pending = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private volatile long lastFlushMillis = -1;
+    private volatile int lastFlushRows = -1;
+
+    /**
+     * @param name      names the buffer in log messages
+     * @param insertSql INSERT statement with one parameter per element of a mapped row
+     * @param rowMapper parameters of the INSERT for a key and the time it was last offered
+     */
+    public CoalescingWriteBuffer(JdbcTemplate jdbcTemplate, String name, String insertSql,
+                                 BiFunction<K, Timestamp, Object[]> rowMapper,
+                                 int capacity, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.name = name;
+        this.insertSql = insertSql;
+        this.rowMapper = rowMapper;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Outcome of {@link #offer}.
+     */
+    public enum Result {
+        /** A new row was queued */
+        QUEUED,
+        /** Merged into the row already queued for the same key */
+        COALESCED,
+        /** Not saved: the buffer is full */
+        DROPPED
+    }
+
+    public Result offer(K key) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (pending.replace(key, now) != null) {
+            coalesced.increment();
+            return Result.COALESCED;
+        }
+        if (pending.size() >= capacity) {
+            dropped.increment();
+            return Result.DROPPED;
+        }
+        if (pending.putIfAbsent(key, now) != null) {
+            coalesced.increment();
+            return Result.COALESCED;
+        }
+        accepted.increment();
+        return Result.QUEUED;
+    }
+
+    public void discard(K key) {
+        pending.remove(key);
+    }
+
+    public void discardIf(Predicate<K> filter) {
+        pending.keySet().removeIf(filter);
+    }
+
+    /**
+     * Insert every queued row.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>(Math.min(pending.size(), capacity));
+        for (K key : pending.keySet()) {
+            // A key offered after this removal is written by the next flush
+            Timestamp at = pending.remove(key);
+            if (at != null) {
+                rows.add(rowMapper.apply(key, at));
+            }
+        }
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            insert(rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+        lastFlushRows = rows.size();
+        lastFlushMillis = System.currentTimeMillis() - start;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", pending.size());
+        stats.put("capacity", capacity);
+        stats.put("accepted", accepted.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("written", written.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("lastFlushMs", lastFlushMillis);
+        return stats;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void insert(List<Object[]> rows) {
+        try {
+            jdbcTemplate.batchUpdate(insertSql, rows);
+            written.add(rows.size());
+            batches.increment();
+        } catch (DataAccessException e) {
+            // Typically a referenced row deleted meanwhile; write the other rows one by one
+            for (Object[] row : rows) {
+                try {
+                    jdbcTemplate.update(insertSql, row);
+                    written.increment();
+                } catch (DataAccessException rowError) {
+                    failed.increment();
+                    System.err.println("Failed to save " + name + " row " + Arrays.toString(row) + ": "
+                            + rowError.getMessage());
+                }
+            }
+        }
+    }
+}
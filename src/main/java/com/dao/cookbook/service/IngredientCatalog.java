@@ -0,0 +1,356 @@
+package com.dao.cookbook.service;
+
+import com.dao.cookbook.entity.CanonicalIngredientEntity;
+import com.dao.cookbook.repository.CanonicalIngredientRepository;
+import com.dao.cookbook.repository.IngredientRepository;
+import com.dao.cookbook.search.TextNormalizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog of canonical ingredients: maps free-text ingredient names to integer IDs.
+ * <p>
+ * A name's key is its lower-case tokens with accents kept, each English plural reduced to
+ * the singular ("Cà  chua" gives "cà chua", "Eggs" gives "egg"), then replaced by its
+ * dictionary entry from {@code ingredients/synonyms.txt} if it has one ("trứng gà" and
+ * "egg" give "trứng"). Each key has one row in {@code canonical_ingredients}, created the
+ * first time a recipe uses it.
+ * </p>
+ * <p>
+ * Accents tell many single-syllable names apart ("cá" and "cà", "bò" and "bơ"), so a name
+ * without an exact match falls back to the entry with the same spelling without accents
+ * only if one side is written without accents: "ca chua" finds "cà chua", but "cà" never
+ * finds "cá". Rows keyed before accents were kept are also found by their display name.
+ * </p>
+ * <p>
+ * Ingredient rows are tagged with their canonical ID on write (see
+ * {@link com.dao.cookbook.mapper.RecipeMapper#ingredientToEntity}); rows written before
+ * the catalog existed are tagged in the background once the application is ready.
+ * </p>
+ */
+@Component
+public class IngredientCatalog {
+
+    /**
+     * ID returned for names no recipe uses. No ingredient row carries it, so an include
+     * filter on it matches nothing and an exclude filter on it removes nothing.
+     */
+    public static final int UNKNOWN_ID = -1;
+
+    private static final String DICTIONARY = "ingredients/synonyms.txt";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final CanonicalIngredientRepository canonicalIngredientRepository;
+    private final IngredientRepository ingredientRepository;
+    private final TransactionTemplate newTransaction;
+
+    // Synonym key -> dictionary entry key, and entry key -> display name
+    private final Map<String, String> synonyms = new HashMap<>();
+    private final Map<String, String> dictionaryNames = new HashMap<>();
+
+    // Spelling without accents -> first key with that spelling, for names typed without accents
+    private final Map<String, String> keysByFoldedKey = new ConcurrentHashMap<>();
+
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public IngredientCatalog(CanonicalIngredientRepository canonicalIngredientRepository,
+                             IngredientRepository ingredientRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.canonicalIngredientRepository = canonicalIngredientRepository;
+        this.ingredientRepository = ingredientRepository;
+        // New catalog rows commit on their own, so a rolled-back recipe write cannot
+        // leave an ID in memory that the database does not have
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        loadDictionary();
+    }
+
+    /**
+     * Canonical key of an ingredient name.
+     *
+     * @param name free-text ingredient name (null is treated as empty)
+     * @return the key, or an empty string if the name has no letters or digits
+     */
+    public String canonicalKey(String name) {
+        String key = exactKey(name);
+        if (key.isEmpty()) {
+            return key;
+        }
+        String entry = synonyms.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        if (dictionaryNames.containsKey(key)) {
+            return key;
+        }
+        ensureLoaded();
+        if (idsByKey.containsKey(key)) {
+            return key;
+        }
+        String folded = fold(name);
+        String candidate = keysByFoldedKey.get(folded);
+        if (candidate != null && (key.equals(folded) || withoutAccents(displayName(candidate)))) {
+            return candidate;
+        }
+        return key;
+    }
+
+    /**
+     * Canonical ID of an ingredient name, adding the name to the catalog if it is new.
+     * Used on the write path.
+     *
+     * @return the ID, or null if the name has no letters or digits
+     */
+    public Integer resolve(String name) {
+        String key = canonicalKey(name);
+        if (key.isEmpty()) {
+            return null;
+        }
+        ensureLoaded();
+        Integer id = idsByKey.get(key);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = idsByKey.get(key);
+            if (id != null) {
+                return id;
+            }
+            CanonicalIngredientEntity entity;
+            try {
+                entity = newTransaction.execute(status -> canonicalIngredientRepository.findByNormalizedName(key)
+                        .orElseGet(() -> {
+                            CanonicalIngredientEntity created = new CanonicalIngredientEntity();
+                            created.setName(dictionaryNames.getOrDefault(key, name.trim()));
+                            created.setNormalizedName(key);
+                            return canonicalIngredientRepository.save(created);
+                        }));
+            } catch (DataIntegrityViolationException e) {
+                // Added by another instance since the lookup
+                entity = canonicalIngredientRepository.findByNormalizedName(key).orElseThrow(() -> e);
+            }
+            cache(entity);
+            return entity.getId();
+        }
+    }
+
+    /**
+     * Canonical ID of an ingredient name, without adding it. Used on the read path.
+     *
+     * @return the ID, or {@link #UNKNOWN_ID} if no recipe uses the ingredient
+     */
+    public int find(String name) {
+        String key = canonicalKey(name);
+        if (key.isEmpty()) {
+            return UNKNOWN_ID;
+        }
+        ensureLoaded();
+        Integer id = idsByKey.get(key);
+        if (id == null) {
+            // May have been added by another instance
+            id = canonicalIngredientRepository.findByNormalizedName(key)
+                    .map(entity -> {
+                        cache(entity);
+                        return entity.getId();
+                    })
+                    .orElse(UNKNOWN_ID);
+        }
+        return id;
+    }
+
+    /**
+     * Canonical IDs of several names, without duplicates. Blank names are skipped and
+     * unknown names give {@link #UNKNOWN_ID}.
+     */
+    public Set<Integer> findAll(Collection<String> names) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        if (names != null) {
+            for (String name : names) {
+                if (!exactKey(name).isEmpty()) {
+                    ids.add(find(name));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Display name of a canonical ingredient.
+     *
+     * @return the name, or null for an unknown ID
+     */
+    public String getName(int id) {
+        ensureLoaded();
+        String name = namesById.get(id);
+        if (name == null) {
+            name = canonicalIngredientRepository.findById(id)
+                    .map(entity -> {
+                        cache(entity);
+                        return entity.getName();
+                    })
+                    .orElse(null);
+        }
+        return name;
+    }
+
+    /**
+     * Tag ingredient rows written before the catalog existed, in the background.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(this::tagUntaggedIngredients, "ingredient-catalog-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Tag every ingredient row without a canonical ID, one distinct name at a time.
+     * Names without letters or digits stay untagged.
+     */
+    public void tagUntaggedIngredients() {
+        try {
+            String after = "";
+            List<String> names = ingredientRepository.findUntaggedNamesAfter(after, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            while (!names.isEmpty()) {
+                for (String name : names) {
+                    Integer id = resolve(name);
+                    if (id != null) {
+                        ingredientRepository.tagUntagged(name, id);
+                    }
+                }
+                after = names.get(names.size() - 1);
+                names = ingredientRepository.findUntaggedNamesAfter(after, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Failed to tag ingredients with canonical IDs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Case-insensitive tokens of a name with accents kept, English plurals made singular.
+     */
+    static String exactKey(String name) {
+        return TextNormalizer.tokenizeKeepingAccents(name).stream()
+                .map(IngredientCatalog::singular)
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Accent- and case-insensitive tokens of a name, English plurals made singular.
+     */
+    static String fold(String name) {
+        return TextNormalizer.tokenize(name).stream()
+                .map(IngredientCatalog::singular)
+                .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Singular of an English plural ("tomatoes", "cherries", "eggs"); other tokens,
+     * including every Vietnamese syllable, are returned unchanged.
+     */
+    static String singular(String token) {
+        if (token.length() <= 3 || !token.endsWith("s") || token.endsWith("ss")) {
+            return token;
+        }
+        if (token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.endsWith("oes") || token.endsWith("ches") || token.endsWith("shes")
+                || token.endsWith("sses") || token.endsWith("xes")) {
+            return token.substring(0, token.length() - 2);
+        }
+        return token.substring(0, token.length() - 1);
+    }
+
+    private void cache(CanonicalIngredientEntity entity) {
+        idsByKey.put(entity.getNormalizedName(), entity.getId());
+        // Rows keyed before accents were kept have a folded key; the display name has the accents
+        idsByKey.putIfAbsent(exactKey(entity.getName()), entity.getId());
+        keysByFoldedKey.putIfAbsent(fold(entity.getNormalizedName()), entity.getNormalizedName());
+        namesById.put(entity.getId(), entity.getName());
+    }
+
+    /**
+     * Display name of a key of the dictionary or the catalog; the key itself if unknown.
+     */
+    private String displayName(String key) {
+        String name = dictionaryNames.get(key);
+        if (name == null) {
+            Integer id = idsByKey.get(key);
+            name = id != null ? namesById.get(id) : null;
+        }
+        return name != null ? name : key;
+    }
+
+    private static boolean withoutAccents(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return TextNormalizer.fold(lower).equals(lower);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                canonicalIngredientRepository.findAll().forEach(this::cache);
+                loaded = true;
+            }
+        }
+    }
+
+    private void loadDictionary() {
+        ClassPathResource resource = new ClassPathResource(DICTIONARY);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("=", 2);
+                String entry = exactKey(parts[0]);
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                dictionaryNames.put(entry, parts[0].trim());
+                keysByFoldedKey.putIfAbsent(fold(parts[0]), entry);
+                if (parts.length > 1) {
+                    for (String synonym : parts[1].split(",")) {
+                        String key = exactKey(synonym);
+                        if (!key.isEmpty() && !key.equals(entry)) {
+                            synonyms.put(key, entry);
+                            keysByFoldedKey.putIfAbsent(fold(synonym), entry);
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Không đọc được từ điển nguyên liệu: " + DICTIONARY, e);
+        }
+    }
+}
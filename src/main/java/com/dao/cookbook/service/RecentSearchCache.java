@@ -0,0 +1,135 @@
+package com.dao.cookbook.service;
+
+import com.dao.cookbook.search.TextNormalizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of each user's most recent distinct search queries.
+ * <p>
+ * Each cached user holds up to {@code app.cache.recent-searches.size} queries, most
+ * recent first, without duplicates (compared accent- and case-insensitively, like the
+ * database collation). Searches are pushed to the front as they are recorded, so reads
+ * never query the database for a cached user, however long their history. A user is
+ * loaded on first read with one LIMITed query; a search recorded before that first read
+ * starts a partial entry that the load completes, so searches still queued in
+ * {@link SearchHistoryWriteBuffer} are not missed.
+ * </p>
+ * <p>
+ * Deleting history invalidates the user's entry.
+ * </p>
+ */
+@Component
+public class RecentSearchCache {
+
+    private final Cache<Long, RecentQueries> cache;
+    private final int size;
+
+    public RecentSearchCache(@Value("${app.cache.recent-searches.max-users:50000}") long maxUsers,
+                             @Value("${app.cache.recent-searches.size:20}") int size,
+                             @Value("${app.cache.recent-searches.ttl-seconds:3600}") long ttlSeconds) {
+        this.size = size;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Number of queries kept per user; larger limits are not served from the cache.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Move a query to the front of the user's recent queries.
+     */
+    public void push(Long userId, String query) {
+        cache.asMap()
+                .computeIfAbsent(userId, id -> new RecentQueries(size))
+                .push(query);
+    }
+
+    /**
+     * The user's most recent distinct queries, loading them on a miss.
+     *
+     * @param loader returns up to {@link #getSize()} distinct queries from the database,
+     *               most recent first
+     */
+    public List<String> get(Long userId, int limit, Function<Long, List<String>> loader) {
+        RecentQueries queries = cache.get(userId, id -> new RecentQueries(size));
+        return queries.get(limit, () -> loader.apply(userId));
+    }
+
+    public void invalidate(Long userId) {
+        cache.invalidate(userId);
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", cache.estimatedSize());
+        result.put("queriesPerUser", size);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+
+    /**
+     * A user's recent queries, most recent first. An entry is partial until the user's
+     * history has been loaded once.
+     */
+    private static final class RecentQueries {
+
+        private final int capacity;
+        private final List<String> queries = new ArrayList<>();
+        private boolean loaded;
+
+        private RecentQueries(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void push(String query) {
+            remove(TextNormalizer.foldPhrase(query));
+            queries.add(0, query);
+            if (queries.size() > capacity) {
+                queries.remove(queries.size() - 1);
+            }
+        }
+
+        synchronized List<String> get(int limit, Supplier<List<String>> loader) {
+            if (!loaded) {
+                // Queries pushed so far are newer than anything in the database
+                List<String> pushed = new ArrayList<>(queries);
+                List<String> stored = loader.get();
+                queries.clear();
+                for (int i = stored.size() - 1; i >= 0; i--) {
+                    push(stored.get(i));
+                }
+                for (int i = pushed.size() - 1; i >= 0; i--) {
+                    push(pushed.get(i));
+                }
+                loaded = true;
+            }
+            return List.copyOf(queries.subList(0, Math.min(limit, queries.size())));
+        }
+
+        private void remove(String key) {
+            queries.removeIf(existing -> TextNormalizer.foldPhrase(existing).equals(key));
+        }
+    }
+}
@@ -7,7 +7,10 @@ import com.dao.cookbook.repository.RecipeRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service class for Recipe Bookmark business logic.
@@ -18,13 +21,16 @@ public class RecipeBookmarkService {
     private final RecipeBookmarkRepository bookmarkRepository;
     private final RecipeRepository recipeRepository;
     private final NotificationService notificationService;
+    private final RecipeDetailCache recipeDetailCache;
     
     public RecipeBookmarkService(RecipeBookmarkRepository bookmarkRepository, 
                                 RecipeRepository recipeRepository,
-                                NotificationService notificationService) {
+                                NotificationService notificationService,
+                                RecipeDetailCache recipeDetailCache) {
         this.bookmarkRepository = bookmarkRepository;
         this.recipeRepository = recipeRepository;
         this.notificationService = notificationService;
+        this.recipeDetailCache = recipeDetailCache;
     }
     
     /**
@@ -51,6 +57,7 @@ public class RecipeBookmarkService {
         // Increment bookmarks count
         recipe.setBookmarksCount(recipe.getBookmarksCount() == null ? 1 : recipe.getBookmarksCount() + 1);
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
         
         // Create notification
         try {
@@ -84,6 +91,7 @@ public class RecipeBookmarkService {
         int currentCount = recipe.getBookmarksCount() == null ? 0 : recipe.getBookmarksCount();
         recipe.setBookmarksCount(Math.max(0, currentCount - 1));
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
         
         return true;
     }
@@ -124,6 +132,16 @@ public class RecipeBookmarkService {
         return bookmarkRepository.findRecipeIdsByUserId(userId);
     }
     
+    /**
+     * Get the subset of the given recipe IDs that a user has bookmarked.
+     */
+    public Set<Long> getBookmarkedRecipeIds(Long userId, Collection<Long> recipeIds) {
+        if (userId == null || recipeIds == null || recipeIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(bookmarkRepository.findRecipeIdsByUserIdAndRecipeIdIn(userId, recipeIds));
+    }
+    
     /**
      * Get all bookmarks for a recipe.
      */
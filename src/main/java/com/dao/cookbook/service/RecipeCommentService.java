@@ -18,13 +18,16 @@ public class RecipeCommentService {
     private final RecipeCommentRepository commentRepository;
     private final RecipeRepository recipeRepository;
     private final NotificationService notificationService;
+    private final RecipeDetailCache recipeDetailCache;
     
     public RecipeCommentService(RecipeCommentRepository commentRepository,
                                RecipeRepository recipeRepository,
-                               @org.springframework.context.annotation.Lazy NotificationService notificationService) {
+                               @org.springframework.context.annotation.Lazy NotificationService notificationService,
+                               RecipeDetailCache recipeDetailCache) {
         this.commentRepository = commentRepository;
         this.recipeRepository = recipeRepository;
         this.notificationService = notificationService;
+        this.recipeDetailCache = recipeDetailCache;
     }
     
     /**
@@ -55,6 +58,7 @@ public class RecipeCommentService {
         if (parentCommentId == null) {
             recipe.setCommentsCount(recipe.getCommentsCount() == null ? 1 : recipe.getCommentsCount() + 1);
             recipeRepository.save(recipe);
+            recipeDetailCache.evict(recipeId);
         }
         
         // Create notification
@@ -125,6 +129,7 @@ public class RecipeCommentService {
             int currentCount = recipe.getCommentsCount() == null ? 0 : recipe.getCommentsCount();
             recipe.setCommentsCount(Math.max(0, currentCount - 1));
             recipeRepository.save(recipe);
+            recipeDetailCache.evict(recipe.getId());
         }
     }
     
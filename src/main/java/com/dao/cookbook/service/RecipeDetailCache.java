@@ -0,0 +1,123 @@
+package com.dao.cookbook.service;
+
+import com.dao.cookbook.dto.response.RecipeResponseDTO;
+import com.dao.cookbook.event.RecipeChangeHandler;
+import com.dao.cookbook.event.RecipeChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of recipe detail responses.
+ * <p>
+ * Entries hold only the non-personalized part of {@link RecipeResponseDTO}; the current
+ * user's like, bookmark and rating state is overlaid by the caller after the lookup.
+ * Cached DTOs are shared between requests and must not be modified.
+ * </p>
+ * <p>
+ * Entries are evicted by size and by time since write. Writes to a recipe or its
+ * counters must call {@link #evict(Long)}, so the writer's next read is fresh; recipes in a
+ * committed {@link RecipeChangedEvent} are invalidated again when the event is dispatched.
+ * Author name and avatar changes are not tracked and only show up once the entry expires.
+ * </p>
+ */
+@Component
+public class RecipeDetailCache implements RecipeChangeHandler {
+
+    private final Cache<Long, RecipeResponseDTO> cache;
+    private final LongAdder invalidations = new LongAdder();
+
+    public RecipeDetailCache(@Value("${app.cache.recipe-detail.max-size:10000}") long maxSize,
+                             @Value("${app.cache.recipe-detail.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the cached detail of a recipe, loading it on a miss.
+     * Exceptions thrown by the loader are propagated and nothing is cached.
+     */
+    public RecipeResponseDTO get(Long recipeId, Function<Long, RecipeResponseDTO> loader) {
+        return cache.get(recipeId, loader);
+    }
+
+    /**
+     * Get the cached detail of a recipe without loading it.
+     *
+     * @return the cached response, or null on a miss
+     */
+    public RecipeResponseDTO getIfPresent(Long recipeId) {
+        return cache.getIfPresent(recipeId);
+    }
+
+    /**
+     * Invalidate a recipe's entry.
+     * <p>
+     * When called inside a transaction the entry is invalidated again once the transaction
+     * completes, so a concurrent read that reloaded the old row before commit cannot leave
+     * a stale entry behind.
+     * </p>
+     */
+    public void evict(Long recipeId) {
+        if (recipeId == null) {
+            return;
+        }
+        invalidate(recipeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(recipeId);
+                }
+            });
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "recipeDetail";
+    }
+
+    @Override
+    public void onRecipesChanged(List<RecipeChangedEvent> events) {
+        for (RecipeChangedEvent event : events) {
+            invalidate(event.getRecipeId());
+        }
+    }
+
+    /**
+     * Hit, miss and eviction statistics since startup.
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("invalidationCount", invalidations.sum());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        result.put("averageLoadPenaltyMs", stats.averageLoadPenalty() / 1_000_000.0);
+        return result;
+    }
+
+    private void invalidate(Long recipeId) {
+        cache.invalidate(recipeId);
+        invalidations.increment();
+    }
+}
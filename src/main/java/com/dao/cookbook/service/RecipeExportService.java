@@ -0,0 +1,122 @@
+package com.dao.cookbook.service;
+
+import com.dao.cookbook.entity.IngredientEntity;
+import com.dao.cookbook.entity.RecipeEntity;
+import com.dao.cookbook.entity.RecipeStepEntity;
+import com.dao.cookbook.mapper.RecipeMapper;
+import com.dao.cookbook.repository.IngredientRepository;
+import com.dao.cookbook.repository.RecipeRepository;
+import com.dao.cookbook.repository.RecipeStepRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service class for exporting the full recipe catalog as NDJSON
+ * (one JSON recipe per line).
+ * <p>
+ * Recipes are read through a database cursor and written in chunks: for each chunk the
+ * ingredients and steps are loaded with one query each, the lines are written and flushed,
+ * and the persistence context is cleared. Memory use depends on the chunk size only,
+ * not on the size of the catalog.
+ * </p>
+ */
+@Service
+public class RecipeExportService {
+
+    /**
+     * Number of recipes written between two persistence context clears.
+     */
+    static final int CHUNK_SIZE = 500;
+
+    private final RecipeRepository recipeRepository;
+    private final IngredientRepository ingredientRepository;
+    private final RecipeStepRepository recipeStepRepository;
+    private final RecipeMapper recipeMapper;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RecipeExportService(RecipeRepository recipeRepository,
+                               IngredientRepository ingredientRepository,
+                               RecipeStepRepository recipeStepRepository,
+                               RecipeMapper recipeMapper,
+                               ObjectMapper objectMapper) {
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.recipeStepRepository = recipeStepRepository;
+        this.recipeMapper = recipeMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write every recipe to the given stream as NDJSON, in ID order.
+     * The stream is flushed after each chunk but not closed.
+     *
+     * @param out the stream to write to
+     * @return number of recipes written
+     */
+    @Transactional(readOnly = true)
+    public long exportCatalog(OutputStream out) throws IOException {
+        long written = 0;
+        List<RecipeEntity> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (Stream<RecipeEntity> recipes = recipeRepository.streamAllForExport()) {
+            Iterator<RecipeEntity> iterator = recipes.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    written += writeChunk(chunk, out);
+                    chunk.clear();
+                }
+            }
+            written += writeChunk(chunk, out);
+        }
+
+        return written;
+    }
+
+    /**
+     * Write one chunk of recipes, then detach them from the persistence context.
+     */
+    private int writeChunk(List<RecipeEntity> chunk, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> recipeIds = chunk.stream()
+                .map(RecipeEntity::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<IngredientEntity>> ingredientsByRecipe = ingredientRepository
+                .findByRecipeIdInOrderByRecipeIdAscIdAsc(recipeIds).stream()
+                .collect(Collectors.groupingBy(IngredientEntity::getRecipeId));
+        Map<Long, List<RecipeStepEntity>> stepsByRecipe = recipeStepRepository
+                .findWithImagesByRecipeIdIn(recipeIds).stream()
+                .collect(Collectors.groupingBy(RecipeStepEntity::getRecipeId));
+
+        for (RecipeEntity recipe : chunk) {
+            out.write(objectMapper.writeValueAsBytes(recipeMapper.toExportResponse(
+                    recipe,
+                    ingredientsByRecipe.getOrDefault(recipe.getId(), List.of()),
+                    stepsByRecipe.getOrDefault(recipe.getId(), List.of()))));
+            out.write('\n');
+        }
+        out.flush();
+
+        // Drop everything loaded for this chunk so the context does not grow with the catalog
+        entityManager.clear();
+        return chunk.size();
+    }
+}
@@ -2,12 +2,17 @@ package com.dao.cookbook.service;
 
 import com.dao.cookbook.entity.RecipeEntity;
 import com.dao.cookbook.entity.RecipeLikeEntity;
+import com.dao.cookbook.event.RecipeChangedEvent;
 import com.dao.cookbook.repository.RecipeLikeRepository;
 import com.dao.cookbook.repository.RecipeRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service class for Recipe Like business logic.
@@ -18,13 +23,19 @@ public class RecipeLikeService {
     private final RecipeLikeRepository recipeLikeRepository;
     private final RecipeRepository recipeRepository;
     private final NotificationService notificationService;
+    private final RecipeDetailCache recipeDetailCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public RecipeLikeService(RecipeLikeRepository recipeLikeRepository,
                             RecipeRepository recipeRepository,
-                            NotificationService notificationService) {
+                            NotificationService notificationService,
+                            RecipeDetailCache recipeDetailCache,
+                            ApplicationEventPublisher eventPublisher) {
         this.recipeLikeRepository = recipeLikeRepository;
         this.recipeRepository = recipeRepository;
         this.notificationService = notificationService;
+        this.recipeDetailCache = recipeDetailCache;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -54,6 +65,8 @@ public class RecipeLikeService {
         // Update likes count
         recipe.setLikesCount(recipe.getLikesCount() + 1);
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipeId, RecipeChangedEvent.Type.LIKES));
 
         // Create notification
         try {
@@ -91,6 +104,8 @@ public class RecipeLikeService {
         int newCount = Math.max(0, recipe.getLikesCount() - 1);
         recipe.setLikesCount(newCount);
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipeId);
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipeId, RecipeChangedEvent.Type.LIKES));
 
         return true;
     }
@@ -144,6 +159,20 @@ public class RecipeLikeService {
         return recipeLikeRepository.findRecipeIdsByUserId(userId);
     }
 
+    /**
+     * Get the subset of the given recipe IDs that a user has liked.
+     * 
+     * @param userId the ID of the user
+     * @param recipeIds the IDs of the recipes to check
+     * @return set of liked recipe IDs
+     */
+    public Set<Long> getLikedRecipeIds(Long userId, Collection<Long> recipeIds) {
+        if (userId == null || recipeIds == null || recipeIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(recipeLikeRepository.findRecipeIdsByUserIdAndRecipeIdIn(userId, recipeIds));
+    }
+
     /**
      * Get all likes for a recipe.
      * 
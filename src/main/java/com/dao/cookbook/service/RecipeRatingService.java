@@ -4,9 +4,12 @@ import com.dao.cookbook.entity.RecipeRatingEntity;
 import com.dao.cookbook.entity.RecipeEntity;
 import com.dao.cookbook.repository.RecipeRatingRepository;
 import com.dao.cookbook.repository.RecipeRepository;
+import com.dao.cookbook.event.RecipeChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,13 +24,19 @@ public class RecipeRatingService {
     private final RecipeRatingRepository ratingRepository;
     private final RecipeRepository recipeRepository;
     private final NotificationService notificationService;
+    private final RecipeDetailCache recipeDetailCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     public RecipeRatingService(RecipeRatingRepository ratingRepository,
                               RecipeRepository recipeRepository,
-                              @org.springframework.context.annotation.Lazy NotificationService notificationService) {
+                              @org.springframework.context.annotation.Lazy NotificationService notificationService,
+                              RecipeDetailCache recipeDetailCache,
+                              ApplicationEventPublisher eventPublisher) {
         this.ratingRepository = ratingRepository;
         this.recipeRepository = recipeRepository;
         this.notificationService = notificationService;
+        this.recipeDetailCache = recipeDetailCache;
+        this.eventPublisher = eventPublisher;
     }
     
     /**
@@ -108,6 +117,21 @@ public class RecipeRatingService {
         return ratingRepository.findByUserIdAndRecipeId(userId, recipeId);
     }
     
+    /**
+     * Get user's ratings for a set of recipes, keyed by recipe ID.
+     * Recipes the user has not rated are absent from the map.
+     */
+    public Map<Long, Integer> getUserRatings(Long userId, Collection<Long> recipeIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (userId == null || recipeIds == null || recipeIds.isEmpty()) {
+            return result;
+        }
+        for (RecipeRatingEntity rating : ratingRepository.findByUserIdAndRecipeIdIn(userId, recipeIds)) {
+            result.put(rating.getRecipeId(), rating.getRating());
+        }
+        return result;
+    }
+    
     /**
      * Check if user has rated a recipe.
      */
@@ -177,5 +201,8 @@ public class RecipeRatingService {
         }
         
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipe.getId());
+        // Keep the rating facet in step with the new average
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId(), RecipeChangedEvent.Type.RATING));
     }
 }
@@ -1,15 +1,40 @@
 package com.dao.cookbook.service;
 
 import com.dao.cookbook.dto.request.AdminRecipeRequestDTO;
+import com.dao.cookbook.dto.request.PantryRequestDTO;
+import com.dao.cookbook.dto.request.RecipeFacetSearchRequestDTO;
 import com.dao.cookbook.dto.request.RecipeRequestDTO;
+import com.dao.cookbook.dto.response.CursorPageResponseDTO;
+import com.dao.cookbook.dto.response.FacetCountDTO;
+import com.dao.cookbook.dto.response.FacetedSearchResponseDTO;
+import com.dao.cookbook.dto.response.PantryRecipeDTO;
+import com.dao.cookbook.dto.response.RecipeCardDTO;
 import com.dao.cookbook.dto.response.RecipeResponseDTO;
+import com.dao.cookbook.dto.response.RecipeVersionDTO;
+import com.dao.cookbook.dto.response.SuggestionDTO;
 import com.dao.cookbook.entity.*;
+import com.dao.cookbook.event.RecipeChangedEvent;
 import com.dao.cookbook.mapper.RecipeMapper;
 import com.dao.cookbook.repository.*;
+import com.dao.cookbook.search.RecipeFacetIndex;
+import com.dao.cookbook.search.RecipeIngredientIndex;
+import com.dao.cookbook.search.RecipePantryIndex;
+import com.dao.cookbook.search.RecipeSuggestIndex;
+import com.dao.cookbook.search.RecipeTextIndex;
+import com.dao.cookbook.search.RecipeTrigramIndex;
+import com.dao.cookbook.search.TextNormalizer;
+import com.dao.cookbook.util.RecipeCursor;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -18,41 +43,86 @@ import java.util.stream.Collectors;
 @Service
 public class RecipeService {
 
+    /**
+     * Maximum number of IDs per card hydration query.
+     */
+    private static final int CARD_BATCH_SIZE = 1000;
+
+    /**
+     * Default and maximum number of typeahead suggestions.
+     */
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 20;
+
+    /**
+     * Default and maximum number of pantry matches.
+     */
+    private static final int DEFAULT_PANTRY_MATCHES = 20;
+    private static final int MAX_PANTRY_MATCHES = 100;
+
     private final RecipeRepository recipeRepository;
     private final IngredientRepository ingredientRepository;
     private final RecipeStepRepository recipeStepRepository;
     private final StepImageRepository stepImageRepository;
     private final RecipeMapper recipeMapper;
     private final UserFollowService userFollowService;
+    private final RecipeDetailCache recipeDetailCache;
+    private final RecipeTextIndex recipeTextIndex;
+    private final RecipeTrigramIndex recipeTrigramIndex;
+    private final RecipeIngredientIndex recipeIngredientIndex;
+    private final RecipeSuggestIndex recipeSuggestIndex;
+    private final RecipeFacetIndex recipeFacetIndex;
+    private final RecipePantryIndex recipePantryIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IngredientCatalog ingredientCatalog;
 
     public RecipeService(RecipeRepository recipeRepository,
                         IngredientRepository ingredientRepository,
                         RecipeStepRepository recipeStepRepository,
                         StepImageRepository stepImageRepository,
                         RecipeMapper recipeMapper,
-                        UserFollowService userFollowService) {
+                        UserFollowService userFollowService,
+                        RecipeDetailCache recipeDetailCache,
+                        RecipeTextIndex recipeTextIndex,
+                        RecipeTrigramIndex recipeTrigramIndex,
+                        RecipeIngredientIndex recipeIngredientIndex,
+                        RecipeSuggestIndex recipeSuggestIndex,
+                        RecipeFacetIndex recipeFacetIndex,
+                        RecipePantryIndex recipePantryIndex,
+                        ApplicationEventPublisher eventPublisher,
+                        IngredientCatalog ingredientCatalog) {
         this.recipeRepository = recipeRepository;
         this.ingredientRepository = ingredientRepository;
         this.recipeStepRepository = recipeStepRepository;
         this.stepImageRepository = stepImageRepository;
         this.recipeMapper = recipeMapper;
         this.userFollowService = userFollowService;
+        this.recipeDetailCache = recipeDetailCache;
+        this.recipeTextIndex = recipeTextIndex;
+        this.recipeTrigramIndex = recipeTrigramIndex;
+        this.recipeIngredientIndex = recipeIngredientIndex;
+        this.recipeSuggestIndex = recipeSuggestIndex;
+        this.recipeFacetIndex = recipeFacetIndex;
+        this.recipePantryIndex = recipePantryIndex;
+        this.eventPublisher = eventPublisher;
+        this.ingredientCatalog = ingredientCatalog;
     }
 
     /**
      * Get all recipes.
      */
-    public List<RecipeResponseDTO> getAllRecipes() {
+    public List<RecipeCardDTO> getAllRecipes() {
         return getAllRecipes(null);
     }
     
     /**
      * Get all recipes with like info for current user.
      */
-    public List<RecipeResponseDTO> getAllRecipes(Long currentUserId) {
-        return recipeRepository.findAll().stream()
-                .map(recipe -> recipeMapper.toResponse(recipe, currentUserId))
-                .collect(Collectors.toList());
+    public List<RecipeCardDTO> getAllRecipes(Long currentUserId) {
+        RecipeCursor first = RecipeCursor.decode(null);
+        List<RecipeCardDTO> cards = recipeRepository.findCardPageAfter(
+                first.getCreatedAt(), first.getId(), Pageable.unpaged());
+        return recipeMapper.applyUserState(cards, currentUserId);
     }
 
     /**
@@ -66,48 +136,158 @@ public class RecipeService {
      * Get recipe by ID with like info for current user.
      */
     public RecipeResponseDTO getRecipeById(Long id, Long currentUserId) {
-        RecipeEntity recipe = recipeRepository.findById(id)
+        // Shared part comes from the cache, per-user state is overlaid on a copy
+        RecipeResponseDTO base = recipeDetailCache.get(id, this::loadRecipeDetail);
+        return recipeMapper.personalize(base, currentUserId);
+    }
+
+    /**
+     * Get the current version of a recipe for conditional GET, without loading any collection.
+     * Taken from the detail cache when the recipe is cached, otherwise read by primary key.
+     * 
+     * @return the version, or null if the recipe does not exist
+     */
+    public RecipeVersionDTO getRecipeVersion(Long id) {
+        RecipeResponseDTO cached = recipeDetailCache.getIfPresent(id);
+        if (cached != null) {
+            return RecipeVersionDTO.of(cached);
+        }
+        return recipeRepository.findVersionById(id).orElse(null);
+    }
+
+    /**
+     * Load the non-personalized recipe detail from the database, bypassing the cache.
+     */
+    private RecipeResponseDTO loadRecipeDetail(Long id) {
+        // Recipe + author + ingredients in one query, steps + images in a second one
+        RecipeEntity recipe = recipeRepository.findDetailById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy công thức với ID: " + id));
-        return recipeMapper.toResponse(recipe, currentUserId);
+        List<RecipeStepEntity> steps = recipeStepRepository.findWithImagesByRecipeId(id);
+        return recipeMapper.toDetailResponse(recipe, steps, null);
     }
 
     /**
      * Get all recipes by user ID.
      */
-    public List<RecipeResponseDTO> getRecipesByUserId(Long userId) {
+    public List<RecipeCardDTO> getRecipesByUserId(Long userId) {
         return getRecipesByUserId(userId, null);
     }
     
     /**
      * Get all recipes by user ID with like info for current user.
      */
-    public List<RecipeResponseDTO> getRecipesByUserId(Long userId, Long currentUserId) {
-        return recipeRepository.findByUserId(userId).stream()
-                .map(recipe -> recipeMapper.toResponse(recipe, currentUserId))
-                .collect(Collectors.toList());
+    public List<RecipeCardDTO> getRecipesByUserId(Long userId, Long currentUserId) {
+        RecipeCursor first = RecipeCursor.decode(null);
+        List<RecipeCardDTO> cards = recipeRepository.findCardPageByUserIdAfter(
+                userId, first.getCreatedAt(), first.getId(), Pageable.unpaged());
+        return recipeMapper.applyUserState(cards, currentUserId);
     }
 
     /**
      * Search recipes by title.
      */
-    public List<RecipeResponseDTO> searchRecipesByTitle(String title) {
+    public List<RecipeCardDTO> searchRecipesByTitle(String title) {
         return searchRecipesByTitle(title, null);
     }
     
     /**
      * Search recipes by title with like info for current user.
+     * Served from the in-memory text index (titles and ingredient names, accent-insensitive,
+     * best match first) once it is built; until then falls back to a LIKE query.
      */
-    public List<RecipeResponseDTO> searchRecipesByTitle(String title, Long currentUserId) {
-        return recipeRepository.findByTitleContainingIgnoreCase(title).stream()
-                .map(recipe -> recipeMapper.toResponse(recipe, currentUserId))
-                .collect(Collectors.toList());
+    public List<RecipeCardDTO> searchRecipesByTitle(String title, Long currentUserId) {
+        return searchRecipesByTitle(title, currentUserId, false);
+    }
+
+    /**
+     * Search recipes by title, optionally typo-tolerant.
+     * With {@code fuzzy} the titles most similar to the query (trigram similarity) are
+     * returned; otherwise the exact search is used, and it falls back to the similar titles
+     * when it finds nothing (e.g. "banh mi" for "Bánh mỳ", "bun bo heu").
+     *
+     * @param title the query
+     * @param currentUserId current user ID for like info (optional)
+     * @param fuzzy search by similarity only
+     */
+    public List<RecipeCardDTO> searchRecipesByTitle(String title, Long currentUserId, boolean fuzzy) {
+        if (fuzzy && recipeTrigramIndex.isReady()) {
+            List<RecipeCardDTO> cards = findCardsInOrder(recipeTrigramIndex.search(title));
+            return recipeMapper.applyUserState(cards, currentUserId);
+        }
+
+        List<RecipeCardDTO> cards;
+        if (recipeTextIndex.isReady() && !TextNormalizer.tokenize(title).isEmpty()) {
+            cards = findCardsInOrder(recipeTextIndex.search(title));
+        } else {
+            RecipeCursor first = RecipeCursor.decode(null);
+            cards = recipeRepository.findCardPageByTitleAfter(
+                    title, first.getCreatedAt(), first.getId(), Pageable.unpaged());
+        }
+        if (cards.isEmpty() && recipeTrigramIndex.isReady()) {
+            cards = findCardsInOrder(recipeTrigramIndex.search(title));
+        }
+        return recipeMapper.applyUserState(cards, currentUserId);
+    }
+
+    /**
+     * Typeahead suggestions (recipe titles and ingredient names) for a search box prefix.
+     * Served from memory only: nothing is queried and no search history is written.
+     *
+     * @param prefix text typed so far
+     * @param limit maximum number of suggestions (default 10, at most 20)
+     */
+    public List<SuggestionDTO> getSuggestions(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+        int max = limit == null || limit <= 0 ? DEFAULT_SUGGESTIONS : Math.min(limit, MAX_SUGGESTIONS);
+        return recipeSuggestIndex.suggest(prefix, max);
+    }
+
+    /**
+     * Get one keyset page of all recipes, newest first.
+     * 
+     * @param cursor opaque cursor from the previous page (null for the first page)
+     * @param size requested page size (clamped to {@link RecipeCursor#MAX_PAGE_SIZE})
+     * @param currentUserId current user ID for like info (optional)
+     */
+    public CursorPageResponseDTO<RecipeCardDTO> getRecipesPage(String cursor, Integer size, Long currentUserId) {
+        RecipeCursor after = RecipeCursor.decode(cursor);
+        int pageSize = RecipeCursor.pageSize(size);
+        List<RecipeCardDTO> rows = recipeRepository.findCardPageAfter(
+                after.getCreatedAt(), after.getId(), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(rows, pageSize, currentUserId);
+    }
+
+    /**
+     * Get one keyset page of recipes by user ID, newest first.
+     */
+    public CursorPageResponseDTO<RecipeCardDTO> getRecipesPageByUserId(Long userId, String cursor,
+                                                                     Integer size, Long currentUserId) {
+        RecipeCursor after = RecipeCursor.decode(cursor);
+        int pageSize = RecipeCursor.pageSize(size);
+        List<RecipeCardDTO> rows = recipeRepository.findCardPageByUserIdAfter(
+                userId, after.getCreatedAt(), after.getId(), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(rows, pageSize, currentUserId);
+    }
+
+    /**
+     * Get one keyset page of recipes matching a title keyword, newest first.
+     */
+    public CursorPageResponseDTO<RecipeCardDTO> searchRecipesPageByTitle(String title, String cursor,
+                                                                       Integer size, Long currentUserId) {
+        RecipeCursor after = RecipeCursor.decode(cursor);
+        int pageSize = RecipeCursor.pageSize(size);
+        List<RecipeCardDTO> rows = recipeRepository.findCardPageByTitleAfter(
+                title, after.getCreatedAt(), after.getId(), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(rows, pageSize, currentUserId);
     }
 
     /**
      * Get feed of recipes from users the current user is following.
      * Returns recipes ordered by creation date (newest first).
      */
-    public List<RecipeResponseDTO> getFollowingFeed(Long currentUserId) {
+    public List<RecipeCardDTO> getFollowingFeed(Long currentUserId) {
         // Get list of user IDs that current user is following
         List<Long> followingIds = userFollowService.getFollowingIds(currentUserId);
         
@@ -116,13 +296,11 @@ public class RecipeService {
             return List.of();
         }
         
-        // Get recipes from followed users
-        List<RecipeEntity> recipes = recipeRepository.findByUserIdInOrderByCreatedAtDesc(followingIds);
-        
-        // Map to response DTOs
-        return recipes.stream()
-                .map(recipe -> recipeMapper.toResponse(recipe, currentUserId))
-                .collect(Collectors.toList());
+        // Get recipe cards from followed users
+        RecipeCursor first = RecipeCursor.decode(null);
+        List<RecipeCardDTO> cards = recipeRepository.findCardPageByUserIdInAfter(
+                followingIds, first.getCreatedAt(), first.getId(), Pageable.unpaged());
+        return recipeMapper.applyUserState(cards, currentUserId);
     }
 
     /**
@@ -158,8 +336,10 @@ public class RecipeService {
             }
         }
 
-        // Reload recipe with all relationships
-        return getRecipeById(savedRecipe.getId());
+        eventPublisher.publishEvent(new RecipeChangedEvent(savedRecipe.getId(), RecipeChangedEvent.Type.CREATED));
+
+        // Reload recipe with all relationships (not cached until the transaction commits)
+        return loadRecipeDetail(savedRecipe.getId());
     }
 
     /**
@@ -179,21 +359,25 @@ public class RecipeService {
         // Update basic recipe info
         recipeMapper.updateEntity(recipe, dto);
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipe.getId());
 
         // Delete old ingredients and create new ones
         if (recipe.getIngredients() != null) {
             ingredientRepository.deleteAll(recipe.getIngredients());
+            // Keep the managed collection in sync so the reload below sees the new rows
+            recipe.getIngredients().clear();
         }
         if (dto.getIngredients() != null && !dto.getIngredients().isEmpty()) {
             List<IngredientEntity> ingredients = dto.getIngredients().stream()
                     .map(ingredientDTO -> recipeMapper.ingredientToEntity(ingredientDTO, recipe.getId()))
                     .collect(Collectors.toList());
-            ingredientRepository.saveAll(ingredients);
+            recipe.getIngredients().addAll(ingredientRepository.saveAll(ingredients));
         }
 
         // Delete old steps (cascade will delete images)
         if (recipe.getSteps() != null) {
             recipeStepRepository.deleteAll(recipe.getSteps());
+            recipe.getSteps().clear();
         }
         
         // Create new steps and images
@@ -211,8 +395,12 @@ public class RecipeService {
             }
         }
 
-        // Reload recipe with all relationships
-        return getRecipeById(recipe.getId());
+        // Ingredient/step-only edits do not touch the recipe row, bump updated_at explicitly
+        recipeRepository.touchUpdatedAt(recipe.getId());
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId(), RecipeChangedEvent.Type.UPDATED));
+
+        // Reload recipe with all relationships (not cached until the transaction commits)
+        return loadRecipeDetail(recipe.getId());
     }
 
     /**
@@ -229,6 +417,8 @@ public class RecipeService {
         }
 
         recipeRepository.delete(recipe);
+        recipeDetailCache.evict(id);
+        eventPublisher.publishEvent(new RecipeChangedEvent(id, RecipeChangedEvent.Type.DELETED));
     }
 
     /**
@@ -271,21 +461,25 @@ public class RecipeService {
         // Update basic recipe info
         recipeMapper.updateEntity(recipe, recipeDTO);
         recipeRepository.save(recipe);
+        recipeDetailCache.evict(recipe.getId());
 
         // Delete old ingredients and create new ones
         if (recipe.getIngredients() != null) {
             ingredientRepository.deleteAll(recipe.getIngredients());
+            // Keep the managed collection in sync so the reload below sees the new rows
+            recipe.getIngredients().clear();
         }
         if (dto.getIngredients() != null && !dto.getIngredients().isEmpty()) {
             List<IngredientEntity> ingredients = dto.getIngredients().stream()
                     .map(ingredientDTO -> recipeMapper.ingredientToEntity(ingredientDTO, recipe.getId()))
                     .collect(Collectors.toList());
-            ingredientRepository.saveAll(ingredients);
+            recipe.getIngredients().addAll(ingredientRepository.saveAll(ingredients));
         }
 
         // Delete old steps (cascade will delete images)
         if (recipe.getSteps() != null) {
             recipeStepRepository.deleteAll(recipe.getSteps());
+            recipe.getSteps().clear();
         }
         
         // Create new steps and images
@@ -303,8 +497,12 @@ public class RecipeService {
             }
         }
 
-        // Reload recipe with all relationships
-        return getRecipeById(recipe.getId());
+        // Ingredient/step-only edits do not touch the recipe row, bump updated_at explicitly
+        recipeRepository.touchUpdatedAt(recipe.getId());
+        eventPublisher.publishEvent(new RecipeChangedEvent(recipe.getId(), RecipeChangedEvent.Type.UPDATED));
+
+        // Reload recipe with all relationships (not cached until the transaction commits)
+        return loadRecipeDetail(recipe.getId());
     }
 
     /**
@@ -316,6 +514,8 @@ public class RecipeService {
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy công thức với ID: " + id));
 
         recipeRepository.delete(recipe);
+        recipeDetailCache.evict(id);
+        eventPublisher.publishEvent(new RecipeChangedEvent(id, RecipeChangedEvent.Type.DELETED));
     }
 
     /**
@@ -326,72 +526,229 @@ public class RecipeService {
      * @param currentUserId current user ID for like info (optional)
      * @return filtered list of recipes
      */
-    public List<RecipeResponseDTO> filterRecipesByIngredients(
+    public List<RecipeCardDTO> filterRecipesByIngredients(
             List<String> includeIngredients, 
             List<String> excludeIngredients,
             Long currentUserId) {
         
-        List<RecipeEntity> recipes;
+        List<Integer> include = new ArrayList<>(ingredientCatalog.findAll(includeIngredients));
+        List<Integer> exclude = new ArrayList<>(ingredientCatalog.findAll(excludeIngredients));
+        List<RecipeCardDTO> cards = recipeIngredientIndex.isReady()
+                ? findCardsInOrder(recipeIngredientIndex.filter(include, exclude, Long.MAX_VALUE, Integer.MAX_VALUE))
+                : findCardsByIngredients(include, exclude, Long.MAX_VALUE, Pageable.unpaged());
+        return recipeMapper.applyUserState(cards, currentUserId);
+    }
+
+    /**
+     * Filter recipes by ingredients (with include/exclude filters), one keyset page at a time,
+     * newest (highest ID) recipes first.
+     * 
+     * @param includeIngredients list of ingredients that must be present
+     * @param excludeIngredients list of ingredients that must not be present
+     * @param cursor opaque cursor from the previous page (null for the first page)
+     * @param size requested page size
+     * @param currentUserId current user ID for like info (optional)
+     * @return one page of filtered recipes
+     */
+    public CursorPageResponseDTO<RecipeCardDTO> filterRecipesPageByIngredients(
+            List<String> includeIngredients,
+            List<String> excludeIngredients,
+            String cursor,
+            Integer size,
+            Long currentUserId) {
         
-        // Case 1: Only include filter
-        if ((includeIngredients != null && !includeIngredients.isEmpty()) && 
-            (excludeIngredients == null || excludeIngredients.isEmpty())) {
-            
-            // Convert to lowercase for case-insensitive search
-            List<String> lowerInclude = includeIngredients.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-            
-            recipes = recipeRepository.findByIngredientsContaining(
-                lowerInclude, 
-                lowerInclude.size()
-            );
+        RecipeCursor after = RecipeCursor.decode(cursor);
+        int pageSize = RecipeCursor.pageSize(size);
+        List<Integer> include = new ArrayList<>(ingredientCatalog.findAll(includeIngredients));
+        List<Integer> exclude = new ArrayList<>(ingredientCatalog.findAll(excludeIngredients));
+        if (recipeIngredientIndex.isReady()) {
+            List<Long> ids = recipeIngredientIndex.filter(include, exclude, after.getId(), pageSize + 1);
+            return toIndexCursorPage(ids, pageSize, currentUserId);
         }
-        // Case 2: Only exclude filter
-        else if ((includeIngredients == null || includeIngredients.isEmpty()) && 
-                 (excludeIngredients != null && !excludeIngredients.isEmpty())) {
-            
-            List<String> lowerExclude = excludeIngredients.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-            
-            recipes = recipeRepository.findByIngredientsNotContaining(lowerExclude);
+        List<RecipeCardDTO> rows = findCardsByIngredients(
+                include, exclude, after.getId(), PageRequest.of(0, pageSize + 1));
+        return toCursorPage(rows, pageSize, currentUserId);
+    }
+
+    /**
+     * Recipe cards with an ID below {@code beforeId} matching the include/exclude canonical
+     * ingredient IDs, highest ID first; no filter returns all recipes. Used until the
+     * in-memory ingredient index is built, and keyed on the ID like the index so cursors
+     * mean the same in both.
+     */
+    private List<RecipeCardDTO> findCardsByIngredients(List<Integer> include,
+                                                       List<Integer> exclude,
+                                                       long beforeId,
+                                                       Pageable pageable) {
+        if (!include.isEmpty() && !exclude.isEmpty()) {
+            return recipeRepository.findCardPageByIngredientsFilterBefore(
+                    include, include.size(), exclude, beforeId, pageable);
+        } else if (!include.isEmpty()) {
+            return recipeRepository.findCardPageByIngredientsContainingBefore(
+                    include, include.size(), beforeId, pageable);
+        } else if (!exclude.isEmpty()) {
+            return recipeRepository.findCardPageByIngredientsNotContainingBefore(
+                    exclude, beforeId, pageable);
         }
-        // Case 3: Both include and exclude filters
-        else if ((includeIngredients != null && !includeIngredients.isEmpty()) && 
-                 (excludeIngredients != null && !excludeIngredients.isEmpty())) {
-            
-            List<String> lowerInclude = includeIngredients.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-            List<String> lowerExclude = excludeIngredients.stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-            
-            // First get recipes with required ingredients
-            List<RecipeEntity> includedRecipes = recipeRepository.findByIngredientsContaining(
-                lowerInclude, 
-                lowerInclude.size()
-            );
-            
-            // Then filter out recipes with excluded ingredients
-            recipes = includedRecipes.stream()
-                    .filter(recipe -> {
-                        // Check if recipe contains any excluded ingredient
-                        boolean hasExcludedIngredient = recipe.getIngredients().stream()
-                                .anyMatch(ing -> lowerExclude.contains(ing.getName().toLowerCase()));
-                        return !hasExcludedIngredient;
-                    })
-                    .collect(Collectors.toList());
+        return recipeRepository.findCardPageBefore(beforeId, pageable);
+    }
+
+    /**
+     * Faceted search: filter by keyword, ingredients and cooking time / servings / rating
+     * ranges, one keyset page at a time (newest first), with the number of matching recipes
+     * per range. Answered from the in-memory indexes only.
+     *
+     * @param request keyword, ingredient filters and selected ranges (all optional)
+     * @param cursor opaque cursor from the previous page (null for the first page)
+     * @param size requested page size
+     * @param currentUserId current user ID for like info (optional)
+     * @throws IllegalStateException while the indexes are still being built
+     * @throws IllegalArgumentException for an unknown range or an invalid cursor
+     */
+    public FacetedSearchResponseDTO searchRecipesWithFacets(RecipeFacetSearchRequestDTO request, String cursor,
+                                                            Integer size, Long currentUserId) {
+        if (!recipeFacetIndex.isReady()) {
+            throw new IllegalStateException("Chỉ mục tìm kiếm đang được xây dựng, vui lòng thử lại sau");
         }
-        // Case 4: No filters - return all recipes
-        else {
-            recipes = recipeRepository.findAll();
+        RecipeCursor after = RecipeCursor.decode(cursor);
+        int pageSize = RecipeCursor.pageSize(size);
+
+        RoaringBitmap candidates = null;
+        boolean hasIngredients = (request.getIncludeIngredients() != null && !request.getIncludeIngredients().isEmpty())
+                || (request.getExcludeIngredients() != null && !request.getExcludeIngredients().isEmpty());
+        if (hasIngredients) {
+            if (!recipeIngredientIndex.isReady()) {
+                throw new IllegalStateException("Chỉ mục tìm kiếm đang được xây dựng, vui lòng thử lại sau");
+            }
+            candidates = recipeIngredientIndex.match(ingredientCatalog.findAll(request.getIncludeIngredients()),
+                    ingredientCatalog.findAll(request.getExcludeIngredients()));
         }
-        
-        // Map to response DTOs
-        return recipes.stream()
-                .map(recipe -> recipeMapper.toResponse(recipe, currentUserId))
+        if (!TextNormalizer.tokenize(request.getQuery()).isEmpty()) {
+            if (!recipeTextIndex.isReady()) {
+                throw new IllegalStateException("Chỉ mục tìm kiếm đang được xây dựng, vui lòng thử lại sau");
+            }
+            RoaringBitmap matches = recipeTextIndex.matchBitmap(request.getQuery());
+            candidates = candidates == null ? matches : RoaringBitmap.and(candidates, matches);
+        }
+
+        Map<String, List<String>> selected = new HashMap<>();
+        selected.put(RecipeFacetIndex.COOKING_TIME, request.getCookingTime());
+        selected.put(RecipeFacetIndex.SERVINGS, request.getServings());
+        selected.put(RecipeFacetIndex.RATING, request.getRating());
+        RecipeFacetIndex.FacetResult result = recipeFacetIndex.search(
+                candidates, selected, after.getId(), pageSize + 1);
+
+        FacetedSearchResponseDTO response = new FacetedSearchResponseDTO();
+        response.setPage(toIndexCursorPage(result.getIds(), pageSize, currentUserId));
+        response.setTotal(result.getTotal());
+        result.getCounts().forEach((facet, counts) -> {
+            List<String> values = selected.get(facet);
+            List<FacetCountDTO> facetCounts = new ArrayList<>();
+            counts.forEach((value, count) -> facetCounts.add(
+                    new FacetCountDTO(value, count, values != null && values.contains(value))));
+            response.getFacets().put(facet, facetCounts);
+        });
+        return response;
+    }
+
+    /**
+     * Recipes to cook from the ingredients the user has, ranked by the fraction of each
+     * recipe's ingredients in the pantry, then by rating. Answered from the in-memory
+     * pantry index; only the returned recipe cards are loaded.
+     *
+     * @param request pantry ingredient names and maximum number of recipes (default 20, at most 100)
+     * @param currentUserId current user ID for like info (optional)
+     * @throws IllegalStateException while the index is still being built
+     */
+    public List<PantryRecipeDTO> findRecipesForPantry(PantryRequestDTO request, Long currentUserId) {
+        if (!recipePantryIndex.isReady()) {
+            throw new IllegalStateException("Chỉ mục tìm kiếm đang được xây dựng, vui lòng thử lại sau");
+        }
+        if (request.getIngredients() == null || request.getIngredients().isEmpty()) {
+            return new ArrayList<>();
+        }
+        int limit = request.getLimit() == null || request.getLimit() <= 0
+                ? DEFAULT_PANTRY_MATCHES : Math.min(request.getLimit(), MAX_PANTRY_MATCHES);
+        List<RecipePantryIndex.PantryMatch> matches = recipePantryIndex.match(
+                ingredientCatalog.findAll(request.getIngredients()), limit);
+
+        List<RecipeCardDTO> cards = findCardsInOrder(matches.stream()
+                .map(RecipePantryIndex.PantryMatch::getRecipeId)
+                .collect(Collectors.toList()));
+        Map<Long, RecipeCardDTO> cardsById = new HashMap<>();
+        recipeMapper.applyUserState(cards, currentUserId).forEach(card -> cardsById.put(card.getId(), card));
+
+        List<PantryRecipeDTO> results = new ArrayList<>(matches.size());
+        for (RecipePantryIndex.PantryMatch match : matches) {
+            RecipeCardDTO card = cardsById.get(match.getRecipeId());
+            if (card != null) {
+                results.add(new PantryRecipeDTO(card, match.getMatchedIngredients(), match.getTotalIngredients(),
+                        match.getCoverage(), match.getMissingIngredientIds().stream()
+                                .map(ingredientCatalog::getName)
+                                .collect(Collectors.toList())));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Load recipe cards for IDs ordered by an index, keeping that order.
+     * IDs of recipes deleted since they were indexed are skipped.
+     */
+    private List<RecipeCardDTO> findCardsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Bounded IN lists, so unpaged results do not produce one huge statement
+        Map<Long, RecipeCardDTO> cardsById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += CARD_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + CARD_BATCH_SIZE, ids.size()));
+            recipeRepository.findCardsByIdIn(batch)
+                    .forEach(card -> cardsById.put(card.getId(), card));
+        }
+        return ids.stream()
+                .map(cardsById::get)
+                .filter(card -> card != null)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Build a cursor page from index results holding one ID more than the page size.
+     * {@code hasMore} and the next cursor come from the IDs, so recipes deleted since they
+     * were indexed shorten the page without ending the listing.
+     */
+    private CursorPageResponseDTO<RecipeCardDTO> toIndexCursorPage(List<Long> ids, int pageSize,
+                                                                  Long currentUserId) {
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+        List<RecipeCardDTO> pageRows = findCardsInOrder(pageIds);
+        
+        CursorPageResponseDTO<RecipeCardDTO> page = new CursorPageResponseDTO<>();
+        page.setItems(recipeMapper.applyUserState(pageRows, currentUserId));
+        page.setHasMore(hasMore);
+        page.setSize(pageRows.size());
+        if (hasMore) {
+            page.setNextCursor(RecipeCursor.ofId(pageIds.get(pageIds.size() - 1)).encode());
+        }
+        return page;
+    }
+
+    /**
+     * Build a cursor page from a keyset query that fetched one row more than the page size.
+     */
+    private CursorPageResponseDTO<RecipeCardDTO> toCursorPage(List<RecipeCardDTO> rows, int pageSize,
+                                                             Long currentUserId) {
+        boolean hasMore = rows.size() > pageSize;
+        List<RecipeCardDTO> pageRows = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        
+        CursorPageResponseDTO<RecipeCardDTO> page = new CursorPageResponseDTO<>();
+        page.setItems(recipeMapper.applyUserState(pageRows, currentUserId));
+        page.setHasMore(hasMore);
+        page.setSize(pageRows.size());
+        if (hasMore) {
+            RecipeCardDTO last = pageRows.get(pageRows.size() - 1);
+            page.setNextCursor(RecipeCursor.of(last.getCreatedAt(), last.getId()).encode());
+        }
+        return page;
+    }
 }
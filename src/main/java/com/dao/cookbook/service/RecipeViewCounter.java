@@ -0,0 +1,366 @@
+package com.dao.cookbook.service;
+
+import com.dao.cookbook.event.RecipeChangeHandler;
+import com.dao.cookbook.event.RecipeChangedEvent;
+import com.dao.cookbook.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-recipe view counts and estimated distinct viewers, counted in memory and written
+ * to the database periodically.
+ * <p>
+ * Each detail view increments the recipe's {@link LongAdder} (striped, so concurrent views
+ * of a popular recipe do not contend) and, for a signed-in viewer, adds the user ID to a
+ * HyperLogLog sketch of the viewers since the last write. Every
+ * {@code app.views.counters.flush-interval-ms} the new views are added to
+ * {@code recipes.views_count} and the new viewers are merged into the recipe's sketch in
+ * {@code recipe_viewer_sketches}, whose estimate is stored in
+ * {@code recipes.unique_viewers_count}; each batch of
+ * {@code app.views.counters.batch-size} recipes is one transaction. Writes keep
+ * {@code updated_at}, so views do not change a recipe's version.
+ * </p>
+ * <p>
+ * {@link #getViews} and {@link #getUniqueViewers} return the current counts without a
+ * query, including views not yet written. Views not yet written are lost if the process
+ * dies; they are written at shutdown. Assumes a single application instance writes the
+ * counts.
+ * </p>
+ */
+@Component
+public class RecipeViewCounter implements RecipeChangeHandler {
+
+    /** 2048 registers (2 KB per sketch), about 2.3% standard error */
+    private static final int SKETCH_PRECISION = 11;
+
+    private static final String SELECT_COUNTS_SQL =
+            "SELECT id, views_count, unique_viewers_count FROM recipes WHERE id IN (:ids) FOR UPDATE";
+    private static final String SELECT_SKETCHES_SQL =
+            "SELECT recipe_id, viewers_sketch FROM recipe_viewer_sketches WHERE recipe_id IN (:ids)";
+    private static final String UPDATE_COUNTS_SQL =
+            "UPDATE recipes SET views_count = ?, unique_viewers_count = ?, updated_at = updated_at WHERE id = ?";
+    private static final String UPSERT_SKETCH_SQL =
+            "INSERT INTO recipe_viewer_sketches (recipe_id, viewers_sketch) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE viewers_sketch = VALUES(viewers_sketch)";
+    private static final String DELETE_SKETCH_SQL = "DELETE FROM recipe_viewer_sketches WHERE recipe_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+    private final LongAdder views = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile int lastFlushRecipes = -1;
+    private volatile long lastFlushMillis = -1;
+
+    public RecipeViewCounter(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.views.counters.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Count a view of a recipe.
+     *
+     * @param userId the viewer, or null for an anonymous view (not counted as a viewer)
+     */
+    public void record(Long recipeId, Long userId) {
+        Counter counter = counters.computeIfAbsent(recipeId, id -> new Counter());
+        counter.views.increment();
+        if (userId != null) {
+            counter.addViewer(userId);
+        }
+        views.increment();
+    }
+
+    /**
+     * Current number of views of a recipe.
+     *
+     * @param stored views_count as loaded with the recipe
+     */
+    public long getViews(Long recipeId, Long stored) {
+        long base = stored != null ? stored : 0;
+        Counter counter = counters.get(recipeId);
+        if (counter == null) {
+            return base;
+        }
+        Flushed flushed = counter.flushed;
+        if (flushed == null) {
+            // Nothing written since startup, so the stored count has none of these views
+            return base + counter.views.sum();
+        }
+        return flushed.views + counter.views.sum() - flushed.written;
+    }
+
+    /**
+     * Estimated number of distinct signed-in viewers of a recipe, as of the last write.
+     *
+     * @param stored unique_viewers_count as loaded with the recipe
+     */
+    public long getUniqueViewers(Long recipeId, Long stored) {
+        Counter counter = counters.get(recipeId);
+        Flushed flushed = counter != null ? counter.flushed : null;
+        if (flushed != null) {
+            return flushed.uniqueViewers;
+        }
+        return stored != null ? stored : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.counters.flush-interval-ms:30000}",
+               initialDelayString = "${app.views.counters.flush-interval-ms:30000}")
+    public void onSchedule() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush recipe view counts: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        flush();
+    }
+
+    /**
+     * Write the views and viewers counted since the last write.
+     */
+    public synchronized void flush() {
+        long start = System.currentTimeMillis();
+        List<Pending> pending = new ArrayList<>();
+        for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+            Pending item = entry.getValue().takePending(entry.getKey());
+            if (item != null) {
+                pending.add(item);
+            }
+        }
+        for (int from = 0; from < pending.size(); from += batchSize) {
+            List<Pending> batch = pending.subList(from, Math.min(from + batchSize, pending.size()));
+            Map<Long, Flushed> results;
+            try {
+                results = transactionTemplate.execute(status -> write(batch));
+                flushes.increment();
+            } catch (RuntimeException e) {
+                failures.increment();
+                System.err.println("Failed to write recipe view counts: " + e.getMessage());
+                // Views are retried next time because written is not advanced; viewers are put back
+                for (Pending item : batch) {
+                    item.counter.restoreViewers(item.viewers);
+                }
+                continue;
+            }
+            for (Pending item : batch) {
+                Flushed flushed = results.get(item.recipeId);
+                if (flushed == null) {
+                    // Deleted meanwhile
+                    counters.remove(item.recipeId);
+                } else {
+                    item.counter.flushed = flushed;
+                    written.add(item.newViews);
+                }
+            }
+        }
+        lastFlushRecipes = pending.size();
+        lastFlushMillis = System.currentTimeMillis() - start;
+    }
+
+    @Override
+    public String getName() {
+        return "viewCounts";
+    }
+
+    /**
+     * Forget the counts of deleted recipes and delete their sketches.
+     */
+    @Override
+    public void onRecipesChanged(List<RecipeChangedEvent> events) {
+        for (RecipeChangedEvent event : events) {
+            if (event.getType() == RecipeChangedEvent.Type.DELETED) {
+                counters.remove(event.getRecipeId());
+                jdbcTemplate.update(DELETE_SKETCH_SQL, event.getRecipeId());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long pendingViews = 0;
+        for (Counter counter : counters.values()) {
+            Flushed flushed = counter.flushed;
+            pendingViews += counter.views.sum() - (flushed != null ? flushed.written : 0);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedRecipes", counters.size());
+        stats.put("views", views.sum());
+        stats.put("pendingViews", pendingViews);
+        stats.put("writtenViews", written.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastFlushRecipes", lastFlushRecipes);
+        stats.put("lastFlushMs", lastFlushMillis);
+        return stats;
+    }
+
+    /**
+     * Write one batch and return the counts written, by recipe ID (deleted recipes are
+     * left out).
+     */
+    private Map<Long, Flushed> write(List<Pending> batch) {
+        List<Long> ids = new ArrayList<>();
+        List<Long> viewedIds = new ArrayList<>();
+        for (Pending item : batch) {
+            ids.add(item.recipeId);
+            if (item.viewers != null) {
+                viewedIds.add(item.recipeId);
+            }
+        }
+        Map<Long, long[]> stored = new HashMap<>();
+        namedJdbcTemplate.query(SELECT_COUNTS_SQL, Map.of("ids", ids), rs -> {
+            stored.put(rs.getLong("id"), new long[]{rs.getLong("views_count"), rs.getLong("unique_viewers_count")});
+        });
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        if (!viewedIds.isEmpty()) {
+            namedJdbcTemplate.query(SELECT_SKETCHES_SQL, Map.of("ids", viewedIds), rs -> {
+                sketches.put(rs.getLong("recipe_id"), readSketch(rs.getBytes("viewers_sketch")));
+            });
+        }
+
+        List<Object[]> countRows = new ArrayList<>();
+        List<Object[]> sketchRows = new ArrayList<>();
+        Map<Long, Flushed> results = new HashMap<>();
+        for (Pending item : batch) {
+            long[] counts = stored.get(item.recipeId);
+            if (counts == null) {
+                continue;
+            }
+            long totalViews = counts[0] + item.newViews;
+            long uniqueViewers = counts[1];
+            if (item.viewers != null) {
+                HyperLogLog sketch = sketches.get(item.recipeId);
+                if (sketch == null) {
+                    sketch = item.viewers;
+                } else {
+                    sketch.merge(item.viewers);
+                }
+                uniqueViewers = sketch.estimate();
+                sketchRows.add(new Object[]{item.recipeId, sketch.toBytes()});
+            }
+            countRows.add(new Object[]{totalViews, uniqueViewers, item.recipeId});
+            results.put(item.recipeId, new Flushed(totalViews, uniqueViewers, item.views));
+        }
+        if (!countRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_COUNTS_SQL, countRows);
+        }
+        if (!sketchRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SKETCH_SQL, sketchRows);
+        }
+        return results;
+    }
+
+    private static HyperLogLog readSketch(byte[] bytes) {
+        try {
+            return HyperLogLog.fromBytes(bytes, SKETCH_PRECISION);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Discarding unreadable viewer sketch: " + e.getMessage());
+            return new HyperLogLog(SKETCH_PRECISION);
+        }
+    }
+
+    /**
+     * Counts written by the last successful flush.
+     */
+    private static final class Flushed {
+
+        private final long views;
+        private final long uniqueViewers;
+        /** Value of the in-memory view counter included in {@link #views} */
+        private final long written;
+
+        private Flushed(long views, long uniqueViewers, long written) {
+            this.views = views;
+            this.uniqueViewers = uniqueViewers;
+            this.written = written;
+        }
+    }
+
+    /**
+     * In-memory counts of one recipe since startup.
+     */
+    private static final class Counter {
+
+        private final LongAdder views = new LongAdder();
+        private HyperLogLog viewers;
+        private volatile Flushed flushed;
+
+        synchronized void addViewer(long userId) {
+            if (viewers == null) {
+                viewers = new HyperLogLog(SKETCH_PRECISION);
+            }
+            viewers.add(userId);
+        }
+
+        synchronized void restoreViewers(HyperLogLog taken) {
+            if (taken == null) {
+                return;
+            }
+            if (viewers == null) {
+                viewers = taken;
+            } else {
+                viewers.merge(taken);
+            }
+        }
+
+        /**
+         * Take the views and viewers not written yet, or null if there are none.
+         */
+        synchronized Pending takePending(Long recipeId) {
+            long total = views.sum();
+            long previouslyWritten = flushed != null ? flushed.written : 0;
+            if (total == previouslyWritten && viewers == null) {
+                return null;
+            }
+            Pending pending = new Pending(recipeId, this, total, total - previouslyWritten, viewers);
+            viewers = null;
+            return pending;
+        }
+    }
+
+    /**
+     * Views and viewers of one recipe taken for a flush.
+     */
+    private static final class Pending {
+
+        private final Long recipeId;
+        private final Counter counter;
+        private final long views;
+        private final long newViews;
+        private final HyperLogLog viewers;
+
+        private Pending(Long recipeId, Counter counter, long views, long newViews, HyperLogLog viewers) {
+            this.recipeId = recipeId;
+            this.counter = counter;
+            this.views = views;
+            this.newViews = newViews;
+            this.viewers = viewers;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.dao.cookbook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps {@code recipe_view_history} bounded by moving old views into
+ * {@code recipe_view_history_archive}.
+ * <p>
+ * On the {@code app.views.retention.cron} schedule:
+ * </p>
+ * <ol>
+ *   <li>Every view of a (user, recipe) except the latest (highest ID) is archived. The
+ *       table is scanned by ID ranges of {@code scan-window} IDs; a run that stops early
+ *       resumes where it stopped.</li>
+ *   <li>Users with more than {@code app.views.retention.max-per-user} rows keep only their
+ *       most recent ones; the rest are archived.</li>
+ *   <li>Archive partitions older than {@code app.views.retention.archive-months} months
+ *       are dropped.</li>
+ * </ol>
+ * <p>
+ * Rows are archived in chunks of {@code chunk-size}; each chunk copies the rows to the
+ * archive and deletes them in one transaction. A run processes at most
+ * {@code max-chunks-per-run} chunks, pausing briefly between chunks, and continues on the
+ * next run. The archive is partitioned by month of {@code viewed_at} (created with the
+ * first partitions if missing, one partition added per month), so expiring it is a
+ * partition drop rather than a delete.
+ * </p>
+ */
+@Component
+public class RecipeViewHistoryCompactor {
+
+    private static final String ARCHIVE_TABLE = "recipe_view_history_archive";
+    private static final String MAX_PARTITION = "pmax";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private static final String SELECT_DUPLICATES_SQL =
+            "SELECT h.id FROM recipe_view_history h WHERE h.id > ? AND h.id <= ? " +
+            "AND EXISTS (SELECT 1 FROM recipe_view_history n " +
+            "WHERE n.user_id = h.user_id AND n.recipe_id = h.recipe_id AND n.id > h.id) " +
+            "ORDER BY h.id LIMIT ? FOR UPDATE";
+    private static final String SELECT_USERS_OVER_CAP_SQL =
+            "SELECT user_id FROM recipe_view_history GROUP BY user_id HAVING COUNT(*) > ?";
+    private static final String SELECT_OVER_CAP_SQL =
+            "SELECT id FROM recipe_view_history WHERE user_id = ? " +
+            "ORDER BY viewed_at DESC, id DESC LIMIT ? OFFSET ? FOR UPDATE";
+    private static final String ARCHIVE_SQL =
+            "INSERT INTO " + ARCHIVE_TABLE + " (id, user_id, recipe_id, viewed_at) " +
+            "SELECT id, user_id, recipe_id, viewed_at FROM recipe_view_history WHERE id IN (:ids)";
+    private static final String DELETE_SQL = "DELETE FROM recipe_view_history WHERE id IN (:ids)";
+    private static final String SELECT_PARTITIONS_SQL =
+            "SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = '" + ARCHIVE_TABLE + "' " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxPerUser;
+    private final int archiveMonths;
+    private final int chunkSize;
+    private final int scanWindow;
+    private final int maxChunksPerRun;
+    private final long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder duplicatesArchived = new LongAdder();
+    private final LongAdder overCapArchived = new LongAdder();
+    private final LongAdder partitionsDropped = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    // Next ID range of the duplicate scan; reset once the scan reaches the end of the table
+    private volatile long scanFromId;
+    private volatile long lastRunRows = -1;
+    private volatile long lastRunMillis = -1;
+    private volatile boolean lastRunComplete;
+
+    public RecipeViewHistoryCompactor(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.views.retention.enabled:true}") boolean enabled,
+                                      @Value("${app.views.retention.max-per-user:200}") int maxPerUser,
+                                      @Value("${app.views.retention.archive-months:12}") int archiveMonths,
+                                      @Value("${app.views.retention.chunk-size:1000}") int chunkSize,
+                                      @Value("${app.views.retention.scan-window:20000}") int scanWindow,
+                                      @Value("${app.views.retention.max-chunks-per-run:500}") int maxChunksPerRun,
+                                      @Value("${app.views.retention.pause-ms:50}") long pauseMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxPerUser = maxPerUser;
+        this.archiveMonths = archiveMonths;
+        this.chunkSize = chunkSize;
+        this.scanWindow = scanWindow;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(cron = "${app.views.retention.cron:0 0 4 * * *}")
+    public void onSchedule() {
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * Archive duplicate and over-cap views and expire old archive partitions, up to
+     * {@code max-chunks-per-run} chunks. Does nothing if a run is already in progress.
+     *
+     * @return number of rows archived
+     */
+    public long compact() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        boolean complete = false;
+        try {
+            ensurePartitions();
+            Budget budget = new Budget(maxChunksPerRun);
+            long duplicates = archiveDuplicates(budget);
+            duplicatesArchived.add(duplicates);
+            rows += duplicates;
+            if (budget.remaining > 0) {
+                long overCap = archiveOverCap(budget);
+                overCapArchived.add(overCap);
+                rows += overCap;
+            }
+            complete = budget.remaining > 0;
+            dropExpiredPartitions();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failures.increment();
+            System.err.println("Failed to compact recipe view history: " + e.getMessage());
+        } finally {
+            runs.increment();
+            lastRunRows = rows;
+            lastRunComplete = complete;
+            lastRunMillis = System.currentTimeMillis() - start;
+            running.set(false);
+        }
+        return rows;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxPerUser", maxPerUser);
+        stats.put("archiveMonths", archiveMonths);
+        stats.put("running", running.get());
+        stats.put("runs", runs.sum());
+        stats.put("duplicatesArchived", duplicatesArchived.sum());
+        stats.put("overCapArchived", overCapArchived.sum());
+        stats.put("partitionsDropped", partitionsDropped.sum());
+        stats.put("failures", failures.sum());
+        stats.put("scanFromId", scanFromId);
+        stats.put("lastRunRows", lastRunRows);
+        stats.put("lastRunComplete", lastRunComplete);
+        stats.put("lastRunMs", lastRunMillis);
+        return stats;
+    }
+
+    /**
+     * Archive every view that is not the latest view of its (user, recipe).
+     */
+    private long archiveDuplicates(Budget budget) throws InterruptedException {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM recipe_view_history", Long.class);
+        if (maxId == null) {
+            scanFromId = 0;
+            return 0;
+        }
+        long rows = 0;
+        long from = scanFromId;
+        while (from < maxId && budget.remaining > 0) {
+            long to = Math.min(from + scanWindow, maxId);
+            long rangeFrom = from;
+            Integer archived = transactionTemplate.execute(status -> archive(jdbcTemplate.queryForList(
+                    SELECT_DUPLICATES_SQL, Long.class, rangeFrom, to, chunkSize)));
+            rows += archived;
+            budget.remaining--;
+            if (archived < chunkSize) {
+                // Range done; otherwise scan it again for the rest of its duplicates
+                from = to;
+                scanFromId = from;
+            }
+            Thread.sleep(pauseMillis);
+        }
+        if (from >= maxId) {
+            scanFromId = 0;
+        }
+        return rows;
+    }
+
+    /**
+     * Archive the oldest views of users above the per-user cap.
+     */
+    private long archiveOverCap(Budget budget) throws InterruptedException {
+        List<Long> userIds = jdbcTemplate.queryForList(SELECT_USERS_OVER_CAP_SQL, Long.class, maxPerUser);
+        long rows = 0;
+        for (Long userId : userIds) {
+            int archived;
+            do {
+                if (budget.remaining <= 0) {
+                    return rows;
+                }
+                archived = transactionTemplate.execute(status -> archive(jdbcTemplate.queryForList(
+                        SELECT_OVER_CAP_SQL, Long.class, userId, chunkSize, maxPerUser)));
+                rows += archived;
+                budget.remaining--;
+                Thread.sleep(pauseMillis);
+            } while (archived == chunkSize);
+        }
+        return rows;
+    }
+
+    /**
+     * Copy rows to the archive and delete them. Runs inside the chunk's transaction.
+     */
+    private int archive(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> params = Map.of("ids", ids);
+        namedJdbcTemplate.update(ARCHIVE_SQL, params);
+        namedJdbcTemplate.update(DELETE_SQL, params);
+        return ids.size();
+    }
+
+    /**
+     * Create the archive if missing and add monthly partitions up to next month.
+     */
+    private void ensurePartitions() {
+        YearMonth current = YearMonth.now();
+        // The first partition also holds anything older
+        YearMonth first = current.minusMonths(Math.max(archiveMonths, 1));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + ARCHIVE_TABLE + " (" +
+                "id BIGINT NOT NULL, " +
+                "user_id BIGINT NOT NULL, " +
+                "recipe_id BIGINT NOT NULL, " +
+                "viewed_at TIMESTAMP NOT NULL, " +
+                "PRIMARY KEY (id, viewed_at), " +
+                "INDEX idx_recipe_view_history_archive_user (user_id, viewed_at)" +
+                ") PARTITION BY RANGE (UNIX_TIMESTAMP(viewed_at)) (" +
+                partition(first) + ", " +
+                "PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+
+        YearMonth last = null;
+        for (String name : jdbcTemplate.queryForList(SELECT_PARTITIONS_SQL, String.class)) {
+            if (!MAX_PARTITION.equals(name)) {
+                last = YearMonth.parse(name, PARTITION_NAME);
+            }
+        }
+        YearMonth month = last != null ? last.plusMonths(1) : first;
+        for (; !month.isAfter(current.plusMonths(1)); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("ALTER TABLE " + ARCHIVE_TABLE + " REORGANIZE PARTITION " + MAX_PARTITION +
+                    " INTO (" + partition(month) + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+        }
+    }
+
+    /**
+     * Drop the partitions of months before the retained ones (0 = keep the archive forever).
+     */
+    private void dropExpiredPartitions() {
+        if (archiveMonths <= 0) {
+            return;
+        }
+        YearMonth oldestKept = YearMonth.now().minusMonths(archiveMonths);
+        for (String name : jdbcTemplate.queryForList(SELECT_PARTITIONS_SQL, String.class)) {
+            if (!MAX_PARTITION.equals(name) && YearMonth.parse(name, PARTITION_NAME).isBefore(oldestKept)) {
+                jdbcTemplate.execute("ALTER TABLE " + ARCHIVE_TABLE + " DROP PARTITION " + name);
+                partitionsDropped.increment();
+            }
+        }
+    }
+
+    /**
+     * Partition holding the views of a month (and, for the first partition, older ones).
+     */
+    private static String partition(YearMonth month) {
+        return "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN (UNIX_TIMESTAMP('" +
+                month.plusMonths(1).atDay(1) + " 00:00:00'))";
+    }
+
+    /**
+     * Chunks left in the current run.
+     */
+    private static final class Budget {
+
+        private int remaining;
+
+        private Budget(int remaining) {
+            this.remaining = remaining;
+        }
+    }
+}
@@ -1,17 +1,20 @@
 package com.dao.cookbook.service;
 
-import com.dao.cookbook.dto.response.RecipeResponseDTO;
-import com.dao.cookbook.entity.RecipeEntity;
+import com.dao.cookbook.dto.response.CursorPageResponseDTO;
+import com.dao.cookbook.dto.response.RecipeCardDTO;
 import com.dao.cookbook.entity.RecipeViewHistoryEntity;
 import com.dao.cookbook.mapper.RecipeMapper;
 import com.dao.cookbook.repository.RecipeRepository;
 import com.dao.cookbook.repository.RecipeViewHistoryRepository;
+import com.dao.cookbook.util.RecipeCursor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -23,45 +26,34 @@ public class RecipeViewHistoryService {
     private final RecipeViewHistoryRepository viewHistoryRepository;
     private final RecipeRepository recipeRepository;
     private final RecipeMapper recipeMapper;
+    private final RecipeViewWriteBuffer recipeViewWriteBuffer;
+    private final RecipeViewCounter recipeViewCounter;
 
     public RecipeViewHistoryService(RecipeViewHistoryRepository viewHistoryRepository,
                                    RecipeRepository recipeRepository,
-                                   RecipeMapper recipeMapper) {
+                                   RecipeMapper recipeMapper,
+                                   RecipeViewWriteBuffer recipeViewWriteBuffer,
+                                   RecipeViewCounter recipeViewCounter) {
         this.viewHistoryRepository = viewHistoryRepository;
         this.recipeRepository = recipeRepository;
         this.recipeMapper = recipeMapper;
+        this.recipeViewWriteBuffer = recipeViewWriteBuffer;
+        this.recipeViewCounter = recipeViewCounter;
     }
 
     /**
-     * Save or update view history when user views a recipe.
-     * Updates viewedAt timestamp if user already viewed this recipe before.
-     * 
-     * @param userId the ID of the user viewing the recipe
-     * @param recipeId the ID of the recipe being viewed
+     * Record that a recipe was viewed: counted by {@link RecipeViewCounter} and, for a
+     * signed-in user, added to the view history.
+     * The row is written in the background by {@link RecipeViewWriteBuffer}; viewing the
+     * same recipe again before it is written only moves its viewedAt.
+     *
+     * @param userId the ID of the user viewing the recipe, or null if anonymous
+     * @param recipeId the ID of the recipe being viewed (known to exist)
      */
-    @Transactional
-    public void saveViewHistory(Long userId, Long recipeId) {
-        // Check if recipe exists
-        if (!recipeRepository.existsById(recipeId)) {
-            return; // Silently return if recipe doesn't exist
-        }
-
-        // Check if user has viewed this recipe before
-        Optional<RecipeViewHistoryEntity> existingView = 
-            viewHistoryRepository.findFirstByUserIdAndRecipeIdOrderByViewedAtDesc(userId, recipeId);
-
-        if (existingView.isPresent()) {
-            // Update existing entry by creating new one (to update viewedAt)
-            RecipeViewHistoryEntity newView = new RecipeViewHistoryEntity();
-            newView.setUserId(userId);
-            newView.setRecipeId(recipeId);
-            viewHistoryRepository.save(newView);
-        } else {
-            // Create new entry
-            RecipeViewHistoryEntity viewHistory = new RecipeViewHistoryEntity();
-            viewHistory.setUserId(userId);
-            viewHistory.setRecipeId(recipeId);
-            viewHistoryRepository.save(viewHistory);
+    public void recordView(Long userId, Long recipeId) {
+        recipeViewCounter.record(recipeId, userId);
+        if (userId != null) {
+            recipeViewWriteBuffer.offer(userId, recipeId);
         }
     }
 
@@ -73,45 +65,64 @@ public class RecipeViewHistoryService {
      * @param limit maximum number of recipes to return (default: 20)
      * @return list of recently viewed recipes
      */
-    public List<RecipeResponseDTO> getRecentlyViewedRecipes(Long userId, Integer limit) {
+    public List<RecipeCardDTO> getRecentlyViewedRecipes(Long userId, Integer limit) {
         int pageSize = (limit != null && limit > 0) ? limit : 20;
         
         List<RecipeViewHistoryEntity> viewHistory = 
             viewHistoryRepository.findRecentlyViewedByUserIdWithLimit(userId, PageRequest.of(0, pageSize));
-        
-        return viewHistory.stream()
-                .map(vh -> {
-                    RecipeEntity recipe = recipeRepository.findById(vh.getRecipeId()).orElse(null);
-                    if (recipe != null) {
-                        return recipeMapper.toResponse(recipe, userId);
-                    }
-                    return null;
-                })
-                .filter(dto -> dto != null)
-                .collect(Collectors.toList());
+        return recipeMapper.applyUserState(toCards(viewHistory), userId);
     }
 
     /**
-     * Get all recently viewed recipes (no limit).
+     * Get one keyset page of recently viewed recipes, most recently viewed first.
+     * 
+     * @param cursor opaque cursor from the previous page (null for the first page)
+     * @param size requested page size (clamped to {@link RecipeCursor#MAX_PAGE_SIZE})
      */
-    public List<RecipeResponseDTO> getRecentlyViewedRecipes(Long userId) {
-        List<RecipeViewHistoryEntity> viewHistory = 
-            viewHistoryRepository.findRecentlyViewedByUserId(userId);
+    public CursorPageResponseDTO<RecipeCardDTO> getRecentlyViewedRecipesPage(Long userId, String cursor, Integer size) {
+        RecipeCursor after = RecipeCursor.decode(cursor);
+        int pageSize = RecipeCursor.pageSize(size);
+        List<RecipeViewHistoryEntity> rows = viewHistoryRepository.findRecentlyViewedPageAfter(
+                userId, after.getCreatedAt(), after.getId(), PageRequest.of(0, pageSize + 1));
         
-        return viewHistory.stream()
-                .map(vh -> {
-                    RecipeEntity recipe = recipeRepository.findById(vh.getRecipeId()).orElse(null);
-                    if (recipe != null) {
-                        return recipeMapper.toResponse(recipe, userId);
-                    }
-                    return null;
-                })
-                .filter(dto -> dto != null)
+        boolean hasMore = rows.size() > pageSize;
+        List<RecipeViewHistoryEntity> pageRows = hasMore ? rows.subList(0, pageSize) : rows;
+        
+        CursorPageResponseDTO<RecipeCardDTO> page = new CursorPageResponseDTO<>();
+        page.setItems(recipeMapper.applyUserState(toCards(pageRows), userId));
+        page.setHasMore(hasMore);
+        page.setSize(page.getItems().size());
+        if (hasMore) {
+            // Positioned on the view, not the recipe
+            RecipeViewHistoryEntity last = pageRows.get(pageRows.size() - 1);
+            page.setNextCursor(RecipeCursor.of(last.getViewedAt(), last.getId()).encode());
+        }
+        return page;
+    }
+
+    /**
+     * Load the cards of the viewed recipes with one IN query, in view order.
+     * Views of recipes deleted meanwhile are skipped.
+     */
+    private List<RecipeCardDTO> toCards(List<RecipeViewHistoryEntity> views) {
+        if (views.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> recipeIds = views.stream()
+                .map(RecipeViewHistoryEntity::getRecipeId)
+                .collect(Collectors.toList());
+        Map<Long, RecipeCardDTO> cardsById = new HashMap<>();
+        recipeRepository.findCardsByIdIn(recipeIds)
+                .forEach(card -> cardsById.put(card.getId(), card));
+        return views.stream()
+                .map(view -> cardsById.get(view.getRecipeId()))
+                .filter(card -> card != null)
                 .collect(Collectors.toList());
     }
 
     /**
-     * Count how many times a user has viewed a specific recipe.
+     * Count how many times a user has viewed a specific recipe since the last run of
+     * {@link RecipeViewHistoryCompactor} (which keeps only the latest view).
      */
     public long countUserViews(Long userId, Long recipeId) {
         return viewHistoryRepository.countByUserIdAndRecipeId(userId, recipeId);
@@ -122,6 +133,7 @@ public class RecipeViewHistoryService {
      */
     @Transactional
     public void clearUserViewHistory(Long userId) {
+        recipeViewWriteBuffer.discard(userId);
         viewHistoryRepository.deleteByUserId(userId);
     }
 
@@ -130,6 +142,7 @@ public class RecipeViewHistoryService {
      */
     @Transactional
     public void removeRecipeFromHistory(Long userId, Long recipeId) {
+        recipeViewWriteBuffer.discard(userId, recipeId);
         viewHistoryRepository.deleteByUserIdAndRecipeId(userId, recipeId);
     }
 }
@@ -0,0 +1,130 @@
+package com.dao.cookbook.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Write-behind buffer for {@code recipe_view_history} rows recorded by the recipe detail
+ * endpoint.
+ * <p>
+ * A {@link CoalescingWriteBuffer} keyed by (user, recipe): views are inserted by a
+ * scheduled task every {@code app.views.buffer.flush-interval-ms}, in JDBC batches of
+ * {@code app.views.buffer.batch-size}, with at most {@code app.views.buffer.capacity} rows
+ * queued, so viewing a recipe does no database write on the request thread. The same
+ * (user, recipe) viewed again before its row is written updates the queued time instead of
+ * adding a row.
+ * </p>
+ */
+@Component
+public class RecipeViewWriteBuffer {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO recipe_view_history (user_id, recipe_id, viewed_at) VALUES (?, ?, ?)";
+
+    private final CoalescingWriteBuffer<Key> buffer;
+    private volatile boolean started;
+
+    public RecipeViewWriteBuffer(JdbcTemplate jdbcTemplate,
+                                 @Value("${app.views.buffer.capacity:20000}") int capacity,
+                                 @Value("${app.views.buffer.batch-size:500}") int batchSize) {
+        this.buffer = new CoalescingWriteBuffer<>(jdbcTemplate, "recipe-view", INSERT_SQL,
+                (key, at) -> new Object[]{key.userId, key.recipeId, at},
+                capacity, batchSize);
+    }
+
+    /**
+     * Queue a view.
+     */
+    public CoalescingWriteBuffer.Result offer(Long userId, Long recipeId) {
+        return buffer.offer(new Key(userId, recipeId));
+    }
+
+    /**
+     * Discard a user's queued views, so that rows deleted from the history do not
+     * reappear when the buffer is flushed.
+     */
+    public void discard(Long userId) {
+        buffer.discardIf(key -> key.userId.equals(userId));
+    }
+
+    /**
+     * Discard a user's queued views of one recipe.
+     */
+    public void discard(Long userId, Long recipeId) {
+        buffer.discard(new Key(userId, recipeId));
+    }
+
+    /**
+     * Start flushing once the application has started. Rows queued before then are
+     * written by the first scheduled flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        started = true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.buffer.flush-interval-ms:1000}",
+               initialDelayString = "${app.views.buffer.flush-interval-ms:1000}")
+    public void onSchedule() {
+        if (!started) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush " + buffer.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        flush();
+    }
+
+    /**
+     * Insert every queued row.
+     */
+    public void flush() {
+        buffer.flush();
+    }
+
+    public Map<String, Object> getStats() {
+        return buffer.getStats();
+    }
+
+    private static final class Key {
+
+        private final Long userId;
+        private final Long recipeId;
+
+        private Key(Long userId, Long recipeId) {
+            this.userId = userId;
+            this.recipeId = recipeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId.equals(other.userId) && recipeId.equals(other.recipeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, recipeId);
+        }
+    }
+}
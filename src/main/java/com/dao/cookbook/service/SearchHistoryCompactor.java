@@ -0,0 +1,181 @@
+package com.dao.cookbook.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolls old {@code search_history} rows up into daily counts and deletes them.
+ * <p>
+ * On the {@code app.search.history.retention.cron} schedule, rows searched before the
+ * start of the day {@code app.search.history.retention.days} days ago are processed in
+ * chunks of {@code app.search.history.retention.chunk-size}, oldest first. Each chunk is
+ * one transaction that adds the rows to {@code search_history_daily} (query, day, count)
+ * and to the users' {@code search_history_user_totals}, then deletes them, so queries
+ * that union the rollup with the raw rows never count a search twice or miss it. Runs are
+ * capped at {@code max-chunks-per-run} chunks with a short pause between chunks, so a large
+ * backlog is worked off over several runs without holding locks for long.
+ * </p>
+ * <p>
+ * A user's history, distinct queries and recent searches only cover the retention period;
+ * their total number of searches and the trending keywords include the rolled-up rows.
+ * </p>
+ */
+@Component
+public class SearchHistoryCompactor {
+
+    /** The hourly trending window is rebuilt from raw rows only */
+    private static final int MIN_RETENTION_DAYS = 3;
+
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id FROM search_history WHERE searched_at < ? ORDER BY searched_at LIMIT ? FOR UPDATE";
+
+    private static final String ROLLUP_DAILY_SQL =
+            "INSERT INTO search_history_daily (day, search_query, search_count) " +
+            "SELECT day, search_query, search_count FROM (" +
+            "SELECT DATE(searched_at) AS day, search_query, COUNT(*) AS search_count " +
+            "FROM search_history WHERE id IN (:ids) GROUP BY day, search_query" +
+            ") chunk " +
+            "ON DUPLICATE KEY UPDATE search_count = search_history_daily.search_count + chunk.search_count";
+
+    private static final String ROLLUP_USER_TOTALS_SQL =
+            "INSERT INTO search_history_user_totals (user_id, search_count) " +
+            "SELECT user_id, search_count FROM (" +
+            "SELECT user_id, COUNT(*) AS search_count " +
+            "FROM search_history WHERE id IN (:ids) GROUP BY user_id" +
+            ") chunk " +
+            "ON DUPLICATE KEY UPDATE search_count = search_history_user_totals.search_count + chunk.search_count";
+
+    private static final String DELETE_CHUNK_SQL = "DELETE FROM search_history WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+    private final long pauseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder rolledUp = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile String lastCutoff;
+    private volatile long lastRunRows = -1;
+    private volatile long lastRunMillis = -1;
+    private volatile boolean lastRunComplete;
+
+    public SearchHistoryCompactor(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.search.history.retention.enabled:true}") boolean enabled,
+                                  @Value("${app.search.history.retention.days:90}") int retentionDays,
+                                  @Value("${app.search.history.retention.chunk-size:1000}") int chunkSize,
+                                  @Value("${app.search.history.retention.max-chunks-per-run:500}") int maxChunksPerRun,
+                                  @Value("${app.search.history.retention.pause-ms:50}") long pauseMillis) {
+        if (retentionDays < MIN_RETENTION_DAYS) {
+            throw new IllegalArgumentException(
+                    "app.search.history.retention.days phải lớn hơn hoặc bằng " + MIN_RETENTION_DAYS);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(cron = "${app.search.history.retention.cron:0 30 3 * * *}")
+    public void onSchedule() {
+        if (enabled) {
+            compact();
+        }
+    }
+
+    /**
+     * Roll up and delete the rows older than the retention period, up to
+     * {@code max-chunks-per-run} chunks. Does nothing if a run is already in progress.
+     *
+     * @return number of rows rolled up
+     */
+    public long compact() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        boolean complete = false;
+        try {
+            // Whole days only, so each day is either rolled up or still raw
+            LocalDate cutoffDay = LocalDate.now().minusDays(retentionDays);
+            Timestamp cutoff = Timestamp.valueOf(cutoffDay.atStartOfDay());
+            lastCutoff = cutoffDay.toString();
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                Integer compacted = transactionTemplate.execute(status -> compactChunk(cutoff));
+                rows += compacted;
+                chunks.increment();
+                if (compacted < chunkSize) {
+                    complete = true;
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failures.increment();
+            System.err.println("Failed to compact search history: " + e.getMessage());
+        } finally {
+            rolledUp.add(rows);
+            runs.increment();
+            lastRunRows = rows;
+            lastRunComplete = complete;
+            lastRunMillis = System.currentTimeMillis() - start;
+            running.set(false);
+        }
+        return rows;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("retentionDays", retentionDays);
+        stats.put("running", running.get());
+        stats.put("runs", runs.sum());
+        stats.put("chunks", chunks.sum());
+        stats.put("rolledUpRows", rolledUp.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastCutoff", lastCutoff);
+        stats.put("lastRunRows", lastRunRows);
+        stats.put("lastRunComplete", lastRunComplete);
+        stats.put("lastRunMs", lastRunMillis);
+        return stats;
+    }
+
+    private int compactChunk(Timestamp cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_CHUNK_SQL, Long.class, cutoff, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> params = Map.of("ids", ids);
+        namedJdbcTemplate.update(ROLLUP_DAILY_SQL, params);
+        namedJdbcTemplate.update(ROLLUP_USER_TOTALS_SQL, params);
+        namedJdbcTemplate.update(DELETE_CHUNK_SQL, params);
+        return ids.size();
+    }
+}
@@ -2,6 +2,10 @@ package com.dao.cookbook.service;
 
 import com.dao.cookbook.entity.SearchHistoryEntity;
 import com.dao.cookbook.repository.SearchHistoryRepository;
+import com.dao.cookbook.repository.SearchHistoryUserTotalRepository;
+import com.dao.cookbook.search.TrendingKeywordTracker;
+import com.dao.cookbook.search.TrendingWindowCounter;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,9 +18,24 @@ import java.util.List;
 public class SearchHistoryService {
 
     private final SearchHistoryRepository searchHistoryRepository;
+    private final SearchHistoryUserTotalRepository searchHistoryUserTotalRepository;
+    private final TrendingKeywordTracker trendingKeywordTracker;
+    private final TrendingWindowCounter trendingWindowCounter;
+    private final SearchHistoryWriteBuffer searchHistoryWriteBuffer;
+    private final RecentSearchCache recentSearchCache;
 
-    public SearchHistoryService(SearchHistoryRepository searchHistoryRepository) {
+    public SearchHistoryService(SearchHistoryRepository searchHistoryRepository,
+                                SearchHistoryUserTotalRepository searchHistoryUserTotalRepository,
+                                TrendingKeywordTracker trendingKeywordTracker,
+                                TrendingWindowCounter trendingWindowCounter,
+                                SearchHistoryWriteBuffer searchHistoryWriteBuffer,
+                                RecentSearchCache recentSearchCache) {
         this.searchHistoryRepository = searchHistoryRepository;
+        this.searchHistoryUserTotalRepository = searchHistoryUserTotalRepository;
+        this.trendingKeywordTracker = trendingKeywordTracker;
+        this.trendingWindowCounter = trendingWindowCounter;
+        this.searchHistoryWriteBuffer = searchHistoryWriteBuffer;
+        this.recentSearchCache = recentSearchCache;
     }
 
     /**
@@ -33,7 +52,32 @@ public class SearchHistoryService {
         searchHistory.setUserId(userId);
         searchHistory.setSearchQuery(searchQuery.trim());
         
-        return searchHistoryRepository.save(searchHistory);
+        SearchHistoryEntity saved = searchHistoryRepository.save(searchHistory);
+        trendingKeywordTracker.record(saved.getSearchQuery());
+        trendingWindowCounter.record(saved.getSearchQuery());
+        recentSearchCache.push(userId, saved.getSearchQuery());
+        return saved;
+    }
+
+    /**
+     * Record a search made through the recipe search endpoints.
+     * The row is written in the background by {@link SearchHistoryWriteBuffer}; repeating
+     * the same query before it is written does not add another row (nor count again in
+     * trending keywords).
+     */
+    public void recordSearch(Long userId, String searchQuery) {
+        if (searchQuery == null || searchQuery.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query không được để trống");
+        }
+        String query = searchQuery.trim();
+        CoalescingWriteBuffer.Result result = searchHistoryWriteBuffer.offer(userId, query);
+        if (result == CoalescingWriteBuffer.Result.QUEUED) {
+            trendingKeywordTracker.record(query);
+            trendingWindowCounter.record(query);
+        }
+        if (result != CoalescingWriteBuffer.Result.DROPPED) {
+            recentSearchCache.push(userId, query);
+        }
     }
 
     /**
@@ -53,12 +97,14 @@ public class SearchHistoryService {
 
     /**
      * Get limited number of unique search queries.
+     * Served from {@link RecentSearchCache} for limits up to its size.
      */
     public List<String> getRecentUniqueSearchQueries(Long userId, int limit) {
-        List<String> allQueries = searchHistoryRepository.findDistinctSearchQueriesByUserId(userId);
-        return allQueries.stream()
-                .limit(limit)
-                .toList();
+        if (limit <= recentSearchCache.getSize()) {
+            return recentSearchCache.get(userId, limit, id -> searchHistoryRepository
+                    .findDistinctSearchQueriesByUserId(id, PageRequest.of(0, recentSearchCache.getSize())));
+        }
+        return searchHistoryRepository.findDistinctSearchQueriesByUserId(userId, PageRequest.of(0, limit));
     }
 
     /**
@@ -66,7 +112,10 @@ public class SearchHistoryService {
      */
     @Transactional
     public void clearUserSearchHistory(Long userId) {
+        searchHistoryWriteBuffer.discard(userId);
         searchHistoryRepository.deleteByUserId(userId);
+        searchHistoryUserTotalRepository.deleteById(userId);
+        recentSearchCache.invalidate(userId);
     }
 
     /**
@@ -74,21 +123,31 @@ public class SearchHistoryService {
      */
     @Transactional
     public void deleteSearchQuery(Long userId, String searchQuery) {
+        searchHistoryWriteBuffer.discard(userId, searchQuery);
         searchHistoryRepository.deleteByUserIdAndSearchQuery(userId, searchQuery);
+        recentSearchCache.invalidate(userId);
     }
 
     /**
-     * Get total number of searches by user.
+     * Get total number of searches by user, including the searches rolled up by
+     * {@link SearchHistoryCompactor}.
      */
     public long getUserSearchCount(Long userId) {
-        return searchHistoryRepository.countByUserId(userId);
+        long rolledUp = searchHistoryUserTotalRepository.findById(userId)
+                .map(total -> total.getSearchCount())
+                .orElse(0L);
+        return searchHistoryRepository.countByUserId(userId) + rolledUp;
     }
     
     /**
      * Get trending search keywords across all users.
      * Returns list of [searchQuery, searchCount] arrays.
+     * Served from {@link TrendingKeywordTracker} (estimated counts) once it is loaded.
      */
     public List<Object[]> getTrendingKeywords(int limit) {
+        if (trendingKeywordTracker.isReady()) {
+            return toRows(trendingKeywordTracker.top(limit));
+        }
         List<Object[]> allTrending = searchHistoryRepository.findTrendingSearchKeywords();
         return allTrending.stream()
                 .limit(limit)
@@ -98,12 +157,49 @@ public class SearchHistoryService {
     /**
      * Get trending search keywords within last N days.
      * Returns list of [searchQuery, searchCount] arrays.
+     * Served from {@link TrendingWindowCounter} (today plus the previous N - 1 days) once
+     * it is loaded and N is within its retention.
      */
     public List<Object[]> getTrendingKeywordsInDays(int days, int limit) {
-        java.time.LocalDateTime cutoffDate = java.time.LocalDateTime.now().minusDays(days);
+        if (trendingWindowCounter.isReady() && days <= trendingWindowCounter.getMaxDays()) {
+            return toRows(trendingWindowCounter.topInDays(days, limit));
+        }
+        return findTrendingSince(java.time.LocalDateTime.now().minusDays(days), limit);
+    }
+    
+    /**
+     * Get trending search keywords within the last N hours (the current hour included).
+     * Returns list of [searchQuery, searchCount] arrays.
+     */
+    public List<Object[]> getTrendingKeywordsInHours(int hours, int limit) {
+        if (trendingWindowCounter.isReady() && hours <= trendingWindowCounter.getMaxHours()) {
+            return toRows(trendingWindowCounter.topInHours(hours, limit));
+        }
+        return findTrendingSince(java.time.LocalDateTime.now().minusHours(hours), limit);
+    }
+    
+    /**
+     * Get keywords that are "hot right now": recent searches weigh exponentially more.
+     * Returns list of [searchQuery, score] arrays; until the window counts are loaded,
+     * falls back to plain counts over the last day.
+     */
+    public List<Object[]> getHotKeywords(int limit) {
+        if (trendingWindowCounter.isReady()) {
+            return toRows(trendingWindowCounter.hot(limit));
+        }
+        return findTrendingSince(java.time.LocalDateTime.now().minusDays(1), limit);
+    }
+    
+    private List<Object[]> findTrendingSince(java.time.LocalDateTime cutoffDate, int limit) {
         List<Object[]> allTrending = searchHistoryRepository.findTrendingSearchKeywordsInDays(cutoffDate);
         return allTrending.stream()
                 .limit(limit)
                 .toList();
     }
+    
+    private static List<Object[]> toRows(List<TrendingKeywordTracker.Trend> trends) {
+        return trends.stream()
+                .map(trend -> new Object[]{trend.getKeyword(), trend.getCount()})
+                .toList();
+    }
 }
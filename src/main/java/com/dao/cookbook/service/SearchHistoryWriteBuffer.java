@@ -0,0 +1,130 @@
+package com.dao.cookbook.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Write-behind buffer for {@code search_history} rows recorded by recipe searches.
+ * <p>
+ * A {@link CoalescingWriteBuffer} keyed by (user, query): searches are inserted by a
+ * scheduled task every {@code app.search.history.buffer.flush-interval-ms}, in JDBC batches of
+ * {@code app.search.history.buffer.batch-size}, with at most
+ * {@code app.search.history.buffer.capacity} rows queued. The same (user, query) searched
+ * again before its row is written updates the queued time instead of adding a row.
+ * </p>
+ */
+@Component
+public class SearchHistoryWriteBuffer {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO search_history (user_id, search_query, searched_at) VALUES (?, ?, ?)";
+
+    private final CoalescingWriteBuffer<Key> buffer;
+    private volatile boolean started;
+
+    public SearchHistoryWriteBuffer(JdbcTemplate jdbcTemplate,
+                                    @Value("${app.search.history.buffer.capacity:10000}") int capacity,
+                                    @Value("${app.search.history.buffer.batch-size:500}") int batchSize) {
+        this.buffer = new CoalescingWriteBuffer<>(jdbcTemplate, "search-history", INSERT_SQL,
+                (key, at) -> new Object[]{key.userId, key.query, at},
+                capacity, batchSize);
+    }
+
+    /**
+     * Queue a search.
+     *
+     * @param query the trimmed, non-blank query
+     */
+    public CoalescingWriteBuffer.Result offer(Long userId, String query) {
+        return buffer.offer(new Key(userId, query));
+    }
+
+    /**
+     * Discard a user's queued searches, so that rows deleted from the history do not
+     * reappear when the buffer is flushed.
+     */
+    public void discard(Long userId) {
+        buffer.discardIf(key -> key.userId.equals(userId));
+    }
+
+    /**
+     * Discard a user's queued searches for one query.
+     */
+    public void discard(Long userId, String query) {
+        buffer.discard(new Key(userId, query));
+    }
+
+    /**
+     * Start flushing once the application has started. Rows queued before then are
+     * written by the first scheduled flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        started = true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.history.buffer.flush-interval-ms:1000}",
+               initialDelayString = "${app.search.history.buffer.flush-interval-ms:1000}")
+    public void onSchedule() {
+        if (!started) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Failed to flush " + buffer.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        flush();
+    }
+
+    /**
+     * Insert every queued row.
+     */
+    public void flush() {
+        buffer.flush();
+    }
+
+    public Map<String, Object> getStats() {
+        return buffer.getStats();
+    }
+
+    private static final class Key {
+
+        private final Long userId;
+        private final String query;
+
+        private Key(Long userId, String query) {
+            this.userId = userId;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userId.equals(other.userId) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, query);
+        }
+    }
+}
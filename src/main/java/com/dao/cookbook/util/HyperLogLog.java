@@ -0,0 +1,125 @@
+package com.dao.cookbook.util;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct IDs added to it.
+ * <p>
+ * {@code 2^precision} one-byte registers; the relative standard error of the estimate is
+ * about {@code 1.04 / sqrt(2^precision)} (2.3% with precision 11) and memory does not grow
+ * with the number of distinct IDs. Adding an ID twice has no effect, and sketches of the
+ * same precision merge into the sketch of the union.
+ * </p>
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+public final class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision number of index bits, between 4 and 16
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Rebuild a sketch from {@link #toBytes()}.
+     *
+     * @throws IllegalArgumentException if the bytes are not a sketch of this precision
+     */
+    public static HyperLogLog fromBytes(byte[] bytes, int precision) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        if (bytes.length != sketch.registers.length + 1 || bytes[0] != precision) {
+            throw new IllegalArgumentException("not a sketch of precision " + precision);
+        }
+        System.arraycopy(bytes, 1, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+
+    public void add(long id) {
+        long hash = mix(id);
+        int index = (int) (hash >>> (64 - precision));
+        // Guard bit so that the rank is at most 64 - precision + 1
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Add every ID of another sketch of the same precision.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("cannot merge sketches of different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Estimated number of distinct IDs added.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Serialized form: the precision followed by the registers.
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * MurmurHash3 finalizer: spreads sequential IDs over all 64 bits.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93fe53e8b53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,106 @@
+package com.dao.cookbook.util;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for recipe listings ordered by {@code (created_at DESC, id DESC)}.
+ * The recently-viewed listing uses the same cursor over {@code (viewed_at DESC, id DESC)}
+ * of the view history rows. Listings answered from the in-memory indexes (ingredient filter,
+ * faceted search) are ordered by {@code id DESC} alone and use only the ID of the cursor.
+ * <p>
+ * A cursor points at the last recipe of the previous page; the next page contains
+ * recipes strictly older than it. The encoded form is URL-safe Base64 so clients can
+ * pass it back untouched as a query parameter.
+ * </p>
+ */
+public final class RecipeCursor {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String VERSION = "v1";
+
+    /**
+     * Cursor positioned before the newest possible recipe, used for the first page.
+     */
+    private static final RecipeCursor FIRST_PAGE =
+            new RecipeCursor(Timestamp.valueOf("9999-12-31 23:59:59"), Long.MAX_VALUE);
+
+    private final Timestamp createdAt;
+    private final Long id;
+
+    private RecipeCursor(Timestamp createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * Build the cursor pointing at the given recipe position.
+     */
+    public static RecipeCursor of(Timestamp createdAt, Long id) {
+        return new RecipeCursor(createdAt, id);
+    }
+
+    /**
+     * Build the cursor pointing at the given recipe in a listing ordered by ID alone.
+     */
+    public static RecipeCursor ofId(Long id) {
+        return new RecipeCursor(FIRST_PAGE.createdAt, id);
+    }
+
+    /**
+     * Decode a cursor token. A null or blank token means the first page.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static RecipeCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST_PAGE;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+        try {
+            Timestamp createdAt = new Timestamp(Long.parseLong(parts[1]));
+            createdAt.setNanos(Integer.parseInt(parts[2]));
+            return new RecipeCursor(createdAt, Long.parseLong(parts[3]));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException or nanos out of range
+            throw new IllegalArgumentException("Cursor không hợp lệ", e);
+        }
+    }
+
+    /**
+     * Clamp a requested page size to {@code [1, MAX_PAGE_SIZE]}, defaulting when absent.
+     */
+    public static int pageSize(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(requested, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Encode this cursor as an opaque token.
+     */
+    public String encode() {
+        String raw = VERSION + ":" + createdAt.getTime() + ":" + createdAt.getNanos() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
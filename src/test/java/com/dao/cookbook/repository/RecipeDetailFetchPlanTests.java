@@ -0,0 +1,113 @@
+package com.dao.cookbook.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dao.cookbook.dto.response.RecipeResponseDTO;
+import com.dao.cookbook.entity.IngredientEntity;
+import com.dao.cookbook.entity.RecipeEntity;
+import com.dao.cookbook.entity.RecipeStepEntity;
+import com.dao.cookbook.entity.StepImageEntity;
+import com.dao.cookbook.entity.UserEntity;
+import com.dao.cookbook.mapper.RecipeMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.List;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Guards the recipe detail fetch plan: the whole aggregate (author, ingredients,
+ * steps and step images) must load in at most two SQL statements.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class RecipeDetailFetchPlanTests {
+
+	private static final int STEP_COUNT = 15;
+	private static final int IMAGES_PER_STEP = 2;
+	private static final int INGREDIENT_COUNT = 8;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private RecipeRepository recipeRepository;
+
+	@Autowired
+	private RecipeStepRepository recipeStepRepository;
+
+	@Autowired
+	private RecipeMapper recipeMapper;
+
+	@Test
+	void detailAggregateLoadsInAtMostTwoQueries() {
+		Long recipeId = createRecipeAggregate();
+		entityManager.flush();
+		entityManager.clear();
+
+		Statistics statistics = entityManager.getEntityManagerFactory()
+				.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+
+		RecipeEntity recipe = recipeRepository.findDetailById(recipeId).orElseThrow();
+		List<RecipeStepEntity> steps = recipeStepRepository.findWithImagesByRecipeId(recipeId);
+		RecipeResponseDTO dto = recipeMapper.toDetailResponse(recipe, steps, null);
+
+		assertEquals(INGREDIENT_COUNT, dto.getIngredients().size());
+		assertEquals(STEP_COUNT, dto.getSteps().size());
+		dto.getSteps().forEach(step -> assertEquals(IMAGES_PER_STEP, step.getImages().size()));
+		assertEquals("Fetch Plan Tester", dto.getUserName());
+		assertEquals(1, dto.getSteps().get(0).getStepNumber());
+
+		long statements = statistics.getPrepareStatementCount();
+		assertTrue(statements <= 2, "Recipe detail used " + statements + " queries, expected at most 2");
+	}
+
+	private Long createRecipeAggregate() {
+		UserEntity user = new UserEntity();
+		user.setEmail("fetch-plan-" + UUID.randomUUID() + "@example.com");
+		user.setPassword("not-a-real-hash");
+		user.setFullName("Fetch Plan Tester");
+		entityManager.persist(user);
+
+		RecipeEntity recipe = new RecipeEntity();
+		recipe.setTitle("Phở Bò Hà Nội");
+		recipe.setServings(4);
+		recipe.setCookingTime(180);
+		recipe.setUserId(user.getId());
+		entityManager.persist(recipe);
+
+		for (int i = 0; i < INGREDIENT_COUNT; i++) {
+			IngredientEntity ingredient = new IngredientEntity();
+			ingredient.setRecipeId(recipe.getId());
+			ingredient.setName("Nguyên liệu " + i);
+			entityManager.persist(ingredient);
+		}
+
+		// Insert steps in reverse to check the ORDER BY
+		for (int stepNumber = STEP_COUNT; stepNumber >= 1; stepNumber--) {
+			RecipeStepEntity step = new RecipeStepEntity();
+			step.setRecipeId(recipe.getId());
+			step.setStepNumber(stepNumber);
+			step.setTitle("Bước " + stepNumber);
+			entityManager.persist(step);
+
+			for (int order = 1; order <= IMAGES_PER_STEP; order++) {
+				StepImageEntity image = new StepImageEntity();
+				image.setStepId(step.getId());
+				image.setImageUrl("/uploads/steps/" + stepNumber + "-" + order + ".jpg");
+				image.setOrderNumber(order);
+				entityManager.persist(image);
+			}
+		}
+		return recipe.getId();
+	}
+
+}
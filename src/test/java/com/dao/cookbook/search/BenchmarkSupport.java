@@ -0,0 +1,80 @@
+package com.dao.cookbook.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Synthetic titles, index builds and latency percentiles shared by the index benchmarks.
+ */
+final class BenchmarkSupport {
+
+	private static final String[] DISHES = { "Phở", "Bún", "Bánh", "Cơm", "Cháo", "Gỏi", "Lẩu", "Canh", "Xôi", "Chè" };
+	private static final String[] MAINS = { "bò", "gà", "heo", "tôm", "cá", "mực", "cua", "vịt", "đậu phụ", "nấm" };
+	private static final String[] STYLES = { "Hà Nội", "Huế", "Sài Gòn", "nướng", "xào", "chiên giòn", "hấp", "kho tộ",
+			"chua cay", "sả ớt", "nước dừa", "miền Tây" };
+	private static final int BATCH_SIZE = 1000;
+
+	// Keeps the results of timed calls reachable, so the JIT cannot drop the calls
+	private static volatile Object sink;
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Synthetic Vietnamese dish name such as "Bún bò Huế".
+	 */
+	static String dishTitle(Random random) {
+		return pick(random, DISHES) + " " + pick(random, MAINS) + " " + pick(random, STYLES);
+	}
+
+	static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	/**
+	 * Rebuild the index from the documents in batches, as the index coordinator does.
+	 *
+	 * @return build time in milliseconds
+	 */
+	static long rebuild(RecipeIndexer index, List<RecipeDocument> documents) {
+		long start = System.nanoTime();
+		index.beginRebuild();
+		for (int from = 0; from < documents.size(); from += BATCH_SIZE) {
+			index.addToRebuild(documents.subList(from, Math.min(from + BATCH_SIZE, documents.size())));
+		}
+		index.finishRebuild();
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	/**
+	 * Time {@code rounds} calls one by one.
+	 *
+	 * @param call called with the round number; its result is kept
+	 * @return nanoseconds taken by each call, in call order
+	 */
+	static long[] time(int rounds, IntFunction<?> call) {
+		long[] nanos = new long[rounds];
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			sink = call.apply(round);
+			nanos[round] = System.nanoTime() - start;
+		}
+		return nanos;
+	}
+
+	static long percentile(long[] nanos, int percentile) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+	}
+
+	static double micros(long nanos) {
+		return nanos / 1000.0;
+	}
+
+	static double millis(long nanos) {
+		return nanos / 1_000_000.0;
+	}
+}
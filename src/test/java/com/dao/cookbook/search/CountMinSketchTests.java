@@ -0,0 +1,101 @@
+package com.dao.cookbook.search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Accuracy and merge behaviour of {@link CountMinSketch}.
+ */
+class CountMinSketchTests {
+
+	private static final int WIDTH = 2048;
+	private static final int DEPTH = 4;
+
+	@Test
+	void estimatesStayWithinTheErrorBound() {
+		CountMinSketch sketch = new CountMinSketch(WIDTH, DEPTH);
+		Map<String, Long> actual = addSkewed(sketch, 20_000, 42);
+
+		long bound = (long) Math.ceil(Math.E / WIDTH * sketch.getTotal());
+		int overBound = 0;
+		for (Map.Entry<String, Long> entry : actual.entrySet()) {
+			long estimate = sketch.estimate(entry.getKey());
+			assertTrue(estimate >= entry.getValue(), "undercounted " + entry.getKey());
+			if (estimate - entry.getValue() > bound) {
+				overBound++;
+			}
+		}
+		// The bound holds with probability 1 - e^-depth (98%) per key
+		assertTrue(overBound <= actual.size() * 0.03, overBound + " keys over the error bound");
+		assertEquals(actual.values().stream().mapToLong(Long::longValue).sum(), sketch.getTotal());
+	}
+
+	@Test
+	void addReturnsTheNewEstimate() {
+		CountMinSketch sketch = new CountMinSketch(WIDTH, DEPTH);
+		assertEquals(0, sketch.estimate("pho bo"));
+		assertEquals(3, sketch.add("pho bo", 3));
+		assertEquals(5, sketch.add("pho bo", 2));
+		assertEquals(5, sketch.estimate("pho bo"));
+	}
+
+	@Test
+	void mergeEqualsAddingToOneSketch() {
+		CountMinSketch left = new CountMinSketch(WIDTH, DEPTH);
+		CountMinSketch right = new CountMinSketch(WIDTH, DEPTH);
+		CountMinSketch both = new CountMinSketch(WIDTH, DEPTH);
+		addSkewed(left, 5_000, 1);
+		addSkewed(both, 5_000, 1);
+		addSkewed(right, 5_000, 2);
+		addSkewed(both, 5_000, 2);
+
+		left.merge(right);
+
+		assertArrayEquals(both.getCounters(), left.getCounters());
+		assertEquals(both.getTotal(), left.getTotal());
+	}
+
+	@Test
+	void restoresFromCounters() {
+		CountMinSketch sketch = new CountMinSketch(WIDTH, DEPTH);
+		addSkewed(sketch, 1_000, 7);
+
+		CountMinSketch restored = new CountMinSketch(WIDTH, DEPTH, sketch.getCounters(), sketch.getTotal());
+
+		assertArrayEquals(sketch.getCounters(), restored.getCounters());
+		assertEquals(sketch.estimate("key-1"), restored.estimate("key-1"));
+	}
+
+	@Test
+	void rejectsInvalidDimensions() {
+		assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(1000, DEPTH));
+		assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(WIDTH, 0));
+		assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(WIDTH, DEPTH, new long[WIDTH], 0));
+		assertThrows(IllegalArgumentException.class,
+				() -> new CountMinSketch(WIDTH, DEPTH).merge(new CountMinSketch(WIDTH, DEPTH + 1)));
+	}
+
+	/**
+	 * Add keys with roughly Zipf-distributed counts, like search queries.
+	 *
+	 * @return exact count of every key added
+	 */
+	private static Map<String, Long> addSkewed(CountMinSketch sketch, int keys, long seed) {
+		Random random = new Random(seed);
+		Map<String, Long> actual = new HashMap<>();
+		for (int i = 0; i < keys; i++) {
+			String key = "key-" + random.nextInt(keys);
+			long count = 1 + 1000 / (1 + random.nextInt(1000));
+			sketch.add(key, count);
+			actual.merge(key, count, Long::sum);
+		}
+		return actual;
+	}
+}
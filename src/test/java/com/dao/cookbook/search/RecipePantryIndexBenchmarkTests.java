@@ -0,0 +1,84 @@
+package com.dao.cookbook.search;
+
+import static com.dao.cookbook.search.BenchmarkSupport.millis;
+import static com.dao.cookbook.search.BenchmarkSupport.percentile;
+import static com.dao.cookbook.search.BenchmarkSupport.rebuild;
+import static com.dao.cookbook.search.BenchmarkSupport.time;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Measures pantry ranking with {@link RecipePantryIndex} on 1M synthetic recipes of 4-13
+ * ingredients drawn from 2,000 canonical ingredient IDs, a few of them used by most recipes.
+ * <p>
+ * Disabled by default; run with {@code mvn test -Dtest=RecipePantryIndexBenchmarkTests -Dbenchmark=true}.
+ * </p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RecipePantryIndexBenchmarkTests {
+
+	private static final int RECIPE_COUNT = 1_000_000;
+	private static final int INGREDIENT_COUNT = 2_000;
+	private static final int PANTRY_COUNT = 20;
+	private static final int QUERY_ROUNDS = 400;
+
+	@Test
+	void pantryLatency() {
+		Random random = new Random(7);
+		List<RecipeDocument> documents = new ArrayList<>(RECIPE_COUNT + 1);
+		for (int i = 1; i <= RECIPE_COUNT; i++) {
+			RecipeDocument document = new RecipeDocument();
+			document.setId((long) i);
+			document.setAverageRating(random.nextInt(50) / 10.0);
+			List<Integer> ingredients = new ArrayList<>();
+			for (int j = 4 + random.nextInt(10); j > 0; j--) {
+				ingredients.add(skewed(random, 3));
+			}
+			document.setIngredientIds(ingredients);
+			documents.add(document);
+		}
+		RecipeDocument omelette = new RecipeDocument();
+		omelette.setId((long) RECIPE_COUNT + 1);
+		omelette.setAverageRating(5.0);
+		List<Integer> omeletteIngredients = List.of(INGREDIENT_COUNT, INGREDIENT_COUNT + 1, INGREDIENT_COUNT + 2);
+		omelette.setIngredientIds(omeletteIngredients);
+		documents.add(omelette);
+
+		RecipePantryIndex index = new RecipePantryIndex();
+		long buildMillis = rebuild(index, documents);
+		System.out.printf("%n%,d recipes: pantry index built in %,d ms, %s%n",
+				RECIPE_COUNT + 1, buildMillis, index.getStats());
+
+		List<List<Integer>> pantries = new ArrayList<>(PANTRY_COUNT);
+		for (int p = 0; p < PANTRY_COUNT; p++) {
+			List<Integer> pantry = new ArrayList<>();
+			for (int j = 3 + random.nextInt(15); j > 0; j--) {
+				pantry.add(skewed(random, 2));
+			}
+			pantries.add(pantry);
+		}
+		// Warm-up, not measured
+		time(QUERY_ROUNDS, round -> index.match(pantries.get(round % PANTRY_COUNT), 20));
+		long[] nanos = time(QUERY_ROUNDS, round -> index.match(pantries.get(round % PANTRY_COUNT), 20));
+		System.out.printf("top 20 of %d pantries: p50 %.2f ms, p99 %.2f ms%n", PANTRY_COUNT,
+				millis(percentile(nanos, 50)), millis(percentile(nanos, 99)));
+
+		List<RecipePantryIndex.PantryMatch> matches = index.match(omeletteIngredients, 1);
+		assertEquals((long) RECIPE_COUNT + 1, matches.get(0).getRecipeId());
+		assertTrue(matches.get(0).getMissingIngredientIds().isEmpty());
+		assertTrue(percentile(nanos, 50) < 20_000_000L);
+	}
+
+	/**
+	 * Ingredient ID, low IDs more often, so a few ingredients are in most recipes.
+	 */
+	private static int skewed(Random random, int power) {
+		return (int) (INGREDIENT_COUNT * Math.pow(random.nextDouble(), power));
+	}
+}
@@ -0,0 +1,91 @@
+package com.dao.cookbook.search;
+
+import static com.dao.cookbook.search.BenchmarkSupport.dishTitle;
+import static com.dao.cookbook.search.BenchmarkSupport.micros;
+import static com.dao.cookbook.search.BenchmarkSupport.percentile;
+import static com.dao.cookbook.search.BenchmarkSupport.pick;
+import static com.dao.cookbook.search.BenchmarkSupport.rebuild;
+import static com.dao.cookbook.search.BenchmarkSupport.time;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Compares {@link RecipeTextIndex} with the title search it replaces
+ * ({@code LOWER(title) LIKE '%query%'}, i.e. a case-insensitive substring scan of every row).
+ * <p>
+ * The scan is measured in memory, so it is a lower bound for the real query: MySQL also
+ * has to read every row of {@code recipes}. Titles are synthetic Vietnamese dish names.
+ * </p>
+ * Disabled by default; run with {@code mvn test -Dtest=RecipeTextIndexBenchmarkTests -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RecipeTextIndexBenchmarkTests {
+
+	private static final String[] INGREDIENTS = { "hành lá", "tỏi", "ớt", "nước mắm", "đường", "tiêu", "gừng", "sả",
+			"rau thơm", "chanh", "bột ngọt", "dầu ăn", "trứng", "cà chua", "giá đỗ" };
+	private static final String[] QUERIES = { "pho bo", "phở bò", "bun bo hue", "ga nuong", "lau cua", "che", "canh chua ca" };
+	private static final int QUERY_ROUNDS = 200;
+
+	@ParameterizedTest
+	@ValueSource(ints = { 100_000, 1_000_000 })
+	void compareWithLikeScan(int recipeCount) {
+		Random random = new Random(42);
+		List<RecipeDocument> documents = new ArrayList<>(recipeCount);
+		String[] lowerTitles = new String[recipeCount];
+		for (int i = 0; i < recipeCount; i++) {
+			RecipeDocument document = new RecipeDocument();
+			document.setId((long) i + 1);
+			document.setTitle(dishTitle(random));
+			List<String> ingredients = new ArrayList<>();
+			for (int j = 0; j < 6; j++) {
+				ingredients.add(pick(random, INGREDIENTS));
+			}
+			document.setIngredientNames(ingredients);
+			documents.add(document);
+			lowerTitles[i] = document.getTitle().toLowerCase(Locale.ROOT);
+		}
+
+		RecipeTextIndex index = new RecipeTextIndex(100);
+		long buildMillis = rebuild(index, documents);
+
+		System.out.printf("%n%,d recipes: index built in %,d ms%n", recipeCount, buildMillis);
+		System.out.printf("%-14s %12s %12s %12s %12s %8s %8s%n",
+				"query", "index p50 us", "index p99 us", "like p50 us", "like p99 us", "index", "like");
+
+		for (String query : QUERIES) {
+			String lowerQuery = query.toLowerCase(Locale.ROOT);
+			long[] indexNanos = time(QUERY_ROUNDS, round -> index.search(query));
+			long[] likeNanos = time(QUERY_ROUNDS, round -> likeScan(lowerTitles, lowerQuery));
+			System.out.printf("%-14s %12.1f %12.1f %12.1f %12.1f %8d %8d%n", query,
+					micros(percentile(indexNanos, 50)), micros(percentile(indexNanos, 99)),
+					micros(percentile(likeNanos, 50)), micros(percentile(likeNanos, 99)),
+					index.search(query).size(), likeScan(lowerTitles, lowerQuery));
+		}
+
+		// Accent-less queries are the point of the index: LIKE misses them entirely
+		assertFalse(index.search("pho bo").isEmpty());
+		assertTrue(Arrays.stream(lowerTitles).noneMatch(title -> title.contains("pho bo")));
+	}
+
+	/**
+	 * Number of titles containing the query, as {@code LOWER(title) LIKE '%query%'} would find.
+	 */
+	private static int likeScan(String[] lowerTitles, String lowerQuery) {
+		int hits = 0;
+		for (String title : lowerTitles) {
+			if (title.contains(lowerQuery)) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+}
@@ -0,0 +1,68 @@
+package com.dao.cookbook.search;
+
+import static com.dao.cookbook.search.BenchmarkSupport.dishTitle;
+import static com.dao.cookbook.search.BenchmarkSupport.micros;
+import static com.dao.cookbook.search.BenchmarkSupport.millis;
+import static com.dao.cookbook.search.BenchmarkSupport.percentile;
+import static com.dao.cookbook.search.BenchmarkSupport.rebuild;
+import static com.dao.cookbook.search.BenchmarkSupport.time;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Measures fuzzy title search with {@link RecipeTrigramIndex} on 500k synthetic
+ * Vietnamese dish names, queried with misspelled and accent-less titles.
+ * <p>
+ * Disabled by default; run with {@code mvn test -Dtest=RecipeTrigramIndexBenchmarkTests -Dbenchmark=true}.
+ * </p>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RecipeTrigramIndexBenchmarkTests {
+
+	private static final String[] QUERIES = { "banh mi", "bun bo heu", "pho bo ha noj", "ga nuong xa ot", "lau cua",
+			"canh chua ca", "com chien gion" };
+	private static final int RECIPE_COUNT = 500_000;
+	private static final int QUERY_ROUNDS = 200;
+
+	@Test
+	void fuzzySearchLatency() {
+		Random random = new Random(42);
+		List<RecipeDocument> documents = new ArrayList<>(RECIPE_COUNT);
+		for (int i = 0; i < RECIPE_COUNT; i++) {
+			RecipeDocument document = new RecipeDocument();
+			document.setId((long) i + 1);
+			document.setTitle(dishTitle(random));
+			documents.add(document);
+		}
+		RecipeDocument banhMy = new RecipeDocument();
+		banhMy.setId((long) RECIPE_COUNT + 1);
+		banhMy.setTitle("Bánh mỳ");
+		documents.add(banhMy);
+
+		RecipeTrigramIndex index = new RecipeTrigramIndex(100, 0.3f);
+		long buildMillis = rebuild(index, documents);
+
+		System.out.printf("%n%,d recipes: trigram index built in %,d ms on %d cores%n",
+				documents.size(), buildMillis, Runtime.getRuntime().availableProcessors());
+		System.out.printf("%-16s %10s %10s %8s%n", "query", "p50 us", "p99 us", "hits");
+
+		long[] allNanos = new long[QUERIES.length * QUERY_ROUNDS];
+		for (int q = 0; q < QUERIES.length; q++) {
+			String query = QUERIES[q];
+			long[] nanos = time(QUERY_ROUNDS, round -> index.search(query));
+			System.arraycopy(nanos, 0, allNanos, q * QUERY_ROUNDS, QUERY_ROUNDS);
+			System.out.printf("%-16s %10.1f %10.1f %8d%n", query,
+					micros(percentile(nanos, 50)), micros(percentile(nanos, 99)), index.search(query).size());
+		}
+		System.out.printf("all queries: p99 %.2f ms%n", millis(percentile(allNanos, 99)));
+
+		assertEquals(List.of((long) RECIPE_COUNT + 1), index.search("banh mi", 1));
+		assertTrue(!index.search("bun bo heu").isEmpty());
+	}
+}
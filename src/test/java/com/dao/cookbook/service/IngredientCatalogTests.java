@@ -0,0 +1,89 @@
+package com.dao.cookbook.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.dao.cookbook.entity.CanonicalIngredientEntity;
+import com.dao.cookbook.repository.CanonicalIngredientRepository;
+import com.dao.cookbook.repository.IngredientRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Keys and IDs of {@link IngredientCatalog}: accents tell names apart, names typed without
+ * accents still find their ingredient.
+ */
+class IngredientCatalogTests {
+
+	private List<CanonicalIngredientEntity> rows;
+	private IngredientCatalog catalog;
+
+	@BeforeEach
+	void setUp() {
+		rows = new ArrayList<>();
+		CanonicalIngredientRepository repository = mock(CanonicalIngredientRepository.class);
+		when(repository.findAll()).thenReturn(rows);
+		when(repository.findByNormalizedName(anyString())).thenReturn(Optional.empty());
+		when(repository.save(any())).thenAnswer(invocation -> {
+			CanonicalIngredientEntity entity = invocation.getArgument(0);
+			entity.setId(rows.size() + 1);
+			rows.add(entity);
+			return entity;
+		});
+		catalog = new IngredientCatalog(repository, mock(IngredientRepository.class),
+				mock(PlatformTransactionManager.class));
+	}
+
+	@Test
+	void keepsNamesThatDifferOnlyByAccentsApart() {
+		int fish = catalog.resolve("Cá");
+		int eggplant = catalog.resolve("cà");
+		int beef = catalog.resolve("bò");
+		int butter = catalog.resolve("Bơ");
+
+		assertNotEquals(fish, eggplant);
+		assertNotEquals(beef, butter);
+		assertEquals(fish, catalog.find("cá"));
+		assertEquals(eggplant, catalog.find("CÀ"));
+		assertEquals("cá", catalog.canonicalKey(" CÁ "));
+	}
+
+	@Test
+	void keepsDictionaryEntriesThatFoldAlikeApart() {
+		// "ngò" is a synonym of Rau mùi, "ngô" one of Bắp; both fold to "ngo"
+		assertEquals(catalog.canonicalKey("rau mùi"), catalog.canonicalKey("ngò"));
+		assertEquals(catalog.canonicalKey("bắp"), catalog.canonicalKey("ngô"));
+		assertNotEquals(catalog.canonicalKey("ngò"), catalog.canonicalKey("ngô"));
+	}
+
+	@Test
+	void findsNamesTypedWithoutAccents() {
+		int tomato = catalog.resolve("Cà chua");
+
+		assertEquals(tomato, catalog.find("ca chua"));
+		assertEquals(tomato, catalog.resolve("tomatoes"));
+		assertEquals(catalog.canonicalKey("trứng"), catalog.canonicalKey("hot ga"));
+		assertEquals(IngredientCatalog.UNKNOWN_ID, catalog.find("cá chua"));
+	}
+
+	@Test
+	void findsRowsKeyedWithoutAccentsByTheirName() {
+		CanonicalIngredientEntity fish = new CanonicalIngredientEntity();
+		fish.setId(100);
+		fish.setName("Cá");
+		fish.setNormalizedName("ca");
+		rows.add(fish);
+
+		assertEquals(100, catalog.find("cá"));
+		assertEquals(100, catalog.find("ca"));
+		assertNotEquals(100, catalog.resolve("cà"));
+	}
+}
@@ -0,0 +1,146 @@
+package com.dao.cookbook.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * In-memory view counts of {@link RecipeViewCounter} against a fake {@code recipes} table,
+ * across failed and successful flushes.
+ */
+class RecipeViewCounterTests {
+
+	private static final long RECIPE_ID = 1L;
+
+	private FakeRecipesTable recipes;
+	private RecipeViewCounter counter;
+
+	@BeforeEach
+	void setUp() {
+		recipes = new FakeRecipesTable();
+		recipes.viewsCount.put(RECIPE_ID, 10L);
+		counter = new RecipeViewCounter(recipes, mock(PlatformTransactionManager.class), 500);
+	}
+
+	@Test
+	void countsViewsNotWrittenYet() {
+		counter.record(RECIPE_ID, 7L);
+		counter.record(RECIPE_ID, null);
+
+		assertEquals(12, counter.getViews(RECIPE_ID, 10L));
+		assertEquals(0, counter.getUniqueViewers(RECIPE_ID, 0L));
+		assertEquals(5, counter.getViews(2L, 5L));
+	}
+
+	@Test
+	void keepsCountsAcrossFailedFlush() {
+		counter.record(RECIPE_ID, 7L);
+		counter.record(RECIPE_ID, 8L);
+		counter.record(RECIPE_ID, null);
+
+		recipes.failUpdates = true;
+		counter.flush();
+
+		assertEquals(10L, recipes.viewsCount.get(RECIPE_ID));
+		assertEquals(13, counter.getViews(RECIPE_ID, 10L));
+		assertEquals(3L, counter.getStats().get("pendingViews"));
+
+		counter.record(RECIPE_ID, 7L);
+		counter.record(RECIPE_ID, 9L);
+		recipes.failUpdates = false;
+		counter.flush();
+
+		// Every view written exactly once, and the viewers of the failed flush are kept
+		assertEquals(15L, recipes.viewsCount.get(RECIPE_ID));
+		assertEquals(3L, recipes.uniqueViewersCount.get(RECIPE_ID));
+		assertEquals(0L, counter.getStats().get("pendingViews"));
+		// The stored count loaded before the flush is stale; the written one is used instead
+		assertEquals(15, counter.getViews(RECIPE_ID, 10L));
+		assertEquals(15, counter.getViews(RECIPE_ID, 15L));
+		assertEquals(3, counter.getUniqueViewers(RECIPE_ID, 0L));
+
+		counter.record(RECIPE_ID, null);
+		assertEquals(16, counter.getViews(RECIPE_ID, 15L));
+		counter.flush();
+		assertEquals(16L, recipes.viewsCount.get(RECIPE_ID));
+	}
+
+	@Test
+	void forgetsRecipesDeletedBeforeFlush() {
+		counter.record(RECIPE_ID, 7L);
+		recipes.viewsCount.remove(RECIPE_ID);
+
+		counter.flush();
+
+		assertEquals(0, counter.getStats().get("trackedRecipes"));
+	}
+
+	/**
+	 * Answers the counter's queries from maps; ignores the ID lists, which the counter
+	 * does not depend on.
+	 */
+	private static final class FakeRecipesTable extends JdbcTemplate {
+
+		private final Map<Long, Long> viewsCount = new HashMap<>();
+		private final Map<Long, Long> uniqueViewersCount = new HashMap<>();
+		private final Map<Long, byte[]> sketches = new HashMap<>();
+		private boolean failUpdates;
+
+		@Override
+		public void query(PreparedStatementCreator creator, RowCallbackHandler handler) {
+			String sql = ((SqlProvider) creator).getSql();
+			try {
+				if (sql.contains("FROM recipes")) {
+					for (Map.Entry<Long, Long> row : viewsCount.entrySet()) {
+						ResultSet rs = mock(ResultSet.class);
+						when(rs.getLong("id")).thenReturn(row.getKey());
+						when(rs.getLong("views_count")).thenReturn(row.getValue());
+						when(rs.getLong("unique_viewers_count")).thenReturn(uniqueViewersCount.getOrDefault(row.getKey(), 0L));
+						handler.processRow(rs);
+					}
+				} else {
+					for (Map.Entry<Long, byte[]> row : sketches.entrySet()) {
+						ResultSet rs = mock(ResultSet.class);
+						when(rs.getLong("recipe_id")).thenReturn(row.getKey());
+						when(rs.getBytes("viewers_sketch")).thenReturn(row.getValue());
+						handler.processRow(rs);
+					}
+				}
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+			if (sql.startsWith("UPDATE recipes")) {
+				if (failUpdates) {
+					throw new DataAccessResourceFailureException("connection lost");
+				}
+				for (Object[] row : batchArgs) {
+					viewsCount.put((Long) row[2], (Long) row[0]);
+					uniqueViewersCount.put((Long) row[2], (Long) row[1]);
+				}
+			} else {
+				for (Object[] row : batchArgs) {
+					sketches.put((Long) row[0], (byte[]) row[1]);
+				}
+			}
+			return new int[batchArgs.size()];
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.dao.cookbook.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Accuracy, merge and serialization of {@link HyperLogLog}.
+ */
+class HyperLogLogTests {
+
+	private static final int PRECISION = 11;
+
+	@Test
+	void estimatesWithinFivePercent() {
+		for (int distinct : new int[]{100, 10_000, 100_000}) {
+			HyperLogLog sketch = new HyperLogLog(PRECISION);
+			for (long id = 1; id <= distinct; id++) {
+				sketch.add(id);
+			}
+			assertWithin(distinct, sketch.estimate(), 0.05);
+		}
+	}
+
+	@Test
+	void ignoresRepeatedIds() {
+		HyperLogLog once = new HyperLogLog(PRECISION);
+		HyperLogLog repeated = new HyperLogLog(PRECISION);
+		for (long id = 1; id <= 10_000; id++) {
+			once.add(id);
+			for (int i = 0; i < 3; i++) {
+				repeated.add(id);
+			}
+		}
+
+		assertArrayEquals(once.toBytes(), repeated.toBytes());
+	}
+
+	@Test
+	void mergeEqualsTheSketchOfTheUnion() {
+		HyperLogLog left = new HyperLogLog(PRECISION);
+		HyperLogLog right = new HyperLogLog(PRECISION);
+		HyperLogLog union = new HyperLogLog(PRECISION);
+		// Overlapping ranges: 1..60000 and 40001..100000
+		for (long id = 1; id <= 60_000; id++) {
+			left.add(id);
+			union.add(id);
+		}
+		for (long id = 40_001; id <= 100_000; id++) {
+			right.add(id);
+			union.add(id);
+		}
+
+		left.merge(right);
+
+		assertArrayEquals(union.toBytes(), left.toBytes());
+		assertWithin(100_000, left.estimate(), 0.05);
+	}
+
+	@Test
+	void roundTripsThroughBytes() {
+		HyperLogLog sketch = new HyperLogLog(PRECISION);
+		for (long id = 1; id <= 5_000; id++) {
+			sketch.add(id * 31);
+		}
+
+		HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes(), PRECISION);
+
+		assertArrayEquals(sketch.toBytes(), restored.toBytes());
+		assertEquals(sketch.estimate(), restored.estimate());
+	}
+
+	@Test
+	void rejectsOtherPrecisions() {
+		byte[] bytes = new HyperLogLog(10).toBytes();
+
+		assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(bytes, PRECISION));
+		assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[0], PRECISION));
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(PRECISION).merge(new HyperLogLog(10)));
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+	}
+
+	@Test
+	void emptySketchEstimatesZero() {
+		assertEquals(0, new HyperLogLog(PRECISION).estimate());
+	}
+
+	private static void assertWithin(long expected, long actual, double relativeError) {
+		assertTrue(Math.abs(actual - expected) <= expected * relativeError,
+				"estimate " + actual + " for " + expected + " distinct IDs");
+	}
+}